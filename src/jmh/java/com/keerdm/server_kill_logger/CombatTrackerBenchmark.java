@@ -0,0 +1,84 @@
+package com.keerdm.server_kill_logger;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Hurt events per second through what CombatTrackingEventHandler does per hit on a 150-player PvP server.
+// historySize=0 is tracking turned off (the handler's early return); with -prof gc the others should
+// report ~0 B/op once every player has been hit once.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CombatTrackerBenchmark {
+
+    private static final int PLAYERS = 150;
+    private static final int MOB_TYPES = 16;
+    private static final int DAMAGE_TYPES = 8;
+
+    @Param({"0", "16", "64"})
+    public int historySize;
+
+    private CombatTracker tracker;
+    // Stand-ins for the EntityType and DamageType registry objects the handler keys its label maps by
+    private final Map<Object, Integer> entityTypeLabels = new ConcurrentHashMap<>();
+    private final Map<Object, Integer> damageTypeLabels = new ConcurrentHashMap<>();
+    // Held in fields so looking a label up doesn't allocate a capturing lambda per hit
+    private final Function<Object, Integer> mobLabel = type -> tracker.label("Mob" + type.hashCode());
+    private final Function<Object, Integer> damageTypeLabel = type -> tracker.label("damage" + type.hashCode());
+    private UUID[] players;
+    private String[] playerNames;
+    private Object[] mobTypes;
+    private Object[] damageTypes;
+    private int next;
+
+    @Setup
+    public void setup() {
+        tracker = new CombatTracker(historySize);
+
+        players = new UUID[PLAYERS];
+        playerNames = new String[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = new UUID(0, i);
+            playerNames[i] = "Player" + i;
+        }
+        mobTypes = new Object[MOB_TYPES];
+        for (int i = 0; i < MOB_TYPES; i++) {
+            mobTypes[i] = new Object();
+        }
+        damageTypes = new Object[DAMAGE_TYPES];
+        for (int i = 0; i < DAMAGE_TYPES; i++) {
+            damageTypes[i] = new Object();
+        }
+    }
+
+    @Benchmark
+    public void hurt() {
+        if (tracker.capacity() == 0) return;
+
+        int i = next++;
+        int victim = i % PLAYERS;
+
+        // Half the hits come from other players, a quarter from mobs and the rest from the world
+        int attackerLabel;
+        switch (i & 3) {
+            case 0, 1 -> attackerLabel = tracker.label(playerNames[(victim + 1 + (i >>> 2) % (PLAYERS - 1)) % PLAYERS]);
+            case 2 -> attackerLabel = entityTypeLabels.computeIfAbsent(mobTypes[(i >>> 2) % MOB_TYPES], mobLabel);
+            default -> attackerLabel = CombatTracker.NO_ATTACKER;
+        }
+        int damageType = damageTypeLabels.computeIfAbsent(damageTypes[(i >>> 3) % DAMAGE_TYPES], damageTypeLabel);
+
+        tracker.record(players[victim], LogTime.now(), attackerLabel, damageType, 4.5f);
+    }
+
+    // One hit followed by the dying player's history being dumped, as on every lethal hit
+    @Benchmark
+    public Object hurtAndDie() {
+        hurt();
+        return tracker.drain(players[next % PLAYERS]);
+    }
+}
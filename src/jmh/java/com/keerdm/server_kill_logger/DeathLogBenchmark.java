@@ -0,0 +1,95 @@
+package com.keerdm.server_kill_logger;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.concurrent.TimeUnit;
+
+// Renders a synthetic DeathInfo the same way the writer thread does for player_death_logs
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DeathLogBenchmark {
+
+    @Param({"0", "20"})
+    public int nearbyPlayers;
+
+    @Param({"0", "36"})
+    public int inventoryItems;
+
+    private PlayerDeathEventHandler.DeathInfo deathInfo;
+
+    @Setup
+    public void setup() {
+        deathInfo = syntheticDeath(nearbyPlayers, inventoryItems);
+    }
+
+    private final StringBuilder text = new StringBuilder(4096);
+    private final Formatter formatter = new Formatter(text);
+
+    @Benchmark
+    public int render() {
+        text.setLength(0);
+        DeathLogRecord.render(deathInfo, text, formatter);
+        return text.length();
+    }
+
+    static PlayerDeathEventHandler.DeathInfo syntheticDeath(int nearbyPlayers, int inventoryItems) {
+        PlayerDeathEventHandler.DeathInfo deathInfo = new PlayerDeathEventHandler.DeathInfo();
+        deathInfo.playerName = "Steve";
+        deathInfo.playerUUID = "8667ba71-b85a-4004-af54-457a9734eed7";
+        deathInfo.logDateUtc = "October 17, 2026 12:00:00 UTC";
+        deathInfo.logDateLocal = "October 17, 2026 14:00:00 CEST";
+        deathInfo.causeOfDeath = "Steve was slain by Zombie";
+        deathInfo.damageType = "mob";
+        deathInfo.sourceEntity = "Zombie";
+        // Raw position as PlayerDeathEventHandler captures it; the text is formatted when the record is written
+        deathInfo.blockX = 120;
+        deathInfo.blockY = 64;
+        deathInfo.blockZ = -340;
+        deathInfo.dimension = "minecraft:overworld";
+        deathInfo.biome = "minecraft:plains";
+        deathInfo.gamemode = "SURVIVAL";
+        deathInfo.opStatus = "No";
+        deathInfo.xpLevel = 30;
+        deathInfo.xpPoints = 0.42f;
+        deathInfo.health = 0.0f;
+        deathInfo.maxHealth = 20.0f;
+        deathInfo.foodLevel = 17;
+        deathInfo.saturation = 2.5f;
+        deathInfo.difficulty = "HARD";
+        deathInfo.dayTime = 13_000;
+        deathInfo.weather = "Clear";
+        deathInfo.moonPhase = 3;
+
+        deathInfo.nearbyPlayers = new ArrayList<>();
+        for (int i = 0; i < nearbyPlayers; i++) {
+            PlayerDeathEventHandler.DeathInfo.NearbyPlayerInfo nearby = new PlayerDeathEventHandler.DeathInfo.NearbyPlayerInfo();
+            nearby.name = "Player" + i;
+            nearby.distance = 3.5 + i;
+            nearby.blockX = 120 + i;
+            nearby.blockY = 64;
+            nearby.blockZ = -340;
+            nearby.dimension = "minecraft:overworld";
+            deathInfo.nearbyPlayers.add(nearby);
+        }
+
+        deathInfo.equippedItems = new PlayerDeathEventHandler.DeathInfo.EquippedItems();
+        deathInfo.equippedItems.helmet = "Diamond Helmet (minecraft:diamond_helmet) (NBT: {Damage:12})";
+        deathInfo.equippedItems.chestplate = "Diamond Chestplate (minecraft:diamond_chestplate) (NBT: {Damage:40})";
+        deathInfo.equippedItems.leggings = "Empty";
+        deathInfo.equippedItems.boots = "Iron Boots (minecraft:iron_boots) (NBT: {Damage:3})";
+        deathInfo.equippedItems.mainHand = "Diamond Sword (minecraft:diamond_sword) (NBT: {Damage:100,Enchantments:[{id:\"minecraft:sharpness\",lvl:5s}]})";
+        deathInfo.equippedItems.offHand = "Shield (minecraft:shield)";
+
+        deathInfo.inventoryContents = new ArrayList<>();
+        for (int i = 0; i < inventoryItems; i++) {
+            PlayerDeathEventHandler.DeathInfo.InventoryItem item = new PlayerDeathEventHandler.DeathInfo.InventoryItem();
+            item.count = 1 + (i % 64);
+            item.name = "Cobblestone (minecraft:cobblestone)";
+            deathInfo.inventoryContents.add(item);
+        }
+        return deathInfo;
+    }
+}
@@ -0,0 +1,150 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Golden-file check of the text logs. A fixed death goes through DeathLogRecord and TextLogStorage, and a
+// fixed day of kills through KillTallyStore, exactly as the writer thread would write them; the files must
+// match the baselines in src/jmh/resources/golden byte for byte. The baselines are what the mod wrote before
+// any of the logging path was reworked, so a change that alters the output fails the build:
+//
+//   ./gradlew goldenFiles                                    compare (part of check)
+//   ./gradlew goldenFiles -PgoldenArgs=--update              rewrite the baselines after an intended change
+//
+// The locale and time zone are pinned, since month names, decimal separators and the server-local times
+// depend on them.
+public class GoldenFiles {
+
+    private static final String USAGE = """
+            Usage: GoldenFiles [options]
+              --golden <path>   baseline directory (default src/jmh/resources/golden)
+              --dir <path>      scratch directory, wiped first (default build/tmp/golden)
+              --update          write the current output as the new baselines
+            """;
+
+    static final long TIME_MILLIS = 1_792_238_400_000L; // 2026-10-17T12:00:00Z
+    static final UUID STEVE = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+
+    private record Golden(String baseline, Path written) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Locale.setDefault(Locale.US);
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+
+        Path golden = Paths.get("src/jmh/resources/golden");
+        Path dir = Paths.get("build/tmp/golden");
+        boolean update = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--golden" -> golden = Paths.get(args[++i]);
+                case "--dir" -> dir = Paths.get(args[++i]);
+                case "--update" -> update = true;
+                default -> {
+                    System.err.print(USAGE);
+                    System.exit(2);
+                }
+            }
+        }
+
+        deleteTree(dir);
+        List<Golden> files = List.of(
+                new Golden("death.txt", writeDeath(dir.resolve("player_death_logs"))),
+                new Golden("kills.txt", writeKills(dir.resolve("player_kill_entity_logs"))));
+
+        int failures = 0;
+        for (Golden file : files) {
+            Path baseline = golden.resolve(file.baseline());
+            byte[] written = Files.readAllBytes(file.written());
+            if (update) {
+                Files.createDirectories(golden);
+                Files.write(baseline, written);
+                System.out.println("Updated " + baseline);
+            } else if (!Files.exists(baseline)) {
+                System.out.println("FAIL " + file.baseline() + ": no baseline at " + baseline);
+                failures++;
+            } else {
+                String difference = firstDifference(Files.readAllBytes(baseline), written);
+                if (difference != null) {
+                    System.out.println("FAIL " + file.baseline() + ": " + difference);
+                    failures++;
+                } else {
+                    System.out.println("OK   " + file.baseline());
+                }
+            }
+        }
+        System.exit(failures > 0 ? 1 : 0);
+    }
+
+    // The death as PlayerDeathEventHandler captures it: epoch millis only, the times filled in on the writer
+    private static Path writeDeath(Path deathLogDir) throws IOException {
+        PlayerDeathEventHandler.DeathInfo deathInfo = DeathLogBenchmark.syntheticDeath(2, 5);
+        deathInfo.timeMillis = TIME_MILLIS;
+        deathInfo.logDateUtc = null;
+        deathInfo.logDateLocal = null;
+        deathInfo.playerUUID = STEVE.toString();
+        deathInfo.recentDamage = List.of();
+
+        TextLogStorage storage = new TextLogStorage(deathLogDir);
+        new DeathLogRecord(deathInfo).writeTo(storage);
+        storage.commit();
+        storage.close();
+
+        Path file = deathLogDir.resolve("Steve").resolve("October-17-2026_12-00-00.txt");
+        if (!Files.exists(file)) throw new IOException("Death log not written as " + file);
+        return file;
+    }
+
+    // Distinct counts, since equal ones are written in no particular order
+    private static Path writeKills(Path killLogDir) throws IOException {
+        KillTallyStore tallies = new KillTallyStore(killLogDir);
+        int zombie = tallies.keys().intern("Zombie");
+        int skeleton = tallies.keys().intern("Skeleton");
+        for (int i = 0; i < 12; i++) {
+            tallies.record(STEVE, "Steve", TIME_MILLIS + i * 1000L, zombie);
+        }
+        tallies.record(STEVE, "Steve", TIME_MILLIS, skeleton, 5);
+        tallies.record(STEVE, "Steve", TIME_MILLIS, KillTally.Kind.NAMED_ENTITY, "Zombie (name:Bob)", 2);
+        tallies.record(STEVE, "Steve", TIME_MILLIS, KillTally.Kind.PLAYER,
+                "Alex (uuid:0f2c1c7e-3d5a-4c8e-9b1a-6e2f4d7c8a90)", 3);
+        tallies.record(STEVE, "Steve", TIME_MILLIS, KillTally.Kind.PLAYER,
+                "Notch (uuid:069a79f4-44e9-4726-a5be-fca90e38aaf5)", 1);
+        tallies.flush();
+
+        Path file = killLogDir.resolve("Steve").resolve("October-17-2026.txt");
+        if (!Files.exists(file)) throw new IOException("Kill log not written as " + file);
+        return file;
+    }
+
+    private static String firstDifference(byte[] expected, byte[] actual) {
+        String[] expectedLines = new String(expected, StandardCharsets.UTF_8).split("\n", -1);
+        String[] actualLines = new String(actual, StandardCharsets.UTF_8).split("\n", -1);
+        for (int i = 0; i < Math.max(expectedLines.length, actualLines.length); i++) {
+            String want = i < expectedLines.length ? expectedLines[i] : "<end of file>";
+            String got = i < actualLines.length ? actualLines[i] : "<end of file>";
+            if (!want.equals(got)) {
+                return String.format(Locale.ROOT, "line %d is \"%s\", expected \"%s\"", i + 1, got, want);
+            }
+        }
+        // Same lines, so the difference is in the bytes, e.g. the encoding
+        return java.util.Arrays.equals(expected, actual) ? null : "same text, different bytes";
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.keerdm.server_kill_logger;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// formatItemStack with NBT of increasing size, up to a shulker box full of written books
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ItemStackFormatBenchmark {
+
+    @Param({"0", "1024", "65536"})
+    public int nbtLength;
+
+    private String nbt;
+
+    @Setup
+    public void setup() {
+        if (nbtLength == 0) {
+            nbt = null;
+            return;
+        }
+
+        StringBuilder builder = new StringBuilder(nbtLength + 64);
+        builder.append("{BlockEntityTag:{Items:[");
+        int slot = 0;
+        while (builder.length() < nbtLength) {
+            builder.append("{Slot:").append(slot++ % 27).append("b,id:\"minecraft:written_book\",Count:1b,")
+                    .append("tag:{title:\"Book ").append(slot).append("\",pages:['{\"text\":\"Lorem ipsum dolor sit amet\"}']}},");
+        }
+        builder.append("]}}");
+        nbt = builder.toString();
+    }
+
+    @Benchmark
+    public String format() {
+        return ItemStackFormat.format("Shulker Box", "minecraft:shulker_box", nbt);
+    }
+}
@@ -0,0 +1,78 @@
+package com.keerdm.server_kill_logger;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Kills per second through KillTallyStore, with and without the periodic flush to disk.
+// With -prof gc the record benchmark should report ~0 B/op once tallies exist.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KillCountingBenchmark {
+
+    private static final int PLAYERS = 64;
+    private static final int ENTITY_TYPES = 32;
+
+    @Param({"10000"})
+    public int killsPerFlush;
+
+    private Path dir;
+    private KillTallyStore store;
+    private UUID[] players;
+    private String[] playerNames;
+    private int[] keyIds;
+    private long nowMillis;
+    private int next;
+
+    @Setup
+    public void setup() {
+        try {
+            dir = Files.createTempDirectory("kill-count-bench");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        store = new KillTallyStore(dir);
+        nowMillis = System.currentTimeMillis();
+
+        players = new UUID[PLAYERS];
+        playerNames = new String[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = new UUID(0, i);
+            playerNames[i] = "Player" + i;
+        }
+
+        keyIds = new int[ENTITY_TYPES];
+        for (int i = 0; i < ENTITY_TYPES; i++) {
+            keyIds[i] = store.keys().intern("Mob_" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        int i = next++;
+        store.record(players[i & (PLAYERS - 1)], playerNames[i & (PLAYERS - 1)], nowMillis, keyIds[(i >>> 6) & (ENTITY_TYPES - 1)]);
+    }
+
+    @Benchmark
+    public void recordAndFlush() throws IOException {
+        int i = next++;
+        store.record(players[i & (PLAYERS - 1)], playerNames[i & (PLAYERS - 1)], nowMillis, keyIds[(i >>> 6) & (ENTITY_TYPES - 1)]);
+        if (i % killsPerFlush == 0) {
+            store.flush();
+        }
+    }
+}
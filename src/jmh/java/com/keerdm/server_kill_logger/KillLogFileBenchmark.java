@@ -0,0 +1,80 @@
+package com.keerdm.server_kill_logger;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Parsing and rewriting a daily kill file with 10 to 100k distinct entries
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KillLogFileBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int entries;
+
+    private Path dir;
+    private String existingFile;
+    private String rewrittenFile;
+    private ZonedDateTime nowUtc;
+    private ZonedDateTime nowLocal;
+    private Map<String, Integer> entityKills;
+    private Map<String, Integer> namedEntityKills;
+    private Map<String, Integer> playerKills;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("kill-log-bench");
+        existingFile = dir.resolve("existing.txt").toString();
+        rewrittenFile = dir.resolve("rewritten.txt").toString();
+        nowUtc = ZonedDateTime.now(ZoneOffset.UTC);
+        nowLocal = ZonedDateTime.now(ZoneId.systemDefault());
+
+        // Roughly the mix a mob farm produces: mostly plain mobs, some named ones, a few players
+        entityKills = new HashMap<>();
+        namedEntityKills = new HashMap<>();
+        playerKills = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            int count = 1 + (i * 31) % 5000;
+            switch (i % 10) {
+                case 0 -> playerKills.put("Player" + i + " (uuid:00000000-0000-0000-0000-" + String.format("%012d", i) + ")", count);
+                case 1 -> namedEntityKills.put("Zombie (name:Bob " + i + ")", count);
+                default -> entityKills.put("Mob_" + i, count);
+            }
+        }
+        KillLogFile.writeKillsToFile(existingFile, "Steve", "8667ba71-b85a-4004-af54-457a9734eed7",
+                nowUtc, nowLocal, entityKills, namedEntityKills, playerKills);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int readExistingKillData() {
+        Map<String, Integer> entity = new HashMap<>();
+        Map<String, Integer> named = new HashMap<>();
+        Map<String, Integer> players = new HashMap<>();
+        KillLogFile.readExistingKillData(existingFile, entity, named, players);
+        return entity.size() + named.size() + players.size();
+    }
+
+    @Benchmark
+    public void writeKillsToFile() throws IOException {
+        KillLogFile.writeKillsToFile(rewrittenFile, "Steve", "8667ba71-b85a-4004-af54-457a9734eed7",
+                nowUtc, nowLocal, entityKills, namedEntityKills, playerKills);
+    }
+}
@@ -0,0 +1,80 @@
+package com.keerdm.server_kill_logger;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Many threads counting kills for a small shared set of players, with logouts and UTC day rollovers
+// racing the counting, as when several levels tick in parallel. After every iteration the store must
+// hold exactly as many kills as were recorded; a lost or misplaced kill fails the run.
+//
+//   ./gradlew jmh -PjmhIncludes=KillTallyStoreStress
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class KillTallyStoreStressBenchmark {
+
+    private static final int PLAYERS = 16;
+    private static final int ENTITY_TYPES = 32;
+    // Roughly how many kills happen between simulated UTC midnights
+    private static final int KILLS_PER_DAY = 1 << 18;
+
+    private KillTallyStore store;
+    private UUID[] players;
+    private String[] playerNames;
+    private int[] keyIds;
+    private long startMillis;
+    private final AtomicLong kills = new AtomicLong();
+    private final LongAdder recorded = new LongAdder();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        // Nothing is flushed here: with no writer running, flushSoon() is a no-op and the path is never written
+        store = new KillTallyStore(Paths.get("build", "tmp", "kill-tally-stress"));
+        startMillis = System.currentTimeMillis();
+        kills.set(0);
+        recorded.reset();
+
+        players = new UUID[PLAYERS];
+        playerNames = new String[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = UUID.randomUUID();
+            playerNames[i] = "Player" + i;
+        }
+
+        keyIds = new int[ENTITY_TYPES];
+        for (int i = 0; i < ENTITY_TYPES; i++) {
+            keyIds[i] = store.keys().intern("Mob_" + i);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void verify() {
+        long expected = recorded.sum();
+        long actual = store.residentKills();
+        if (actual != expected) {
+            throw new IllegalStateException("Recorded " + expected + " kills but the store holds " + actual);
+        }
+    }
+
+    @Benchmark
+    public void recordKill() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int player = random.nextInt(PLAYERS);
+
+        if (random.nextInt(1024) == 0) {
+            store.release(players[player]);
+            return;
+        }
+
+        long nowMillis = startMillis + (kills.getAndIncrement() / KILLS_PER_DAY) * KillTally.MILLIS_PER_DAY;
+        store.record(players[player], playerNames[player], nowMillis, keyIds[random.nextInt(ENTITY_TYPES)]);
+        recorded.increment();
+    }
+}
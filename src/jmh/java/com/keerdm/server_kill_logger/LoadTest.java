@@ -0,0 +1,410 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+// Headless load test for the logging path. Storms of deaths (a mob farm, a 200-player fight, TNT wiping out
+// a base) are replayed on a simulated 20 TPS server thread through a DeathRecorder of their own, the same code
+// the death sinks run once DeathSnapshot has captured an event: the DeathInfo goes to a real AsyncLogWriter,
+// kills go through the kill tallies, KillSampler and the leaderboards, hits through the combat history.
+// Capturing from live entities needs a running game; LoggingGameTests covers that, and DeathLogBenchmark and
+// NearbyPlayersBenchmark its cost.
+//
+// Every run is seeded and the clock simulated, so the same options replay the same events. Per scenario the
+// report has tick-time percentiles, events per second, bytes allocated per event on the server thread and
+// on the writer thread, files touched and records dropped. It is written as JSON, and the run exits with
+// status 1 if any scenario is over budget, which fails the build. Allocation and dropped records depend on
+// the code alone and are always checked; tick times depend on the machine and whatever else it is running,
+// so their budget is only checked with --tick-budget, e.g. on a dedicated runner:
+//
+//   ./gradlew loadTest                                   every scenario; report in build/reports/loadtest
+//   ./gradlew loadTest -PloadTestArgs="--scenario pvp --backend journal"
+//   ./gradlew loadTest -PloadTestArgs=--tick-budget      fail on slow ticks too
+public class LoadTest {
+
+    private static final String USAGE = """
+            Usage: LoadTest [options]
+              --scenario <name>     mob_farm, pvp or tnt_wipe (repeatable; default all)
+              --backend <name>      text, journal or jsonl (default text)
+              --no-index            leave out the event index
+              --ticks <n>           ticks per scenario (default 400)
+              --tick-millis <n>     pace ticks this far apart, 0 to run flat out (default 50)
+              --seed <n>            random seed (default 1)
+              --tick-budget         also fail a scenario whose tick p99 is over its budget
+              --budget-scale <x>    multiply every budget, e.g. on a slow CI machine (default 1)
+              --dir <path>          scratch directory, wiped before each scenario (default build/tmp/loadtest)
+              --report <path>       JSON report (default build/reports/loadtest/report.json)
+            """;
+
+    private static final long START_MILLIS = 1_792_238_400_000L; // 2026-10-17T12:00:00Z
+    private static final long TICK_MILLIS = 50;
+    private static final String[] MOBS = {"Zombie", "Skeleton", "Creeper", "Spider", "Enderman"};
+
+    // Budgets: tick p99 in ms, then bytes allocated per event on the server and on the writer thread.
+    // They are about four times what one core measures, so only a real regression trips them.
+    public enum Scenario {
+        // 20 AFK farms, each killing 25 mobs of one type per tick
+        MOB_FARM(20, 25, 1_024, 1_024),
+        // 200 players trading hits, with a PvP death every other tick
+        PVP(200, 25, 1_024, 4_096),
+        // Quiet ticks, then every 100 ticks a blast kills 2000 mobs and 100 players at once
+        TNT_WIPE(100, 100, 2_048, 8_192);
+
+        final int players;
+        final double maxTickP99Millis;
+        final long maxServerBytesPerEvent;
+        final long maxWriterBytesPerEvent;
+
+        Scenario(int players, double maxTickP99Millis, long maxServerBytesPerEvent, long maxWriterBytesPerEvent) {
+            this.players = players;
+            this.maxTickP99Millis = maxTickP99Millis;
+            this.maxServerBytesPerEvent = maxServerBytesPerEvent;
+            this.maxWriterBytesPerEvent = maxWriterBytesPerEvent;
+        }
+    }
+
+    public record Result(Scenario scenario, long ticks, long deaths, long kills, long hits, LatencyHistogram tickTimes,
+                         double eventsPerSecond, long serverBytesPerEvent, long writerBytesPerEvent,
+                         long fileOpens, long filesOnDisk, long bytesWritten, long dropped, List<String> failures) {
+    }
+
+    private final Scenario scenario;
+    private final Random random;
+    private final UUID[] players;
+    private final String[] names;
+    private final CombatTracker combat = new CombatTracker(16);
+    private final DeathRecorder recorder;
+    private final int[] mobKeys = new int[MOBS.length];
+    private final String[] playerKeys;
+    private long deaths;
+    private long kills;
+    private long hits;
+
+    private LoadTest(Scenario scenario, long seed, Path dir) {
+        this.scenario = scenario;
+        this.random = new Random(seed);
+        this.recorder = new DeathRecorder(new KillTallyStore(dir.resolve("player_kill_entity_logs")),
+                new KillSampler(new KillSampler.Settings(120, 120, 0, 60_000L)), new StatsEngine(), combat);
+
+        players = new UUID[scenario.players];
+        names = new String[scenario.players];
+        playerKeys = new String[scenario.players];
+        for (int i = 0; i < scenario.players; i++) {
+            players[i] = new UUID(random.nextLong(), random.nextLong());
+            names[i] = "Player" + i;
+            playerKeys[i] = DeathRecorder.playerKey(names[i], players[i].toString());
+        }
+        for (int i = 0; i < MOBS.length; i++) {
+            mobKeys[i] = recorder.tallies().keys().intern(MOBS[i]);
+        }
+    }
+
+    // One tick's worth of events for the scenario
+    private void tick(int tick, long nowMillis) {
+        switch (scenario) {
+            case MOB_FARM -> {
+                for (int p = 0; p < players.length; p++) {
+                    int mob = mobKeys[p % MOBS.length];
+                    for (int i = 0; i < 25; i++) {
+                        mobKill(p, mob, nowMillis);
+                    }
+                }
+            }
+            case PVP -> {
+                for (int i = 0; i < 40; i++) {
+                    int attacker = random.nextInt(players.length);
+                    int victim = random.nextInt(players.length);
+                    if (attacker != victim) hit(attacker, victim, nowMillis);
+                }
+                if (tick % 2 == 0) {
+                    int killer = random.nextInt(players.length);
+                    int victim = (killer + 1 + random.nextInt(players.length - 1)) % players.length;
+                    playerDeath(victim, killer, "player", nowMillis);
+                }
+                for (int i = 0; i < 5; i++) {
+                    mobKill(random.nextInt(players.length), mobKeys[random.nextInt(MOBS.length)], nowMillis);
+                }
+            }
+            case TNT_WIPE -> {
+                if (tick % 100 == 99) {
+                    for (int i = 0; i < 2000; i++) {
+                        mobKill(random.nextInt(10), mobKeys[random.nextInt(MOBS.length)], nowMillis);
+                    }
+                    for (int i = 0; i < 100; i++) {
+                        // Half of them blown up by whoever lit the TNT, half by stray creepers
+                        playerDeath(i, i % 2 == 0 ? players.length - 1 - (i % 10) : -1, "explosion", nowMillis);
+                    }
+                } else {
+                    for (int i = 0; i < 10; i++) {
+                        mobKill(random.nextInt(players.length), mobKeys[random.nextInt(MOBS.length)], nowMillis);
+                    }
+                }
+            }
+        }
+    }
+
+    // What PlayerKillEntityEventHandler and StatsEventHandler do for a plain entity kill
+    private void mobKill(int killer, int keyId, long nowMillis) {
+        recorder.entityKill(players[killer], names[killer], keyId, nowMillis);
+        recorder.leaderboards(null, null, players[killer], names[killer], nowMillis);
+        kills++;
+    }
+
+    private void hit(int attacker, int victim, long nowMillis) {
+        combat.record(players[victim], nowMillis, combat.label(names[attacker]), combat.label("player"),
+                1 + random.nextInt(8));
+        hits++;
+    }
+
+    // What PlayerDeathEventHandler, PlayerKillEntityEventHandler and StatsEventHandler do for a player death
+    private void playerDeath(int victim, int killer, String damageType, long nowMillis) {
+        PlayerDeathEventHandler.DeathInfo deathInfo = DeathLogBenchmark.syntheticDeath(5, 36);
+        deathInfo.playerName = names[victim];
+        deathInfo.playerUUID = players[victim].toString();
+        deathInfo.timeMillis = nowMillis;
+        deathInfo.logDateUtc = null;
+        deathInfo.logDateLocal = null;
+        deathInfo.damageType = damageType;
+        deathInfo.sourceEntity = killer >= 0 ? names[killer] : "Creeper";
+        recorder.playerDeath(players[victim], deathInfo);
+        deaths++;
+
+        if (killer >= 0) {
+            recorder.keyedKill(players[killer], names[killer], KillTally.Kind.PLAYER, playerKeys[victim], nowMillis);
+            recorder.leaderboards(players[victim], names[victim], players[killer], names[killer], nowMillis);
+            kills++;
+        } else {
+            recorder.leaderboards(players[victim], names[victim], null, null, nowMillis);
+        }
+    }
+
+    private static Result run(Scenario scenario, LogStorage.Backend backend, boolean index, int ticks,
+                              long tickNanos, long seed, boolean tickBudget, double budgetScale, Path dir)
+            throws IOException {
+        deleteTree(dir);
+        Files.createDirectories(dir);
+
+        LoadTest test = new LoadTest(scenario, seed, dir);
+        AsyncLogWriter writer = new AsyncLogWriter(8192, 256, AsyncLogWriter.OverflowPolicy.COUNT_AND_DROP,
+                30_000L, createStorage(backend, index, dir));
+        writer.addFlushHook(test.recorder.tallies());
+        AsyncLogWriter.start(writer);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long serverThread = Thread.currentThread().getId();
+        Thread writerThread = findThread("Server Kill Logger Writer");
+        long writerBytesBefore = threads.getThreadAllocatedBytes(writerThread.getId());
+        long fileOpensBefore = LoggerMetrics.fileOpens();
+        long bytesWrittenBefore = LoggerMetrics.bytesWritten();
+
+        LatencyHistogram tickTimes = new LatencyHistogram();
+        long serverBytes = 0;
+        long busyNanos = 0;
+        long nextTick = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            long nowMillis = START_MILLIS + tick * TICK_MILLIS;
+            long bytesBefore = threads.getThreadAllocatedBytes(serverThread);
+            long start = System.nanoTime();
+            test.tick(tick, nowMillis);
+            // The once-a-second sweep PlayerKillEntityEventHandler.onServerTick does
+            if (tick % 20 == 19) {
+                test.recorder.drainSampledKills(nowMillis);
+            }
+            long elapsed = System.nanoTime() - start;
+            serverBytes += threads.getThreadAllocatedBytes(serverThread) - bytesBefore;
+            tickTimes.record(elapsed);
+            busyNanos += elapsed;
+
+            // Leave the rest of the tick to the writer, as a real server would
+            nextTick += tickNanos;
+            long wait = nextTick - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+        }
+        test.recorder.flushSampledKills();
+
+        // Measure the writer once it has caught up; stop() then writes the tallies and closes the storage
+        while (writer.queueDepth() > 0) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        long writerBytes = threads.getThreadAllocatedBytes(writerThread.getId()) - writerBytesBefore;
+        long dropped = writer.droppedRecords();
+        AsyncLogWriter.stop();
+
+        long events = test.deaths + test.kills + test.hits;
+        long filesOnDisk;
+        try (Stream<Path> files = Files.walk(dir)) {
+            filesOnDisk = files.filter(Files::isRegularFile).count();
+        }
+
+        Result result = new Result(scenario, ticks, test.deaths, test.kills, test.hits, tickTimes,
+                busyNanos == 0 ? 0 : events * 1e9 / busyNanos, events == 0 ? 0 : serverBytes / events,
+                events == 0 ? 0 : writerBytes / events, LoggerMetrics.fileOpens() - fileOpensBefore, filesOnDisk,
+                LoggerMetrics.bytesWritten() - bytesWrittenBefore, dropped, new ArrayList<>());
+        checkBudget(result, tickBudget, budgetScale);
+        return result;
+    }
+
+    private static void checkBudget(Result result, boolean tickBudget, double scale) {
+        Scenario scenario = result.scenario();
+        double p99Millis = result.tickTimes().percentileNanos(0.99) / 1e6;
+        if (tickBudget && p99Millis > scenario.maxTickP99Millis * scale) {
+            result.failures().add(String.format(Locale.ROOT, "tick p99 %.2f ms is over %.2f ms",
+                    p99Millis, scenario.maxTickP99Millis * scale));
+        }
+        if (result.serverBytesPerEvent() > scenario.maxServerBytesPerEvent * scale) {
+            result.failures().add(String.format(Locale.ROOT, "server thread allocates %d B/event, over %.0f",
+                    result.serverBytesPerEvent(), scenario.maxServerBytesPerEvent * scale));
+        }
+        if (result.writerBytesPerEvent() > scenario.maxWriterBytesPerEvent * scale) {
+            result.failures().add(String.format(Locale.ROOT, "writer thread allocates %d B/event, over %.0f",
+                    result.writerBytesPerEvent(), scenario.maxWriterBytesPerEvent * scale));
+        }
+        if (result.dropped() > 0) {
+            result.failures().add(result.dropped() + " records dropped");
+        }
+    }
+
+    private static LogStorage createStorage(LogStorage.Backend backend, boolean index, Path dir) throws IOException {
+        LogStorage storage = switch (backend) {
+            case TEXT -> new TextLogStorage(dir.resolve("player_death_logs"), LogStorage.SyncPolicy.NONE,
+                    LogStorage.Layout.NAME);
+            case JOURNAL -> new JournalLogStorage(dir.resolve(JournalLogStorage.DEFAULT_DIR), 64L << 20, 1440,
+                    LogStorage.SyncPolicy.NONE);
+            case JSONL -> new JsonLinesLogStorage(dir.resolve(JsonLinesLogStorage.DEFAULT_DIR), LogStorage.SyncPolicy.NONE);
+        };
+        if (!index) return storage;
+        return new CompositeLogStorage(List.of(storage, new EventIndex(dir.resolve(EventIndex.DEFAULT_DIR))));
+    }
+
+    private static Thread findThread(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(name)) return thread;
+        }
+        throw new IllegalStateException("No thread named " + name);
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static void writeReport(List<Result> results, LogStorage.Backend backend, boolean index, long seed,
+                                     Path report) throws IOException {
+        JsonLineWriter json = new JsonLineWriter();
+        json.beginObject()
+                .field("backend", backend.name().toLowerCase(Locale.ROOT))
+                .name("index").value(index)
+                .field("seed", seed)
+                .name("passed").value(results.stream().allMatch(result -> result.failures().isEmpty()))
+                .name("scenarios").beginArray();
+        for (Result result : results) {
+            LatencyHistogram ticks = result.tickTimes();
+            json.beginObject()
+                    .field("name", result.scenario().name().toLowerCase(Locale.ROOT))
+                    .field("ticks", result.ticks())
+                    .field("deaths", result.deaths())
+                    .field("kills", result.kills())
+                    .field("hits", result.hits())
+                    .name("tickMillis").beginObject()
+                    .field("p50", ticks.percentileNanos(0.5) / 1e6)
+                    .field("p99", ticks.percentileNanos(0.99) / 1e6)
+                    .field("max", ticks.maxNanos() / 1e6)
+                    .field("mean", ticks.meanNanos() / 1e6)
+                    .endObject()
+                    .field("eventsPerSecond", Math.round(result.eventsPerSecond()))
+                    .field("serverBytesPerEvent", result.serverBytesPerEvent())
+                    .field("writerBytesPerEvent", result.writerBytesPerEvent())
+                    .field("fileOpens", result.fileOpens())
+                    .field("filesOnDisk", result.filesOnDisk())
+                    .field("bytesWritten", result.bytesWritten())
+                    .field("droppedRecords", result.dropped())
+                    .name("failures").beginArray();
+            for (String failure : result.failures()) {
+                json.value(failure);
+            }
+            json.endArray().endObject();
+        }
+        json.endArray().endObject().endLine();
+
+        if (report.getParent() != null) Files.createDirectories(report.getParent());
+        try (OutputStream out = Files.newOutputStream(report)) {
+            out.write(json.buffer(), 0, json.size());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Scenario> scenarios = new ArrayList<>();
+        LogStorage.Backend backend = LogStorage.Backend.TEXT;
+        boolean index = true;
+        int ticks = 400;
+        long tickMillis = TICK_MILLIS;
+        long seed = 1;
+        boolean tickBudget = false;
+        double budgetScale = 1;
+        Path dir = Paths.get("build", "tmp", "loadtest");
+        Path report = Paths.get("build", "reports", "loadtest", "report.json");
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--scenario" -> scenarios.add(Scenario.valueOf(args[++i].toUpperCase(Locale.ROOT)));
+                    case "--backend" -> backend = LogStorage.Backend.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    case "--no-index" -> index = false;
+                    case "--ticks" -> ticks = Integer.parseInt(args[++i]);
+                    case "--tick-millis" -> tickMillis = Long.parseLong(args[++i]);
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "--tick-budget" -> tickBudget = true;
+                    case "--budget-scale" -> budgetScale = Double.parseDouble(args[++i]);
+                    case "--dir" -> dir = Paths.get(args[++i]);
+                    case "--report" -> report = Paths.get(args[++i]);
+                    case "--help" -> {
+                        System.out.print(USAGE);
+                        return;
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+        if (scenarios.isEmpty()) scenarios.addAll(List.of(Scenario.values()));
+
+        List<Result> results = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            Result result = run(scenario, backend, index, ticks, tickMillis * 1_000_000L, seed, tickBudget,
+                    budgetScale, dir.resolve(scenario.name().toLowerCase(Locale.ROOT)));
+            results.add(result);
+            System.out.printf(Locale.ROOT, "%-9s %6d deaths %8d kills  tick p50 %.2f p99 %.2f max %.2f ms  "
+                            + "%.0f events/s  %d/%d B/event  %d files  %s%n",
+                    scenario.name().toLowerCase(Locale.ROOT), result.deaths(), result.kills(),
+                    result.tickTimes().percentileNanos(0.5) / 1e6, result.tickTimes().percentileNanos(0.99) / 1e6,
+                    result.tickTimes().maxNanos() / 1e6, result.eventsPerSecond(), result.serverBytesPerEvent(),
+                    result.writerBytesPerEvent(), result.filesOnDisk(),
+                    result.failures().isEmpty() ? "ok" : "FAILED: " + String.join("; ", result.failures()));
+        }
+
+        writeReport(results, backend, index, seed, report);
+        System.out.println("Report written to " + report);
+        if (results.stream().anyMatch(result -> !result.failures().isEmpty())) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.keerdm.server_kill_logger;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// One full LogReplay over a synthetic corpus of daily kill files and death files, half of each.
+// Divide files by the score for files/s; compare threads=1 with more to see the fork-join speedup.
+// writeCorpus can also build a large corpus for LogReplayTool, e.g. 1M files.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class LogReplayBenchmark {
+
+    private static final int PLAYERS = 200;
+    private static final int ENTITY_TYPES = 20;
+    private static final String[] DAMAGE_TYPES = {"player", "mob", "fall", "lava", "explosion", "drown"};
+
+    @Param({"20000"})
+    public int files;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Path dir;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("replay-bench");
+        writeCorpus(dir, files);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public LogReplay.Aggregates replay() throws IOException {
+        return LogReplay.run(List.of(dir.resolve("player_kill_entity_logs")), List.of(dir.resolve("player_death_logs")),
+                List.of(), EnumSet.allOf(LogReplay.Dimension.class), pool);
+    }
+
+    // files / 2 kill files (one per player per day) and as many death files, written the way the mod writes them
+    public static void writeCorpus(Path dir, int files) throws IOException {
+        Path killDir = dir.resolve("player_kill_entity_logs");
+        Path deathDir = dir.resolve("player_death_logs");
+        LocalDate firstDay = LocalDate.of(2024, 1, 1);
+        int days = Math.max(1, files / 2 / PLAYERS);
+
+        for (int player = 0; player < PLAYERS; player++) {
+            String name = "Player" + player;
+            String uuid = new UUID(0, player).toString();
+            Files.createDirectories(killDir.resolve(name));
+            Files.createDirectories(deathDir.resolve(name));
+
+            for (int day = 0; day < days; day++) {
+                ZonedDateTime dayUtc = firstDay.plusDays(day).atStartOfDay(ZoneOffset.UTC);
+                Map<String, Integer> entityKills = new HashMap<>();
+                for (int type = 0; type < ENTITY_TYPES; type++) {
+                    entityKills.put("Mob_" + type, 1 + (player * 31 + day * 7 + type) % 50);
+                }
+                Map<String, Integer> playerKills = Map.of("Player" + (player + 1) % PLAYERS + " (uuid:"
+                        + new UUID(0, (player + 1) % PLAYERS) + ")", 1 + day % 3);
+                String fileName = dayUtc.format(LogTime.DAY_FILE);
+                KillLogFile.writeKillsToFile(killDir.resolve(name).resolve(fileName + ".txt").toString(), name, uuid,
+                        dayUtc, dayUtc, entityKills, Map.of("Zombie (name:Bob)", 1), playerKills);
+
+                String damageType = DAMAGE_TYPES[(player + day) % DAMAGE_TYPES.length];
+                Files.writeString(deathDir.resolve(name).resolve(fileName + "_12-00-00.txt"),
+                        "Death Information:\n----------------\nPlayer: " + name + "\nUUID: " + uuid
+                                + "\n\nDamage Details:\n----------------\nDamage Type: " + damageType + "\n");
+            }
+        }
+    }
+}
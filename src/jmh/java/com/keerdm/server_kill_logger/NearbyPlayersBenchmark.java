@@ -0,0 +1,81 @@
+package com.keerdm.server_kill_logger;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One tick of a mass-death event: every dying player asks for everyone within 50 blocks.
+// linearScan is the old per-death loop over level().players() with a sqrt per pair;
+// grid builds SpatialGrid once for the tick and shares it between all deaths.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NearbyPlayersBenchmark {
+
+    private static final double RADIUS = 50.0;
+
+    @Param({"200", "500"})
+    public int players;
+
+    @Param({"1", "50", "200"})
+    public int deathsPerTick;
+
+    // Side of the square the players are spread over: a crowded arena or a spread-out survival world
+    @Param({"256", "4096"})
+    public int area;
+
+    private double[] xs;
+    private double[] ys;
+    private double[] zs;
+    private Integer[] ids;
+    private SpatialGrid<Integer> grid;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        xs = new double[players];
+        ys = new double[players];
+        zs = new double[players];
+        ids = new Integer[players];
+        for (int i = 0; i < players; i++) {
+            xs[i] = random.nextDouble() * area - area / 2.0;
+            ys[i] = 60 + random.nextDouble() * 20;
+            zs[i] = random.nextDouble() * area - area / 2.0;
+            ids[i] = i;
+        }
+        grid = new SpatialGrid<>();
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (int death = 0; death < deathsPerTick; death++) {
+            int center = death % players;
+            List<Integer> nearby = new ArrayList<>();
+            for (int other = 0; other < players; other++) {
+                double dx = xs[other] - xs[center];
+                double dy = ys[other] - ys[center];
+                double dz = zs[other] - zs[center];
+                if (Math.sqrt(dx * dx + dy * dy + dz * dz) <= RADIUS) {
+                    nearby.add(ids[other]);
+                }
+            }
+            blackhole.consume(nearby);
+        }
+    }
+
+    @Benchmark
+    public void grid(Blackhole blackhole) {
+        grid.clear();
+        for (int i = 0; i < players; i++) {
+            grid.add(ids[i], xs[i], ys[i], zs[i]);
+        }
+        for (int death = 0; death < deathsPerTick; death++) {
+            int center = death % players;
+            blackhole.consume(grid.within(xs[center], ys[center], zs[center], RADIUS));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Checks that StatsEngine forgets what has left the week: a checkpoint written or restored after the window has
+// passed comes back empty, and expire() drops players with nothing left, so neither the heap nor the checkpoint
+// grows with every player ever seen. Exits with status 1 on a failure, which fails the build:
+//
+//   ./gradlew statsCheckpoint                                 (part of check)
+public class StatsCheckpointCheck {
+
+    private static final long START_MILLIS = 1_792_238_400_000L; // 2026-10-17T12:00:00Z
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long WEEK_MILLIS = 7 * 24 * HOUR_MILLIS;
+
+    private static final UUID STEVE = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+    private static final UUID ALEX = UUID.fromString("0f2c1c7e-3d5a-4c8e-9b1a-6e2f4d7c8a90");
+
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "build/tmp/stats-checkpoint");
+        Files.createDirectories(dir);
+        Path file = dir.resolve(StatsLoader.CHECKPOINT_FILE);
+
+        // Written once the week has passed: nothing is written, so nothing comes back
+        StatsEngine engine = recorded();
+        long later = START_MILLIS + WEEK_MILLIS + HOUR_MILLIS;
+        StatsLoader.writeCheckpoint(engine, file, -1, -1, later);
+        check("checkpoint written after the week: stale players dropped before writing", engine.playerCount() == 0);
+        StatsEngine restored = restore(file, later);
+        check("checkpoint written after the week restores an empty engine", isEmpty(restored, later));
+
+        // Written within the week but restored after it: the restore drops what has expired since
+        StatsLoader.writeCheckpoint(recorded(), file, -1, -1, START_MILLIS + HOUR_MILLIS);
+        restored = restore(file, later);
+        check("checkpoint restored after the week restores an empty engine", isEmpty(restored, later));
+
+        // Written and restored within the week: everything comes back
+        long soon = START_MILLIS + HOUR_MILLIS;
+        StatsLoader.writeCheckpoint(recorded(), file, -1, -1, soon);
+        restored = restore(file, soon);
+        check("checkpoint restored within the week keeps both players", restored.playerCount() == 2);
+        check("restored week score",
+                restored.score(STEVE, StatsEngine.Metric.KILLS, StatsEngine.Window.WEEK, soon) == 3);
+        check("restored hour score leaves out the minute an hour ago",
+                restored.score(ALEX, StatsEngine.Metric.DEATHS, StatsEngine.Window.HOUR, soon) == 0);
+        check("restored total", restored.total(StatsEngine.Metric.KILLS, StatsEngine.Window.DAY, soon) == 3);
+
+        // The periodic sweep: only the player with nothing left in the week goes
+        engine = recorded();
+        engine.record(ALEX, "Alex", StatsEngine.Metric.KILLS, START_MILLIS + 3 * 24 * HOUR_MILLIS, 1);
+        check("expire() drops one player", engine.expire(later) == 1);
+        check("expire() keeps the player still in the week", engine.playerCount() == 1
+                && engine.score(ALEX, StatsEngine.Metric.KILLS, StatsEngine.Window.WEEK, later) == 1);
+        check("expired player gone from the leaderboard",
+                engine.top(StatsEngine.Metric.KILLS, StatsEngine.Window.WEEK, 10, later).size() == 1);
+
+        Files.deleteIfExists(file);
+        if (failures.isEmpty()) {
+            System.out.println("OK   stats checkpoint");
+        } else {
+            failures.forEach(failure -> System.out.println("FAIL " + failure));
+            System.exit(1);
+        }
+    }
+
+    private static StatsEngine recorded() {
+        StatsEngine engine = new StatsEngine();
+        engine.record(STEVE, "Steve", StatsEngine.Metric.KILLS, START_MILLIS, 3);
+        engine.record(ALEX, "Alex", StatsEngine.Metric.DEATHS, START_MILLIS, 3);
+        return engine;
+    }
+
+    private static StatsEngine restore(Path file, long nowMillis) {
+        StatsEngine engine = new StatsEngine();
+        check("checkpoint readable", StatsLoader.restoreCheckpoint(engine, file, -1, -1, nowMillis));
+        return engine;
+    }
+
+    private static boolean isEmpty(StatsEngine engine, long nowMillis) {
+        for (StatsEngine.Metric metric : StatsEngine.Metric.values()) {
+            for (StatsEngine.Window window : StatsEngine.Window.values()) {
+                if (engine.total(metric, window, nowMillis) != 0) return false;
+                if (!engine.top(metric, window, 10, nowMillis).isEmpty()) return false;
+            }
+        }
+        return engine.playerCount() == 0;
+    }
+
+    private static void check(String what, boolean passed) {
+        if (!passed) failures.add(what);
+    }
+}
@@ -0,0 +1,372 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AsyncLogWriter {
+
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP_OLDEST,
+        COUNT_AND_DROP
+    }
+
+    public interface StorageFactory {
+        LogStorage open() throws IOException;
+    }
+
+    // Storage for records submitted while no writer is running, e.g. a death after the server has stopped.
+    // Opened on first use from fallbackFactory, and closed again when a writer starts so the two never
+    // share files.
+    private static final Object FALLBACK_LOCK = new Object();
+    private static volatile StorageFactory fallbackFactory = () -> new TextLogStorage(Paths.get("player_death_logs"));
+    private static LogStorage fallback;
+
+    private static volatile AsyncLogWriter current;
+
+    private final BlockingQueue<LogRecord> queue;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final LogStorage storage;
+    private final long flushIntervalNanos;
+    private final List<Flushable> flushHooks = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private final Thread thread;
+    // Records the writer took off the queue but gave up on when close() abandoned it
+    private final List<LogRecord> unwritten = new ArrayList<>();
+    private volatile boolean running = true;
+    private volatile boolean abandoned;
+    private volatile boolean flushRequested;
+    private long nextFlush;
+
+    public AsyncLogWriter(int capacity, int batchSize, OverflowPolicy overflowPolicy, long flushIntervalMillis,
+                          LogStorage storage) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.storage = storage;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.thread = new Thread(this::run, "Server Kill Logger Writer");
+        this.thread.setDaemon(true);
+    }
+
+    public static void start(AsyncLogWriter writer) {
+        stop();
+        closeFallback();
+        writer.thread.start();
+        current = writer;
+    }
+
+    public static void stop() {
+        AsyncLogWriter writer = current;
+        current = null;
+        if (writer != null) {
+            writer.close();
+            // Anything a submit() racing us queued after the writer's last drain. Only once the thread is gone:
+            // a writer still stuck in a write would otherwise put the same records in a second storage
+            if (!writer.thread.isAlive()) {
+                writer.drainToFallback();
+            }
+        }
+    }
+
+    // Sets how the storage used while no writer is running is opened; normally the configured backend
+    public static void setFallback(StorageFactory factory) {
+        closeFallback();
+        fallbackFactory = factory;
+    }
+
+    // Queues a record on the running writer, or writes it in place to the fallback storage if none is running
+    public static void submit(LogRecord record) {
+        AsyncLogWriter writer = current;
+        if (writer == null) {
+            writeFallback(record);
+            return;
+        }
+
+        writer.enqueue(record);
+        // The writer may have stopped between reading current and the enqueue; its queue is never read again
+        // then, so whoever notices the thread is gone writes what is left
+        if (!writer.thread.isAlive()) {
+            writer.drainToFallback();
+        }
+    }
+
+    // Waits until every record submitted before the call has been written and committed, e.g. so a scan of the
+    // logs sees them. False if that took longer than timeoutMillis, or the marker queued behind them was dropped
+    public static boolean awaitCommitted(long timeoutMillis) throws InterruptedException {
+        AsyncLogWriter writer = current;
+        if (writer == null) {
+            // Fallback writes commit in place under the lock; wait out the one in progress, if any
+            synchronized (FALLBACK_LOCK) {
+                return true;
+            }
+        }
+
+        Barrier barrier = new Barrier();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        // Not through enqueue(): a barrier waits for room whatever the overflow policy
+        if (!writer.queue.offer(barrier, timeoutMillis, TimeUnit.MILLISECONDS)) return false;
+        return barrier.committed.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    // Queued behind the records awaitCommitted() waits for; written in queue order, it commits them first
+    private static class Barrier implements LogRecord {
+        final CountDownLatch committed = new CountDownLatch(1);
+
+        @Override
+        public void writeTo(LogStorage storage) throws IOException {
+            storage.commit();
+            committed.countDown();
+        }
+    }
+
+    public static boolean storesKillEvents() {
+        AsyncLogWriter writer = current;
+        return writer != null && writer.storage.storesKillEvents();
+    }
+
+    public static int currentQueueDepth() {
+        AsyncLogWriter writer = current;
+        return writer != null ? writer.queueDepth() : 0;
+    }
+
+    public static long currentDroppedRecords() {
+        AsyncLogWriter writer = current;
+        return writer != null ? writer.droppedRecords() : 0;
+    }
+
+    // Asks the running writer to run its flush hooks on its next pass instead of waiting for the interval
+    public static void flushSoon() {
+        AsyncLogWriter writer = current;
+        if (writer != null) {
+            writer.flushRequested = true;
+        }
+    }
+
+    // Flush hooks run on the writer thread every flush interval, on request and once more on shutdown
+    public void addFlushHook(Flushable hook) {
+        flushHooks.add(hook);
+    }
+
+    public boolean enqueue(LogRecord record) {
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    // put() would wait forever on a full queue whose writer thread has died
+                    while (!queue.offer(record, 1, TimeUnit.SECONDS)) {
+                        if (!thread.isAlive()) {
+                            writeFallback(record);
+                            return true;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedRecords.incrementAndGet();
+                    return false;
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(record)) {
+                    if (queue.poll() != null) {
+                        droppedRecords.incrementAndGet();
+                    }
+                }
+            }
+            case COUNT_AND_DROP -> {
+                if (!queue.offer(record)) {
+                    droppedRecords.incrementAndGet();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void drainToFallback() {
+        List<LogRecord> leftover = new ArrayList<>();
+        synchronized (unwritten) {
+            leftover.addAll(unwritten);
+            unwritten.clear();
+        }
+        queue.drainTo(leftover);
+        for (LogRecord record : leftover) {
+            writeFallback(record);
+        }
+    }
+
+    private static void writeFallback(LogRecord record) {
+        // The fallback storage reuses its buffers, so callers take turns
+        synchronized (FALLBACK_LOCK) {
+            try {
+                if (fallback == null) {
+                    fallback = fallbackFactory.open();
+                }
+                record.writeTo(fallback);
+                fallback.commit();
+                fallback.flush();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void closeFallback() {
+        synchronized (FALLBACK_LOCK) {
+            if (fallback == null) return;
+            try {
+                fallback.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            fallback = null;
+        }
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    public long droppedRecords() {
+        return droppedRecords.get();
+    }
+
+    // Stops accepting work once the queue is empty and waits for the writer thread to finish. A writer still
+    // busy after 30 s, e.g. on a stalled disk, is told to stop after the record it is writing and interrupted;
+    // what it leaves is written to the fallback storage once it has exited, never while it still runs.
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+            if (thread.isAlive()) {
+                abandoned = true;
+                thread.interrupt();
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            System.err.println("[Server Kill Logger] Writer thread did not stop; " + queue.size()
+                    + " queued log records were not written");
+        }
+
+        long dropped = droppedRecords.get();
+        if (dropped > 0) {
+            System.err.println("[Server Kill Logger] Dropped " + dropped + " log records because the writer queue was full");
+        }
+    }
+
+    private void run() {
+        try {
+            writeUntilClosed();
+        } catch (Throwable t) {
+            // Anything left is written by whoever next finds the thread gone
+            t.printStackTrace();
+        } finally {
+            if (!abandoned) {
+                runFlushHooks();
+            }
+            try {
+                storage.close();
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+    }
+
+    private void writeUntilClosed() {
+        List<LogRecord> batch = new ArrayList<>(batchSize);
+        nextFlush = System.nanoTime() + flushIntervalNanos;
+
+        while ((running || !queue.isEmpty()) && !abandoned) {
+            LogRecord first;
+            try {
+                first = queue.poll(250, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                maybeFlush();
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+
+            for (int i = 0; i < batch.size(); i++) {
+                if (abandoned) {
+                    handOff(batch.subList(i, batch.size()));
+                    break;
+                }
+                LogRecord record = batch.get(i);
+                long start = System.nanoTime();
+                try {
+                    record.writeTo(storage);
+                    if (!(record instanceof Barrier)) {
+                        LoggerMetrics.recordWritten(start);
+                    }
+                } catch (Throwable t) {
+                    // Per record, so one bad record (or an Error it causes) doesn't stop the writer
+                    t.printStackTrace();
+                    if (abandoned) {
+                        // Likely the interrupt from close(); the fallback gets another try at it
+                        handOff(batch.subList(i, i + 1));
+                    }
+                }
+            }
+            batch.clear();
+
+            // One write (and at most one fsync) for the whole batch. Records already staged are committed even
+            // after close() interrupted the thread, so clear the flag first
+            if (abandoned) Thread.interrupted();
+            long commitStart = System.nanoTime();
+            try {
+                storage.commit();
+                LoggerMetrics.BATCH_COMMIT.recordSince(commitStart);
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+            maybeFlush();
+        }
+    }
+
+    private void handOff(List<LogRecord> records) {
+        synchronized (unwritten) {
+            unwritten.addAll(records);
+        }
+    }
+
+    private void maybeFlush() {
+        if (!flushRequested && System.nanoTime() - nextFlush < 0) return;
+
+        flushRequested = false;
+        nextFlush = System.nanoTime() + flushIntervalNanos;
+        runFlushHooks();
+    }
+
+    private void runFlushHooks() {
+        try {
+            storage.flush();
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+
+        for (Flushable hook : flushHooks) {
+            try {
+                hook.flush();
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.keerdm.server_kill_logger;
+
+import java.nio.charset.StandardCharsets;
+
+// Which optional parts of a death are captured, and how item NBT is recorded.
+// Player, time, damage type, source entity and location are always captured.
+public class CaptureProfile {
+
+    public enum Preset {
+        MINIMAL,
+        STANDARD,
+        FORENSIC,
+        CUSTOM
+    }
+
+    public enum Group {
+        DEATH_MESSAGE,
+        BIOME,
+        GAMEMODE_AND_OP,
+        NEARBY_PLAYERS,
+        STATS,
+        CONDITIONS,
+        EQUIPMENT,
+        INVENTORY;
+
+        public final int bit = 1 << ordinal();
+    }
+
+    public enum NbtMode {
+        // Leave NBT out entirely; the tag is never touched
+        NONE,
+        // Keep at most nbtMaxLength characters of the SNBT text
+        TRUNCATE,
+        // Record a SHA-256 of the binary tag instead of its text, so identical items can still be matched
+        HASH,
+        // The full SNBT text, which can be tens of KB for a shulker box
+        FULL
+    }
+
+    public static final int ALL_GROUPS = (1 << Group.values().length) - 1;
+
+    public static final CaptureProfile MINIMAL = new CaptureProfile(0, NbtMode.NONE, 0);
+    public static final CaptureProfile STANDARD = new CaptureProfile(ALL_GROUPS, NbtMode.TRUNCATE, 256);
+    public static final CaptureProfile FORENSIC = new CaptureProfile(ALL_GROUPS, NbtMode.FULL, 0);
+
+    public final int groups;
+    public final NbtMode nbtMode;
+    public final int nbtMaxLength;
+
+    public CaptureProfile(int groups, NbtMode nbtMode, int nbtMaxLength) {
+        this.groups = groups;
+        this.nbtMode = nbtMode;
+        this.nbtMaxLength = nbtMaxLength;
+    }
+
+    public boolean captures(Group group) {
+        return (groups & group.bit) != 0;
+    }
+
+    static String hex(byte[] bytes, int length) {
+        byte[] digits = new byte[length * 2];
+        for (int i = 0; i < length; i++) {
+            digits[i * 2] = (byte) Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            digits[i * 2 + 1] = (byte) Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(digits, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,123 @@
+package com.keerdm.server_kill_logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The last N hits each player took, for the "Recent Damage" section of their next death record.
+// Every player gets a fixed ring of primitive arrays the first time they are hurt; attackers and damage types
+// are interned to int labels, so recording a hit after that allocates nothing.
+public class CombatTracker {
+
+    public static final int NO_ATTACKER = -1;
+
+    private final Map<UUID, History> histories = new ConcurrentHashMap<>();
+    private final Map<String, Integer> labelIds = new ConcurrentHashMap<>();
+    private volatile String[] labels = new String[64];
+    private int nextLabel;
+    private volatile int capacity;
+
+    public CombatTracker(int capacity) {
+        this.capacity = capacity;
+    }
+
+    // Hits kept per player; 0 turns tracking off. Drops any history recorded with the old size
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+        histories.clear();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // Id for an attacker name or damage type; stable for the life of the tracker
+    public int label(String text) {
+        Integer id = labelIds.get(text);
+        if (id != null) return id;
+
+        synchronized (this) {
+            id = labelIds.get(text);
+            if (id != null) return id;
+
+            int newId = nextLabel++;
+            if (newId == labels.length) {
+                labels = Arrays.copyOf(labels, newId * 2);
+            }
+            labels[newId] = text;
+            labelIds.put(text, newId);
+            return newId;
+        }
+    }
+
+    public void record(UUID victimUUID, long timeMillis, int attackerLabel, int damageTypeLabel, float amount) {
+        int size = capacity;
+        if (size == 0) return;
+
+        History history = histories.get(victimUUID);
+        if (history == null) {
+            history = histories.computeIfAbsent(victimUUID, uuid -> new History(size));
+        }
+        history.record(timeMillis, attackerLabel, damageTypeLabel, amount);
+    }
+
+    // The player's hits, oldest first, and a fresh start for their next life
+    public List<PlayerDeathEventHandler.DeathInfo.DamageEntry> drain(UUID victimUUID) {
+        History history = histories.get(victimUUID);
+        if (history == null) return new ArrayList<>();
+        return history.drain(this);
+    }
+
+    // Forgets a player, e.g. when they log out
+    public void remove(UUID victimUUID) {
+        histories.remove(victimUUID);
+    }
+
+    private static class History {
+        private final long[] timeMillis;
+        private final int[] attackers;
+        private final int[] damageTypes;
+        private final float[] amounts;
+        private int next;
+        private int size;
+
+        History(int capacity) {
+            timeMillis = new long[capacity];
+            attackers = new int[capacity];
+            damageTypes = new int[capacity];
+            amounts = new float[capacity];
+        }
+
+        synchronized void record(long time, int attacker, int damageType, float amount) {
+            timeMillis[next] = time;
+            attackers[next] = attacker;
+            damageTypes[next] = damageType;
+            amounts[next] = amount;
+            next = next + 1 == timeMillis.length ? 0 : next + 1;
+            if (size < timeMillis.length) size++;
+        }
+
+        synchronized List<PlayerDeathEventHandler.DeathInfo.DamageEntry> drain(CombatTracker tracker) {
+            // Read under the lock so every label a recorded hit refers to is visible
+            String[] labels = tracker.labels;
+            List<PlayerDeathEventHandler.DeathInfo.DamageEntry> entries = new ArrayList<>(size);
+            int start = next - size;
+            if (start < 0) start += timeMillis.length;
+            for (int i = 0; i < size; i++) {
+                int slot = (start + i) % timeMillis.length;
+                PlayerDeathEventHandler.DeathInfo.DamageEntry entry = new PlayerDeathEventHandler.DeathInfo.DamageEntry();
+                entry.timeMillis = timeMillis[slot];
+                entry.attacker = attackers[slot] == NO_ATTACKER ? null : labels[attackers[slot]];
+                entry.damageType = labels[damageTypes[slot]];
+                entry.amount = amounts[slot];
+                entries.add(entry);
+            }
+            size = 0;
+            next = 0;
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.keerdm.server_kill_logger;
+
+import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.world.damagesource.DamageType;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.player.Player;
+import net.minecraftforge.event.entity.living.LivingHurtEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Mod.EventBusSubscriber(bus = Mod.EventBusSubscriber.Bus.FORGE)
+public class CombatTrackingEventHandler {
+
+    public static final CombatTracker COMBAT_HISTORY = new CombatTracker(16);
+
+    // Labels are looked up by the registry objects themselves, which are singletons, so a hit never builds a string
+    private static final Map<EntityType<?>, Integer> ENTITY_TYPE_LABELS = new ConcurrentHashMap<>();
+    private static final Map<DamageType, Integer> DAMAGE_TYPE_LABELS = new ConcurrentHashMap<>();
+
+    // Lowest priority so hits another mod cancels are never recorded
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onLivingHurt(LivingHurtEvent event) {
+        if (!(event.getEntity() instanceof Player victim) || COMBAT_HISTORY.capacity() == 0) return;
+
+        DamageSource source = event.getSource();
+        Entity attacker = source.getEntity();
+        int attackerLabel;
+        if (attacker == null) {
+            attackerLabel = CombatTracker.NO_ATTACKER;
+        } else if (attacker instanceof Player attackingPlayer) {
+            attackerLabel = COMBAT_HISTORY.label(attackingPlayer.getGameProfile().getName());
+        } else {
+            attackerLabel = ENTITY_TYPE_LABELS.computeIfAbsent(attacker.getType(),
+                    type -> COMBAT_HISTORY.label(PlayerKillEntityEventHandler.entityTypeName(type)));
+        }
+        int damageTypeLabel = DAMAGE_TYPE_LABELS.computeIfAbsent(source.type(),
+                type -> COMBAT_HISTORY.label(type.msgId()));
+
+        // The amount before armor and enchantments, as the attacker dealt it
+        COMBAT_HISTORY.record(victim.getUUID(), LogTime.now(), attackerLabel, damageTypeLabel, event.getAmount());
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        COMBAT_HISTORY.remove(event.getEntity().getUUID());
+    }
+}
@@ -0,0 +1,87 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.util.List;
+
+// Hands every record to several storages in order, e.g. the text logs plus the event index
+public class CompositeLogStorage implements LogStorage {
+
+    private final List<LogStorage> storages;
+
+    public CompositeLogStorage(List<LogStorage> storages) {
+        this.storages = List.copyOf(storages);
+    }
+
+    @Override
+    public boolean storesKillEvents() {
+        for (LogStorage storage : storages) {
+            if (storage.storesKillEvents()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void writeDeath(PlayerDeathEventHandler.DeathInfo deathInfo) throws IOException {
+        IOException failure = null;
+        for (LogStorage storage : storages) {
+            try {
+                storage.writeDeath(deathInfo);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    @Override
+    public void writeKill(KillEvent kill) throws IOException {
+        IOException failure = null;
+        for (LogStorage storage : storages) {
+            try {
+                storage.writeKill(kill);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    @Override
+    public void commit() throws IOException {
+        IOException failure = null;
+        for (LogStorage storage : storages) {
+            try {
+                storage.commit();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        IOException failure = null;
+        for (LogStorage storage : storages) {
+            try {
+                storage.flush();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (LogStorage storage : storages) {
+            try {
+                storage.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+}
@@ -0,0 +1,322 @@
+package com.keerdm.server_kill_logger;
+
+import net.minecraftforge.common.ForgeConfigSpec;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.event.config.ModConfigEvent;
+
+@Mod.EventBusSubscriber(modid = Server_Kill_Logger.MODID, bus = Mod.EventBusSubscriber.Bus.MOD)
+public class Config {
+    private static final ForgeConfigSpec.Builder BUILDER = new ForgeConfigSpec.Builder();
+
+    // Async writer
+    static {
+        BUILDER.push("writer");
+    }
+
+    private static final ForgeConfigSpec.IntValue QUEUE_CAPACITY = BUILDER
+            .comment("Maximum number of log records waiting to be written by the background writer thread")
+            .defineInRange("queueCapacity", 8192, 16, 1 << 20);
+
+    private static final ForgeConfigSpec.IntValue BATCH_SIZE = BUILDER
+            .comment("Maximum number of log records the writer thread drains from the queue at once")
+            .defineInRange("batchSize", 256, 1, 1 << 16);
+
+    private static final ForgeConfigSpec.EnumValue<AsyncLogWriter.OverflowPolicy> OVERFLOW_POLICY = BUILDER
+            .comment("What to do when the queue is full:",
+                    "BLOCK - the server thread waits until there is room",
+                    "DROP_OLDEST - the oldest queued record is discarded",
+                    "COUNT_AND_DROP - the new record is discarded and counted")
+            .defineEnum("overflowPolicy", AsyncLogWriter.OverflowPolicy.COUNT_AND_DROP);
+
+    private static final ForgeConfigSpec.EnumValue<LogStorage.SyncPolicy> SYNC_POLICY = BUILDER
+            .comment("When written logs are forced to disk (fsync):",
+                    "NONE - never; the OS writes them back on its own schedule",
+                    "BATCH - after every batch the writer thread writes",
+                    "INTERVAL - every kills.flushIntervalSeconds and on shutdown")
+            .defineEnum("syncPolicy", LogStorage.SyncPolicy.INTERVAL);
+
+    static {
+        BUILDER.pop();
+    }
+
+    // Kill tallies
+    static {
+        BUILDER.push("kills");
+    }
+
+    private static final ForgeConfigSpec.IntValue KILL_FLUSH_INTERVAL_SECONDS = BUILDER
+            .comment("How often changed kill tallies are written to player_kill_entity_logs, in seconds.",
+                    "Tallies are also written on logout, at UTC midnight and when the server stops.")
+            .defineInRange("flushIntervalSeconds", 30, 1, 3600);
+
+    private static final ForgeConfigSpec.BooleanValue WRITE_DAILY_TALLIES = BUILDER
+            .comment("Write the human-readable daily kill files in player_kill_entity_logs")
+            .define("writeDailyTallies", true);
+
+    private static final ForgeConfigSpec.IntValue EVENT_RATE_PER_MINUTE = BUILDER
+            .comment("How many kills of one unnamed entity type per player and minute are queued one by one for the",
+                    "journal, JSONL and the index. Faster kills, e.g. from a mob farm, are counted and queued as one",
+                    "event carrying the count. Tallies always count every kill; player and named kills are never",
+                    "rate-limited. 0 queues every kill on its own.")
+            .defineInRange("eventRatePerMinute", 120, 0, 1 << 20);
+
+    private static final ForgeConfigSpec.IntValue EVENT_BURST = BUILDER
+            .comment("How many kills of one entity type a player can make in a burst before eventRatePerMinute applies")
+            .defineInRange("eventBurst", 120, 1, 1 << 20);
+
+    private static final ForgeConfigSpec.IntValue EVENT_SAMPLE_EVERY = BUILDER
+            .comment("While rate-limited, also queue the count every this many kills (0 to only queue it once a window)")
+            .defineInRange("eventSampleEvery", 0, 0, 1 << 20);
+
+    private static final ForgeConfigSpec.IntValue EVENT_WINDOW_SECONDS = BUILDER
+            .comment("While rate-limited, queue the count at least this often, in seconds")
+            .defineInRange("eventWindowSeconds", 60, 1, 3600);
+
+    static {
+        BUILDER.pop();
+    }
+
+    // Death capture
+    static {
+        BUILDER.push("capture");
+    }
+
+    private static final ForgeConfigSpec.DoubleValue NEARBY_PLAYER_RADIUS = BUILDER
+            .comment("Players within this many blocks of a death are listed under Nearby Players")
+            .defineInRange("nearbyPlayerRadius", 50.0, 0.0, 1024.0);
+
+    private static final ForgeConfigSpec.EnumValue<CaptureProfile.Preset> CAPTURE_PROFILE = BUILDER
+            .comment("How much of each death is captured on the server thread:",
+                    "MINIMAL - player, time, damage type, source and location only",
+                    "STANDARD - everything, with item NBT cut to 256 characters",
+                    "FORENSIC - everything, with full item NBT",
+                    "CUSTOM - the capture* toggles, nbtMode and nbtMaxLength below")
+            .defineEnum("profile", CaptureProfile.Preset.FORENSIC);
+
+    private static final ForgeConfigSpec.BooleanValue CAPTURE_DEATH_MESSAGE = BUILDER
+            .comment("CUSTOM profile: record the localized death message")
+            .define("captureDeathMessage", true);
+
+    private static final ForgeConfigSpec.BooleanValue CAPTURE_BIOME = BUILDER
+            .comment("CUSTOM profile: record the biome")
+            .define("captureBiome", true);
+
+    private static final ForgeConfigSpec.BooleanValue CAPTURE_GAMEMODE_AND_OP = BUILDER
+            .comment("CUSTOM profile: record the gamemode and OP status")
+            .define("captureGamemodeAndOp", true);
+
+    private static final ForgeConfigSpec.BooleanValue CAPTURE_NEARBY_PLAYERS = BUILDER
+            .comment("CUSTOM profile: record nearby players")
+            .define("captureNearbyPlayers", true);
+
+    private static final ForgeConfigSpec.BooleanValue CAPTURE_STATS = BUILDER
+            .comment("CUSTOM profile: record XP, health, food and saturation")
+            .define("captureStats", true);
+
+    private static final ForgeConfigSpec.BooleanValue CAPTURE_CONDITIONS = BUILDER
+            .comment("CUSTOM profile: record difficulty, time of day, weather and moon phase")
+            .define("captureConditions", true);
+
+    private static final ForgeConfigSpec.BooleanValue CAPTURE_EQUIPMENT = BUILDER
+            .comment("CUSTOM profile: record armor and held items")
+            .define("captureEquipment", true);
+
+    private static final ForgeConfigSpec.BooleanValue CAPTURE_INVENTORY = BUILDER
+            .comment("CUSTOM profile: record inventory contents")
+            .define("captureInventory", true);
+
+    private static final ForgeConfigSpec.EnumValue<CaptureProfile.NbtMode> NBT_MODE = BUILDER
+            .comment("CUSTOM profile: how item NBT is recorded:",
+                    "NONE - left out",
+                    "TRUNCATE - cut to nbtMaxLength characters",
+                    "HASH - a SHA-256 of the tag, so identical items can still be matched",
+                    "FULL - the whole tag")
+            .defineEnum("nbtMode", CaptureProfile.NbtMode.FULL);
+
+    private static final ForgeConfigSpec.IntValue NBT_MAX_LENGTH = BUILDER
+            .comment("CUSTOM profile: characters of NBT kept when nbtMode is TRUNCATE")
+            .defineInRange("nbtMaxLength", 256, 0, 1 << 20);
+
+    private static final ForgeConfigSpec.IntValue COMBAT_HISTORY_SIZE = BUILDER
+            .comment("How many of the hits a player took before dying are listed under Recent Damage (0 to disable)")
+            .defineInRange("combatHistorySize", 16, 0, 256);
+
+    static {
+        BUILDER.pop();
+    }
+
+    // Metrics
+    static {
+        BUILDER.push("metrics");
+    }
+
+    private static final ForgeConfigSpec.ConfigValue<String> PROMETHEUS_FILE = BUILDER
+            .comment("Write metrics in Prometheus text format to this file every flush interval (empty to disable),",
+                    "e.g. for node_exporter's textfile collector")
+            .define("prometheusFile", "");
+
+    private static final ForgeConfigSpec.IntValue PROMETHEUS_PORT = BUILDER
+            .comment("Serve metrics in Prometheus text format on http://127.0.0.1:<port>/metrics (0 to disable)")
+            .defineInRange("prometheusPort", 0, 0, 65535);
+
+    static {
+        BUILDER.pop();
+    }
+
+    // Storage
+    static {
+        BUILDER.push("storage");
+    }
+
+    private static final ForgeConfigSpec.EnumValue<LogStorage.Backend> STORAGE_BACKEND = BUILDER
+            .comment("Where death and kill records are stored:",
+                    "TEXT - one readable file per death in player_death_logs (kill events are only kept as daily tallies)",
+                    "JOURNAL - typed binary records appended to segments in player_log_journal; use /killlog export for text",
+                    "JSONL - one JSON object per death and per kill, appended to a daily file in player_log_jsonl")
+            .defineEnum("backend", LogStorage.Backend.TEXT);
+
+    private static final ForgeConfigSpec.EnumValue<LogStorage.Layout> LAYOUT = BUILDER
+            .comment("How player directories in player_death_logs and player_kill_entity_logs are named:",
+                    "NAME - the player's name, as before; a rename starts a new directory",
+                    "UUID - the player's UUID, with names kept in player_names.dat; /killlog migrate-layout moves old directories")
+            .defineEnum("layout", LogStorage.Layout.NAME);
+
+    private static final ForgeConfigSpec.BooleanValue ITEM_STORE_ENABLED = BUILDER
+            .comment("Write each distinct item and inventory once to player_item_store and have death records",
+                    "refer to the inventory by hash; saves a lot of space when players die with the same kit.",
+                    "With retention on, objects no remaining death record refers to are removed")
+            .define("itemStore", false);
+
+    private static final ForgeConfigSpec.IntValue ITEM_STORE_CACHE_SIZE = BUILDER
+            .comment("How many recently stored item and inventory hashes are remembered without checking the disk")
+            .defineInRange("itemStoreCacheSize", 4096, 16, 1 << 20);
+
+    private static final ForgeConfigSpec.IntValue JOURNAL_SEGMENT_MEGABYTES = BUILDER
+            .comment("Start a new journal segment once the current one reaches this size, in MiB")
+            .defineInRange("journalSegmentMegabytes", 64, 1, 4096);
+
+    private static final ForgeConfigSpec.IntValue JOURNAL_SEGMENT_MINUTES = BUILDER
+            .comment("Start a new journal segment once the current one is this old, in minutes")
+            .defineInRange("journalSegmentMinutes", 1440, 1, 525600);
+
+    private static final ForgeConfigSpec.BooleanValue INDEX_ENABLED = BUILDER
+            .comment("Keep a memory-mapped index of deaths and hourly kill counts in player_log_index for /killlog query")
+            .define("indexEnabled", true);
+
+    static {
+        BUILDER.pop();
+    }
+
+    // Retention
+    static {
+        BUILDER.push("retention");
+    }
+
+    private static final ForgeConfigSpec.BooleanValue RETENTION_ENABLED = BUILDER
+            .comment("Pack and prune player_death_logs and player_kill_entity_logs in the background")
+            .define("enabled", false);
+
+    private static final ForgeConfigSpec.IntValue ARCHIVE_AFTER_DAYS = BUILDER
+            .comment("Pack a player's files into one zip archive per month once they are this many days old")
+            .defineInRange("archiveAfterDays", 7, RetentionManager.MIN_ARCHIVE_AFTER_DAYS, 3650);
+
+    private static final ForgeConfigSpec.IntValue MAX_AGE_DAYS = BUILDER
+            .comment("Delete files and archives once everything in them is this many days old (0 to keep forever)")
+            .defineInRange("maxAgeDays", 0, 0, 36500);
+
+    private static final ForgeConfigSpec.IntValue MAX_TOTAL_MEGABYTES = BUILDER
+            .comment("Delete the oldest files and archives while both directories together are larger than this, in MiB (0 for no limit)")
+            .defineInRange("maxTotalMegabytes", 0, 0, 1 << 20);
+
+    private static final ForgeConfigSpec.IntValue IO_KILOBYTES_PER_SECOND = BUILDER
+            .comment("How fast retention may read and write, in KiB per second (0 for no limit)")
+            .defineInRange("ioKilobytesPerSecond", 4096, 0, 1 << 20);
+
+    private static final ForgeConfigSpec.IntValue RETENTION_INTERVAL_MINUTES = BUILDER
+            .comment("How often retention runs, in minutes")
+            .defineInRange("intervalMinutes", 60, 1, 10080);
+
+    static {
+        BUILDER.pop();
+    }
+
+    static final ForgeConfigSpec SPEC = BUILDER.build();
+
+    public static int queueCapacity = 8192;
+    public static int batchSize = 256;
+    public static AsyncLogWriter.OverflowPolicy overflowPolicy = AsyncLogWriter.OverflowPolicy.COUNT_AND_DROP;
+    public static LogStorage.SyncPolicy syncPolicy = LogStorage.SyncPolicy.INTERVAL;
+    public static int killFlushIntervalSeconds = 30;
+    public static boolean writeDailyTallies = true;
+    public static KillSampler.Settings killSampling = new KillSampler.Settings(120, 120, 0, 60_000L);
+    public static LogStorage.Backend storageBackend = LogStorage.Backend.TEXT;
+    public static LogStorage.Layout layout = LogStorage.Layout.NAME;
+    public static boolean itemStoreEnabled = false;
+    public static int itemStoreCacheSize = 4096;
+    public static int journalSegmentMegabytes = 64;
+    public static int journalSegmentMinutes = 1440;
+    public static boolean indexEnabled = true;
+    public static double nearbyPlayerRadius = 50.0;
+    public static CaptureProfile captureProfile = CaptureProfile.FORENSIC;
+    public static int combatHistorySize = 16;
+    public static String prometheusFile = "";
+    public static int prometheusPort = 0;
+    public static boolean retentionEnabled = false;
+    public static RetentionManager.Settings retention = new RetentionManager.Settings(7, 0, 0, 4096 * 1024L,
+            60 * 60_000L);
+
+    @SubscribeEvent
+    static void onLoad(final ModConfigEvent event) {
+        if (event.getConfig().getSpec() != SPEC) return;
+
+        queueCapacity = QUEUE_CAPACITY.get();
+        batchSize = BATCH_SIZE.get();
+        overflowPolicy = OVERFLOW_POLICY.get();
+        syncPolicy = SYNC_POLICY.get();
+        killFlushIntervalSeconds = KILL_FLUSH_INTERVAL_SECONDS.get();
+        writeDailyTallies = WRITE_DAILY_TALLIES.get();
+        killSampling = new KillSampler.Settings(EVENT_RATE_PER_MINUTE.get(), EVENT_BURST.get(),
+                EVENT_SAMPLE_EVERY.get(), EVENT_WINDOW_SECONDS.get() * 1000L);
+        storageBackend = STORAGE_BACKEND.get();
+        layout = LAYOUT.get();
+        itemStoreEnabled = ITEM_STORE_ENABLED.get();
+        itemStoreCacheSize = ITEM_STORE_CACHE_SIZE.get();
+        journalSegmentMegabytes = JOURNAL_SEGMENT_MEGABYTES.get();
+        journalSegmentMinutes = JOURNAL_SEGMENT_MINUTES.get();
+        indexEnabled = INDEX_ENABLED.get();
+        nearbyPlayerRadius = NEARBY_PLAYER_RADIUS.get();
+        captureProfile = resolveCaptureProfile();
+        combatHistorySize = COMBAT_HISTORY_SIZE.get();
+        prometheusFile = PROMETHEUS_FILE.get();
+        prometheusPort = PROMETHEUS_PORT.get();
+        retentionEnabled = RETENTION_ENABLED.get();
+        retention = new RetentionManager.Settings(ARCHIVE_AFTER_DAYS.get(), MAX_AGE_DAYS.get(),
+                MAX_TOTAL_MEGABYTES.get() * 1024L * 1024L, IO_KILOBYTES_PER_SECOND.get() * 1024L,
+                RETENTION_INTERVAL_MINUTES.get() * 60_000L);
+    }
+
+    private static CaptureProfile resolveCaptureProfile() {
+        switch (CAPTURE_PROFILE.get()) {
+            case MINIMAL:
+                return CaptureProfile.MINIMAL;
+            case STANDARD:
+                return CaptureProfile.STANDARD;
+            case CUSTOM:
+                break;
+            default:
+                return CaptureProfile.FORENSIC;
+        }
+
+        int groups = 0;
+        if (CAPTURE_DEATH_MESSAGE.get()) groups |= CaptureProfile.Group.DEATH_MESSAGE.bit;
+        if (CAPTURE_BIOME.get()) groups |= CaptureProfile.Group.BIOME.bit;
+        if (CAPTURE_GAMEMODE_AND_OP.get()) groups |= CaptureProfile.Group.GAMEMODE_AND_OP.bit;
+        if (CAPTURE_NEARBY_PLAYERS.get()) groups |= CaptureProfile.Group.NEARBY_PLAYERS.bit;
+        if (CAPTURE_STATS.get()) groups |= CaptureProfile.Group.STATS.bit;
+        if (CAPTURE_CONDITIONS.get()) groups |= CaptureProfile.Group.CONDITIONS.bit;
+        if (CAPTURE_EQUIPMENT.get()) groups |= CaptureProfile.Group.EQUIPMENT.bit;
+        if (CAPTURE_INVENTORY.get()) groups |= CaptureProfile.Group.INVENTORY.bit;
+        return new CaptureProfile(groups, NBT_MODE.get(), NBT_MAX_LENGTH.get());
+    }
+}
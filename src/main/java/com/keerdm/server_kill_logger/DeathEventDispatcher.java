@@ -0,0 +1,47 @@
+package com.keerdm.server_kill_logger;
+
+import net.minecraftforge.event.entity.living.LivingDeathEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// The mod's only LivingDeathEvent listener. Each death is resolved into one DeathSnapshot and handed to every
+// registered sink in order: the death log, the kill tallies, the leaderboards, then anything other mods added
+// with register().
+@Mod.EventBusSubscriber(bus = Mod.EventBusSubscriber.Bus.FORGE)
+public class DeathEventDispatcher {
+
+    // What the built-in sinks record once they have read a death off the game objects
+    public static final DeathRecorder RECORDER = new DeathRecorder(PlayerKillEntityEventHandler.KILL_TALLIES,
+            PlayerKillEntityEventHandler.KILL_SAMPLER, StatsEventHandler.STATS,
+            CombatTrackingEventHandler.COMBAT_HISTORY);
+
+    private static final List<DeathSink> SINKS = new CopyOnWriteArrayList<>(List.of(
+            PlayerDeathEventHandler::onPlayerDeath,
+            PlayerKillEntityEventHandler::onEntityDeath,
+            StatsEventHandler::onDeath));
+
+    public static void register(DeathSink sink) {
+        SINKS.add(sink);
+    }
+
+    public static void unregister(DeathSink sink) {
+        SINKS.remove(sink);
+    }
+
+    @SubscribeEvent
+    public static void onLivingDeath(LivingDeathEvent event) {
+        DeathSnapshot death = new DeathSnapshot(event.getEntity(), event.getSource(), LogTime.now(), System.nanoTime());
+
+        for (DeathSink sink : SINKS) {
+            try {
+                sink.onDeath(death);
+            } catch (RuntimeException e) {
+                // One broken sink must not cost the others their record, or the player their death
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.util.Formatter;
+
+public class DeathLogRecord implements LogRecord {
+    private final PlayerDeathEventHandler.DeathInfo deathInfo;
+
+    public DeathLogRecord(PlayerDeathEventHandler.DeathInfo deathInfo) {
+        this.deathInfo = deathInfo;
+    }
+
+    @Override
+    public void writeTo(LogStorage storage) throws IOException {
+        // The handler only stores the epoch millis; the readable times are filled in here, off the server thread
+        if (deathInfo.logDateUtc == null) {
+            deathInfo.logDateUtc = LogTime.deathTimeUtc(deathInfo.timeMillis);
+            deathInfo.logDateLocal = LogTime.deathTimeLocal(deathInfo.timeMillis);
+        }
+
+        // Repeat kits become a reference to the copy already in the item store
+        ItemStore itemStore = ItemStore.current();
+        if (itemStore != null && deathInfo.inventorySnapshot == null && deathInfo.captured(CaptureProfile.Group.INVENTORY)
+                && !deathInfo.inventoryContents.isEmpty()) {
+            deathInfo.inventorySnapshot = itemStore.putInventory(deathInfo.inventoryContents);
+        }
+        storage.writeDeath(deathInfo);
+    }
+
+    // Appends the text form of a death to out. The formatter must write to out; sharing one avoids a Formatter per line.
+    public static void render(PlayerDeathEventHandler.DeathInfo deathInfo, StringBuilder out, Formatter formatter) {
+        // Write all the same information to the log file
+        out.append("Death Information:\n");
+        out.append("----------------\n");
+        out.append("Player: ").append(deathInfo.playerName).append('\n');
+        out.append("UUID: ").append(deathInfo.playerUUID).append('\n');
+        out.append("Time (UTC+0): ").append(deathInfo.logDateUtc).append('\n');
+        out.append("Time (Server Local): ").append(deathInfo.logDateLocal).append('\n');
+
+        // Damage Details
+        out.append("\nDamage Details:\n");
+        out.append("----------------\n");
+        if (deathInfo.captured(CaptureProfile.Group.DEATH_MESSAGE)) {
+            out.append("Cause of Death: ").append(deathInfo.causeOfDeath).append('\n');
+        }
+        out.append("Damage Type: ").append(deathInfo.damageType).append('\n');
+        out.append("Source Entity: ").append(deathInfo.sourceEntity).append('\n');
+
+        // Location and Biome
+        out.append("Location: ").append(deathInfo.location()).append('\n');
+        if (deathInfo.captured(CaptureProfile.Group.BIOME)) {
+            out.append("Biome: ").append(deathInfo.biome).append('\n');
+        }
+
+        // Only deaths that followed tracked hits get this section
+        if (deathInfo.recentDamage != null && !deathInfo.recentDamage.isEmpty()) {
+            renderRecentDamage(deathInfo, out, formatter);
+        }
+
+        // Sections the capture profile left out are omitted rather than written empty
+        if (deathInfo.captured(CaptureProfile.Group.NEARBY_PLAYERS)) {
+            renderNearbyPlayers(deathInfo, out, formatter);
+        }
+        if (deathInfo.captured(CaptureProfile.Group.STATS)) {
+            renderStats(deathInfo, out, formatter);
+        }
+        if (deathInfo.captured(CaptureProfile.Group.CONDITIONS)) {
+            renderConditions(deathInfo, out, formatter);
+        }
+        if (deathInfo.captured(CaptureProfile.Group.EQUIPMENT)) {
+            renderEquipment(deathInfo, out, formatter);
+        }
+        if (deathInfo.captured(CaptureProfile.Group.INVENTORY)) {
+            renderInventory(deathInfo, out, formatter);
+        }
+    }
+
+    private static void renderRecentDamage(PlayerDeathEventHandler.DeathInfo deathInfo, StringBuilder out, Formatter formatter) {
+        // Recent Damage, timed relative to the death
+        out.append("\nRecent Damage:\n");
+        out.append("----------------\n");
+        for (PlayerDeathEventHandler.DeathInfo.DamageEntry entry : deathInfo.recentDamage) {
+            formatter.format("-%.2fs %.1f %s", (deathInfo.timeMillis - entry.timeMillis) / 1000.0, entry.amount,
+                    entry.damageType);
+            if (entry.attacker != null) {
+                out.append(" from ").append(entry.attacker);
+            }
+            out.append('\n');
+        }
+    }
+
+    private static void renderNearbyPlayers(PlayerDeathEventHandler.DeathInfo deathInfo, StringBuilder out, Formatter formatter) {
+        // Nearby Players
+        out.append("\nNearby Players:\n");
+        out.append("----------------\n");
+        if (deathInfo.nearbyPlayers.isEmpty()) {
+            out.append("No players nearby\n");
+        } else {
+            for (PlayerDeathEventHandler.DeathInfo.NearbyPlayerInfo nearbyPlayer : deathInfo.nearbyPlayers) {
+                formatter.format("* %s (%.1f blocks away)\n",
+                        nearbyPlayer.name, nearbyPlayer.distance);
+                formatter.format("  Location: %s in %s\n",
+                        nearbyPlayer.location(), nearbyPlayer.dimension);
+            }
+        }
+    }
+
+    private static void renderStats(PlayerDeathEventHandler.DeathInfo deathInfo, StringBuilder out, Formatter formatter) {
+        // Player Stats
+        out.append("\nPlayer Stats at Death:\n");
+        out.append("----------------\n");
+        formatter.format("XP Level: %d\n", deathInfo.xpLevel);
+        formatter.format("XP Points: %.2f\n", deathInfo.xpPoints);
+        formatter.format("Health: %.1f/%.1f\n", deathInfo.health, deathInfo.maxHealth);
+        formatter.format("Food Level: %d/20\n", deathInfo.foodLevel);
+        formatter.format("Saturation: %.1f\n", deathInfo.saturation);
+    }
+
+    private static void renderConditions(PlayerDeathEventHandler.DeathInfo deathInfo, StringBuilder out, Formatter formatter) {
+        // Game Conditions
+        out.append("\nGame Conditions:\n");
+        out.append("----------------\n");
+        out.append("Difficulty: ").append(deathInfo.difficulty).append('\n');
+        formatter.format("Day Time: %d (Minecraft ticks)\n", deathInfo.dayTime);
+        out.append("Weather: ").append(deathInfo.weather).append('\n');
+        formatter.format("Moon Phase: %d/8\n", deathInfo.moonPhase);
+    }
+
+    private static void renderEquipment(PlayerDeathEventHandler.DeathInfo deathInfo, StringBuilder out, Formatter formatter) {
+        // Equipped Items
+        out.append("\nEquipped Items:\n");
+        out.append("----------------\n");
+        out.append("Helmet: ").append(deathInfo.equippedItems.helmet).append('\n');
+        out.append("Chestplate: ").append(deathInfo.equippedItems.chestplate).append('\n');
+        out.append("Leggings: ").append(deathInfo.equippedItems.leggings).append('\n');
+        out.append("Boots: ").append(deathInfo.equippedItems.boots).append('\n');
+        out.append("Main Hand: ").append(deathInfo.equippedItems.mainHand).append('\n');
+        out.append("Off Hand: ").append(deathInfo.equippedItems.offHand).append('\n');
+    }
+
+    private static void renderInventory(PlayerDeathEventHandler.DeathInfo deathInfo, StringBuilder out, Formatter formatter) {
+        // Inventory Contents
+        out.append("\nInventory Contents:\n");
+        out.append("----------------\n");
+        if (deathInfo.inventorySnapshot != null) {
+            out.append("Snapshot: ").append(deathInfo.inventorySnapshot).append(" (in ").append(ItemStore.DEFAULT_DIR)
+                    .append(")\n");
+        } else if (deathInfo.inventoryContents.isEmpty()) {
+            out.append("Inventory is empty\n");
+        } else {
+            for (PlayerDeathEventHandler.DeathInfo.InventoryItem item : deathInfo.inventoryContents) {
+                formatter.format("%dx %s\n", item.count, item.name);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.keerdm.server_kill_logger;
+
+import java.util.UUID;
+
+// What the death sinks do with a death once it has been read off the game objects: queue the death log,
+// count the kill into the tallies and KillSampler, and update the leaderboards. Nothing here touches
+// Minecraft classes, so the handlers run DeathEventDispatcher.RECORDER and LoadTest one of its own per
+// scenario through the same code.
+public class DeathRecorder {
+
+    private final KillTallyStore tallies;
+    private final KillSampler sampler;
+    private final StatsEngine stats;
+    private final CombatTracker combat;
+    private final KillSampler.Emitter submitKill;
+    private volatile boolean writeDailyTallies = true;
+
+    public DeathRecorder(KillTallyStore tallies, KillSampler sampler, StatsEngine stats, CombatTracker combat) {
+        this.tallies = tallies;
+        this.sampler = sampler;
+        this.stats = stats;
+        this.combat = combat;
+        this.submitKill = (killerUUID, killerName, keyId, timeMillis, count) ->
+                AsyncLogWriter.submit(new KillEvent(timeMillis, killerUUID, killerName,
+                        KillTally.Kind.ENTITY, tallies.keys().name(keyId), count));
+    }
+
+    public KillTallyStore tallies() {
+        return tallies;
+    }
+
+    public void setWriteDailyTallies(boolean writeDailyTallies) {
+        this.writeDailyTallies = writeDailyTallies;
+    }
+
+    // Kill key of a player victim, e.g. "Steve (uuid:...)"
+    public static String playerKey(String name, String uuid) {
+        return name + " (uuid:" + uuid + ")";
+    }
+
+    // Kill key of an entity with a custom name, e.g. "Zombie (name:Bob)"
+    public static String namedEntityKey(String typeName, String entityName) {
+        return typeName + " (name:" + entityName + ")";
+    }
+
+    // Adds the player's recent hits to a captured death and hands it to the writer thread
+    public void playerDeath(UUID victimUUID, PlayerDeathEventHandler.DeathInfo deathInfo) {
+        deathInfo.recentDamage = combat.drain(victimUUID);
+        AsyncLogWriter.submit(new DeathLogRecord(deathInfo));
+    }
+
+    // An unnamed entity kill; keyId comes from tallies().keys(). The kills farms produce, so the only kind
+    // that is sampled
+    public void entityKill(UUID killerUUID, String killerName, int keyId, long nowMillis) {
+        if (writeDailyTallies) {
+            tallies.record(killerUUID, killerName, nowMillis, keyId);
+        }
+        // Storages that keep every event (the journal) get their own record, or a share of a farm's delta
+        if (AsyncLogWriter.storesKillEvents()) {
+            sampler.onKill(killerUUID, killerName, keyId, nowMillis, submitKill);
+        }
+    }
+
+    // A named entity or player kill
+    public void keyedKill(UUID killerUUID, String killerName, KillTally.Kind kind, String key, long nowMillis) {
+        // Count in memory; the writer thread flushes the daily file
+        if (writeDailyTallies) {
+            tallies.record(killerUUID, killerName, nowMillis, kind, key, 1);
+        }
+        // Player and named kills always go out one by one to storages that keep every event
+        if (AsyncLogWriter.storesKillEvents()) {
+            AsyncLogWriter.submit(new KillEvent(nowMillis, killerUUID, killerName, kind, key));
+        }
+    }
+
+    // The leaderboards, for a death with a player on at least one side; the other may be null. Unlike kill
+    // events these are never sampled
+    public void leaderboards(UUID victimUUID, String victimName, UUID killerUUID, String killerName,
+                             long timeMillis) {
+        if (victimUUID != null) {
+            stats.record(victimUUID, victimName, StatsEngine.Metric.DEATHS, timeMillis, 1);
+        }
+        if (killerUUID != null) {
+            stats.record(killerUUID, killerName, StatsEngine.Metric.KILLS, timeMillis, 1);
+            if (victimUUID != null) {
+                stats.record(killerUUID, killerName, StatsEngine.Metric.PLAYER_KILLS, timeMillis, 1);
+            }
+        }
+    }
+
+    // Queues the deltas of farms that have gone quiet; once a second
+    public void drainSampledKills(long nowMillis) {
+        sampler.drain(nowMillis, submitKill);
+    }
+
+    // Queues every delta KillSampler still holds; before the writer stops
+    public void flushSampledKills() {
+        sampler.drainAll(submitKill);
+    }
+
+    // Writes out and forgets a player's tally and sampled kills, e.g. when they log out
+    public void release(UUID playerUUID) {
+        tallies.release(playerUUID);
+        sampler.release(playerUUID, submitKill);
+    }
+}
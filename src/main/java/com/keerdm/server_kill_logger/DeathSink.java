@@ -0,0 +1,9 @@
+package com.keerdm.server_kill_logger;
+
+// Receives every LivingDeathEvent through DeathEventDispatcher, once per death.
+// Runs on the thread that fired the event (normally the server thread), so it should copy what it needs and hand
+// any I/O to another thread, the way the built-in sinks use AsyncLogWriter.
+@FunctionalInterface
+public interface DeathSink {
+    void onDeath(DeathSnapshot death);
+}
@@ -0,0 +1,74 @@
+package com.keerdm.server_kill_logger;
+
+import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.player.Player;
+
+// What every DeathSink is handed for one LivingDeathEvent: the victim, the killer and one clock reading,
+// resolved once by DeathEventDispatcher. Only valid during the sink call, on the thread that fired the event.
+public class DeathSnapshot {
+
+    private final LivingEntity victim;
+    private final DamageSource source;
+    private final long timeMillis;
+    private final long captureStartNanos;
+    private String victimName;
+    private String killerName;
+
+    DeathSnapshot(LivingEntity victim, DamageSource source, long timeMillis, long captureStartNanos) {
+        this.victim = victim;
+        this.source = source;
+        this.timeMillis = timeMillis;
+        this.captureStartNanos = captureStartNanos;
+    }
+
+    public LivingEntity victim() {
+        return victim;
+    }
+
+    // The victim if it is a player, otherwise null
+    public Player victimPlayer() {
+        return victim instanceof Player player ? player : null;
+    }
+
+    public DamageSource source() {
+        return source;
+    }
+
+    // The entity credited with the kill, if any
+    public Entity killerEntity() {
+        return source.getEntity();
+    }
+
+    // The killer if it is a player, otherwise null
+    public Player killer() {
+        return source.getEntity() instanceof Player player ? player : null;
+    }
+
+    // Game profile name of a player victim
+    public String victimName() {
+        if (victimName == null && victim instanceof Player player) {
+            victimName = player.getGameProfile().getName();
+        }
+        return victimName;
+    }
+
+    // Game profile name of a player killer
+    public String killerName() {
+        if (killerName == null && source.getEntity() instanceof Player player) {
+            killerName = player.getGameProfile().getName();
+        }
+        return killerName;
+    }
+
+    // When the death happened; every sink records this same instant
+    public long timeMillis() {
+        return timeMillis;
+    }
+
+    // System.nanoTime() when dispatch began, for the death log's capture time in LoggerMetrics
+    public long captureStartNanos() {
+        return captureStartNanos;
+    }
+}
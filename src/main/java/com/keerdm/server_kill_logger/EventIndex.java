@@ -0,0 +1,369 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// On-disk, memory-mapped index of deaths and kill counts, fed by the writer thread like any other storage.
+//
+// deaths.idx: one 32-byte entry per death  [long time][int playerUUID][int playerName][int source]
+//                                           [int damageType][int biome][int dimension]
+// kills.idx:  kill counts per hour          [long hourStart][int killerUUID][int killerName][int key]
+//                                           [int kind][long count]
+// Strings are stored once in strings.dat and referenced by id. Entries are appended in time order,
+// so a time range is found with a binary search and only that slice is scanned.
+public class EventIndex implements LogStorage {
+
+    public static final String DEFAULT_DIR = "player_log_index";
+
+    static final int ENTRY_BYTES = 32;
+    static final long BUCKET_MILLIS = 3_600_000L;
+
+    public enum DeathField {
+        PLAYER, SOURCE, DAMAGE_TYPE, BIOME, DIMENSION
+    }
+
+    public enum KillField {
+        KILLER, TARGET
+    }
+
+    public record DeathHit(long timeMillis, String player, String playerUUID, String source,
+                           String damageType, String biome, String dimension) {
+    }
+
+    private record PendingKill(int killerUUID, int key, int kind) {
+    }
+
+    public interface ScanVisitor {
+        void onDeath(long timeMillis, String playerUUID, String playerName);
+
+        // hourStart is the start of the hour the kills were counted in
+        void onKills(long hourStart, String killerUUID, String killerName, KillTally.Kind kind, long count);
+    }
+
+    private final IndexStrings strings;
+    private final IndexFile deaths;
+    private final IndexFile kills;
+    private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_BYTES);
+
+    // Kills for the current hour; appended to kills.idx when the hour is over
+    private final Map<PendingKill, long[]> pendingKills = new HashMap<>();
+    private long pendingBucket = Long.MIN_VALUE;
+    // The latest hour appended or pending. A kill stamped earlier, e.g. a KillSampler delta queued after its
+    // hour was closed out, is counted in this one instead, so kills.idx stays in time order.
+    private long latestBucket;
+
+    public EventIndex(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        strings = new IndexStrings(dir.resolve("strings.dat"));
+        deaths = new IndexFile(dir.resolve("deaths.idx"), ENTRY_BYTES);
+        kills = new IndexFile(dir.resolve("kills.idx"), ENTRY_BYTES);
+        long killEntries = kills.size();
+        latestBucket = killEntries > 0 ? kills.view().getLong((int) ((killEntries - 1) * ENTRY_BYTES)) : Long.MIN_VALUE;
+    }
+
+    @Override
+    public boolean storesKillEvents() {
+        return true;
+    }
+
+    @Override
+    public void writeDeath(PlayerDeathEventHandler.DeathInfo deathInfo) throws IOException {
+        entry.clear();
+        entry.putLong(deathInfo.timeMillis);
+        entry.putInt(strings.id(deathInfo.playerUUID));
+        entry.putInt(strings.id(deathInfo.playerName));
+        entry.putInt(strings.id(deathInfo.sourceEntity));
+        entry.putInt(strings.id(deathInfo.damageType));
+        entry.putInt(strings.id(deathInfo.biome));
+        entry.putInt(strings.id(deathInfo.dimension));
+        entry.flip();
+        deaths.append(entry);
+    }
+
+    @Override
+    public void writeKill(KillEvent kill) throws IOException {
+        long bucket = Math.floorDiv(kill.timeMillis, BUCKET_MILLIS) * BUCKET_MILLIS;
+        synchronized (pendingKills) {
+            bucket = Math.max(bucket, latestBucket);
+            if (bucket != pendingBucket) {
+                appendPendingKills();
+                pendingBucket = bucket;
+                latestBucket = bucket;
+            }
+        }
+
+        PendingKill key = new PendingKill(strings.id(kill.killerUUID.toString()),
+                strings.id(kill.key), kill.kind.ordinal());
+        int killerName = strings.id(kill.killerName);
+        synchronized (pendingKills) {
+            long[] counts = pendingKills.computeIfAbsent(key, k -> new long[2]);
+            counts[0] = killerName;
+            counts[1] += kill.count;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // Close out the hour even if no new kill arrives to do it
+        synchronized (pendingKills) {
+            if (pendingBucket != Long.MIN_VALUE && System.currentTimeMillis() - pendingBucket >= BUCKET_MILLIS) {
+                appendPendingKills();
+                pendingBucket = Long.MIN_VALUE;
+            }
+        }
+        strings.force();
+        deaths.force();
+        kills.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (pendingKills) {
+            appendPendingKills();
+        }
+        strings.close();
+        deaths.close();
+        kills.close();
+    }
+
+    public long deathCount() {
+        return deaths.size();
+    }
+
+    public long killEntryCount() {
+        return kills.size();
+    }
+
+    // Every death since sinceMillis, then every hourly kill count from the hour containing it, oldest first
+    public void scan(long sinceMillis, ScanVisitor visitor) throws IOException {
+        scan(sinceMillis, Long.MAX_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    // Like scan(sinceMillis, visitor), but stops at the first deathLimit deaths and killLimit kill entries,
+    // e.g. the deathCount() and killEntryCount() taken before the writer started appending new ones
+    public void scan(long sinceMillis, long deathLimit, long killLimit, ScanVisitor visitor) throws IOException {
+        ByteBuffer view = deaths.view();
+        long[] range = range(view, sinceMillis, Long.MAX_VALUE);
+        range[1] = Math.min(range[1], deathLimit);
+        for (long i = range[0]; i < range[1]; i++) {
+            int offset = (int) (i * ENTRY_BYTES);
+            visitor.onDeath(view.getLong(offset), strings.get(view.getInt(offset + 8)),
+                    strings.get(view.getInt(offset + 12)));
+        }
+
+        KillTally.Kind[] kinds = KillTally.Kind.values();
+        view = kills.view();
+        range = range(view, Math.floorDiv(sinceMillis, BUCKET_MILLIS) * BUCKET_MILLIS, Long.MAX_VALUE);
+        range[1] = Math.min(range[1], killLimit);
+        for (long i = range[0]; i < range[1]; i++) {
+            int offset = (int) (i * ENTRY_BYTES);
+            visitor.onKills(view.getLong(offset), strings.get(view.getInt(offset + 8)),
+                    strings.get(view.getInt(offset + 12)), kinds[view.getInt(offset + 20)], view.getLong(offset + 24));
+        }
+    }
+
+    // Newest deaths first
+    public List<DeathHit> findDeaths(IndexQuery query, int limit) throws IOException {
+        DeathFilter filter = new DeathFilter(query);
+        List<DeathHit> hits = new ArrayList<>();
+        if (filter.empty) return hits;
+
+        ByteBuffer view = deaths.view();
+        long[] range = range(view, query.sinceMillis, query.untilMillis);
+        for (long i = range[1] - 1; i >= range[0] && hits.size() < limit; i--) {
+            int offset = (int) (i * ENTRY_BYTES);
+            if (!filter.matches(view, offset)) continue;
+            hits.add(new DeathHit(view.getLong(offset),
+                    strings.get(view.getInt(offset + 12)),
+                    strings.get(view.getInt(offset + 8)),
+                    strings.get(view.getInt(offset + 16)),
+                    strings.get(view.getInt(offset + 20)),
+                    strings.get(view.getInt(offset + 24)),
+                    strings.get(view.getInt(offset + 28))));
+        }
+        return hits;
+    }
+
+    // Matching deaths counted per value of one field, largest first
+    public Map<String, Long> countDeaths(IndexQuery query, DeathField groupBy) throws IOException {
+        DeathFilter filter = new DeathFilter(query);
+        if (filter.empty) return Map.of();
+
+        int fieldOffset = switch (groupBy) {
+            case PLAYER -> 12;
+            case SOURCE -> 16;
+            case DAMAGE_TYPE -> 20;
+            case BIOME -> 24;
+            case DIMENSION -> 28;
+        };
+
+        // Strings are always written before the entries that use them, so sizing after the view is safe
+        ByteBuffer view = deaths.view();
+        long[] counts = new long[strings.size() + 1];
+        long[] range = range(view, query.sinceMillis, query.untilMillis);
+        for (long i = range[0]; i < range[1]; i++) {
+            int offset = (int) (i * ENTRY_BYTES);
+            if (filter.matches(view, offset)) {
+                counts[view.getInt(offset + fieldOffset) + 1]++;
+            }
+        }
+        return resolve(counts);
+    }
+
+    // Matching kills summed per killer or per target, largest first. Includes the current, unwritten hour.
+    public Map<String, Long> countKills(IndexQuery query, KillField groupBy) throws IOException {
+        BitSet killers = matchingIds(query.killer, value -> value.equalsIgnoreCase(query.killer));
+        BitSet targets = matchingIds(query.target, value -> value.equalsIgnoreCase(query.target)
+                || value.toLowerCase(Locale.ROOT).startsWith(query.target.toLowerCase(Locale.ROOT) + " ("));
+        if ((killers != null && killers.isEmpty()) || (targets != null && targets.isEmpty())) return Map.of();
+
+        // Kill entries are stamped with the start of their hour
+        long since = query.sinceMillis == Long.MIN_VALUE ? Long.MIN_VALUE
+                : Math.floorDiv(query.sinceMillis, BUCKET_MILLIS) * BUCKET_MILLIS;
+
+        ByteBuffer view = kills.view();
+        long[] counts = new long[strings.size() + 1];
+        long[] range = range(view, since, query.untilMillis);
+        for (long i = range[0]; i < range[1]; i++) {
+            int offset = (int) (i * ENTRY_BYTES);
+            int killerUUID = view.getInt(offset + 8);
+            int killerName = view.getInt(offset + 12);
+            int key = view.getInt(offset + 16);
+            if (killers != null && !contains(killers, killerUUID) && !contains(killers, killerName)) continue;
+            if (!matches(targets, key)) continue;
+            counts[(groupBy == KillField.KILLER ? killerName : key) + 1] += view.getLong(offset + 24);
+        }
+
+        synchronized (pendingKills) {
+            if (pendingBucket >= since && pendingBucket <= query.untilMillis) {
+                pendingKills.forEach((pending, value) -> {
+                    int killerName = (int) value[0];
+                    if (killers != null && !contains(killers, pending.killerUUID()) && !contains(killers, killerName)) return;
+                    if (!matches(targets, pending.key())) return;
+                    int id = groupBy == KillField.KILLER ? killerName : pending.key();
+                    if (id + 1 < counts.length) {
+                        counts[id + 1] += value[1];
+                    }
+                });
+            }
+        }
+        return resolve(counts);
+    }
+
+    private void appendPendingKills() throws IOException {
+        for (Map.Entry<PendingKill, long[]> pending : pendingKills.entrySet()) {
+            entry.clear();
+            entry.putLong(pendingBucket);
+            entry.putInt(pending.getKey().killerUUID());
+            entry.putInt((int) pending.getValue()[0]);
+            entry.putInt(pending.getKey().key());
+            entry.putInt(pending.getKey().kind());
+            entry.putLong(pending.getValue()[1]);
+            entry.flip();
+            kills.append(entry);
+        }
+        pendingKills.clear();
+    }
+
+    // [first, end) of the entries whose time lies in [since, until]
+    private static long[] range(ByteBuffer view, long since, long until) {
+        long count = view.capacity() / ENTRY_BYTES;
+        return new long[]{lowerBound(view, count, since), lowerBound(view, count, until == Long.MAX_VALUE ? until : until + 1)};
+    }
+
+    private static long lowerBound(ByteBuffer view, long count, long time) {
+        if (time == Long.MIN_VALUE) return 0;
+        if (time == Long.MAX_VALUE) return count;
+
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (view.getLong((int) (mid * ENTRY_BYTES)) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Ids of every dictionary string the predicate accepts, or null when there is no filter
+    private BitSet matchingIds(String filter, Predicate<String> predicate) {
+        if (filter == null) return null;
+        BitSet ids = new BitSet();
+        int size = strings.size();
+        for (int id = 0; id < size; id++) {
+            String value = strings.get(id);
+            if (value != null && predicate.test(value)) {
+                ids.set(id);
+            }
+        }
+        return ids;
+    }
+
+    private static boolean matches(BitSet ids, int id) {
+        return ids == null || contains(ids, id);
+    }
+
+    private static boolean contains(BitSet ids, int id) {
+        return id >= 0 && ids.get(id);
+    }
+
+    // counts[id + 1] holds the count for string id, counts[0] the count for missing values
+    private Map<String, Long> resolve(long[] counts) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) ids.add(i);
+        }
+        ids.sort((a, b) -> Long.compare(counts[b], counts[a]));
+
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        for (int i : ids) {
+            sorted.merge(String.valueOf(strings.get(i - 1)), counts[i], Long::sum);
+        }
+        return sorted;
+    }
+
+    private class DeathFilter {
+        final BitSet players;
+        final BitSet sources;
+        final BitSet damageTypes;
+        final BitSet biomes;
+        final BitSet dimensions;
+        final boolean empty;
+
+        DeathFilter(IndexQuery query) {
+            players = matchingIds(query.player, value -> value.equalsIgnoreCase(query.player));
+            sources = matchingIds(query.source, value -> value.equalsIgnoreCase(query.source));
+            damageTypes = matchingIds(query.damageType, value -> value.equalsIgnoreCase(query.damageType));
+            biomes = matchingIds(query.biome, value -> value.equalsIgnoreCase(query.biome)
+                    || value.endsWith(":" + query.biome.toLowerCase(Locale.ROOT)));
+            dimensions = matchingIds(query.dimension, value -> value.equalsIgnoreCase(query.dimension)
+                    || value.endsWith(":" + query.dimension.toLowerCase(Locale.ROOT)));
+            empty = isEmpty(players) || isEmpty(sources) || isEmpty(damageTypes) || isEmpty(biomes) || isEmpty(dimensions);
+        }
+
+        boolean matches(ByteBuffer view, int offset) {
+            return (players == null || contains(players, view.getInt(offset + 8)) || contains(players, view.getInt(offset + 12)))
+                    && EventIndex.matches(sources, view.getInt(offset + 16))
+                    && EventIndex.matches(damageTypes, view.getInt(offset + 20))
+                    && EventIndex.matches(biomes, view.getInt(offset + 24))
+                    && EventIndex.matches(dimensions, view.getInt(offset + 28));
+        }
+
+        private static boolean isEmpty(BitSet ids) {
+            return ids != null && ids.isEmpty();
+        }
+    }
+}
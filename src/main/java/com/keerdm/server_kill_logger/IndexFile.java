@@ -0,0 +1,68 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A file of fixed-size entries that is appended through a channel and read through a memory mapping,
+// so queries never copy the history onto the heap.
+public class IndexFile {
+
+    private final FileChannel channel;
+    private final int entryBytes;
+    private long entries;
+    private ByteBuffer mapped;
+    private long mappedEntries;
+
+    public IndexFile(Path file, int entryBytes) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.entryBytes = entryBytes;
+
+        // Drop a partial entry left by a crash mid-append
+        long size = channel.size();
+        entries = size / entryBytes;
+        if (entries * entryBytes != size) {
+            channel.truncate(entries * entryBytes);
+        }
+    }
+
+    public int entryBytes() {
+        return entryBytes;
+    }
+
+    // entry must hold exactly one entry between position and limit
+    public synchronized void append(ByteBuffer entry) throws IOException {
+        long position = entries * entryBytes;
+        LoggerMetrics.bytesWritten(entry.remaining());
+        while (entry.hasRemaining()) {
+            position += channel.write(entry, position);
+        }
+        entries++;
+    }
+
+    public synchronized long size() {
+        return entries;
+    }
+
+    // A read-only view of every entry appended so far; entry i starts at byte i * entryBytes()
+    public synchronized ByteBuffer view() throws IOException {
+        if (mapped == null || mappedEntries != entries) {
+            long bytes = entries * entryBytes;
+            if (bytes > Integer.MAX_VALUE) throw new IOException("Index file too large to map: " + bytes + " bytes");
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            mappedEntries = entries;
+        }
+        return mapped.duplicate();
+    }
+
+    public synchronized void force() throws IOException {
+        channel.force(false);
+    }
+
+    public synchronized void close() throws IOException {
+        mapped = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,68 @@
+package com.keerdm.server_kill_logger;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Filters for EventIndex lookups. Unset fields match everything.
+public class IndexQuery {
+    // Deaths
+    public String player;
+    public String source;
+    public String damageType;
+    public String biome;
+    public String dimension;
+    // Kills
+    public String killer;
+    public String target;
+    // Both
+    public long sinceMillis = Long.MIN_VALUE;
+    public long untilMillis = Long.MAX_VALUE;
+
+    // Parses "player=Steve biome=minecraft:plains since=7d" style filters used by /killlog query
+    public static IndexQuery parse(String text, long nowMillis) {
+        IndexQuery query = new IndexQuery();
+        if (text == null || text.isBlank()) return query;
+
+        for (String part : text.trim().split("\\s+")) {
+            int split = part.indexOf('=');
+            if (split <= 0 || split == part.length() - 1) {
+                throw new IllegalArgumentException("Expected key=value but got '" + part + "'");
+            }
+            String key = part.substring(0, split).toLowerCase(Locale.ROOT);
+            String value = part.substring(split + 1);
+
+            switch (key) {
+                case "player" -> query.player = value;
+                case "source" -> query.source = value;
+                case "damage" -> query.damageType = value;
+                case "biome" -> query.biome = value;
+                case "dimension" -> query.dimension = value;
+                case "killer" -> query.killer = value;
+                case "target" -> query.target = value;
+                case "since" -> query.sinceMillis = nowMillis - parseDuration(value);
+                case "until" -> query.untilMillis = nowMillis - parseDuration(value);
+                default -> throw new IllegalArgumentException("Unknown filter '" + key
+                        + "'; use player, source, damage, biome, dimension, killer, target, since or until");
+            }
+        }
+        return query;
+    }
+
+    // "30m", "12h", "7d" or "4w"
+    static long parseDuration(String value) {
+        if (value.length() < 2) throw new IllegalArgumentException("Bad duration '" + value + "'");
+        long amount;
+        try {
+            amount = Long.parseLong(value.substring(0, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad duration '" + value + "'");
+        }
+        return switch (Character.toLowerCase(value.charAt(value.length() - 1))) {
+            case 'm' -> TimeUnit.MINUTES.toMillis(amount);
+            case 'h' -> TimeUnit.HOURS.toMillis(amount);
+            case 'd' -> TimeUnit.DAYS.toMillis(amount);
+            case 'w' -> TimeUnit.DAYS.toMillis(amount * 7);
+            default -> throw new IllegalArgumentException("Bad duration '" + value + "'; use m, h, d or w");
+        };
+    }
+}
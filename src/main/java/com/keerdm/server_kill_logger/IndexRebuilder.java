@@ -0,0 +1,214 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+// Builds an EventIndex from the logs written before it was turned on, so queries reach back over the whole
+// history: journal segments, death files and daily kill files, loose or in RetentionManager archives.
+// Runs with no server using the index (LogReplayTool --rebuild-index). The index is append-only and sorted
+// by time, so every source is read first, then deaths are sorted and kills summed per hour, and the result
+// goes through EventIndex's own write path.
+//
+// A server that changed backends has some days in both the journal and the text files. The journal is exact,
+// so it wins: death files and kill files are skipped for the days the journal has deaths or kills on.
+// Kill files only carry a day, so their kills are counted in the hour the day starts.
+public class IndexRebuilder {
+
+    public record Result(long deaths, long killEntries, long sources) {
+    }
+
+    private record DeathRow(long timeMillis, String playerUUID, String playerName, String source,
+                            String damageType, String biome, String dimension) {
+    }
+
+    private record KillRow(UUID killerUUID, String key, KillTally.Kind kind) {
+    }
+
+    private final List<DeathRow> deaths = new ArrayList<>();
+    // hour start -> kills counted in it; the killer's name is the latest one seen
+    private final TreeMap<Long, Map<KillRow, long[]>> kills = new TreeMap<>();
+    private final Map<UUID, String> killerNames = new HashMap<>();
+    private final Set<Long> journalDeathDays = new HashSet<>();
+    private final Set<Long> journalKillDays = new HashSet<>();
+    // Days, UUIDs, names and keys repeat across the whole history; keep one copy of each
+    private final Map<String, String> strings = new HashMap<>();
+    private long sources;
+
+    // indexDir must not hold an index yet; move the old one away first
+    public static Result rebuild(Path indexDir, List<Path> killDirs, List<Path> deathDirs, List<Path> journalDirs)
+            throws IOException {
+        for (String name : new String[]{"deaths.idx", "kills.idx"}) {
+            Path file = indexDir.resolve(name);
+            if (Files.exists(file) && Files.size(file) > 0) {
+                throw new IOException(indexDir + " already holds an index; rebuild into an empty directory");
+            }
+        }
+
+        IndexRebuilder rebuilder = new IndexRebuilder();
+        for (Path journalDir : journalDirs) {
+            rebuilder.readJournal(journalDir);
+        }
+        for (Path deathDir : deathDirs) {
+            rebuilder.readTree(deathDir, false);
+        }
+        for (Path killDir : killDirs) {
+            rebuilder.readTree(killDir, true);
+        }
+        return rebuilder.write(indexDir);
+    }
+
+    private void readJournal(Path journalDir) throws IOException {
+        for (Path segment : JournalReader.segments(journalDir)) {
+            sources++;
+            JournalReader.readSegment(segment, new JournalReader.Visitor() {
+                @Override
+                public void onDeath(PlayerDeathEventHandler.DeathInfo deathInfo) {
+                    journalDeathDays.add(LogTime.epochDay(deathInfo.timeMillis));
+                    addDeath(deathInfo.timeMillis, deathInfo.playerUUID, deathInfo.playerName,
+                            deathInfo.sourceEntity, deathInfo.damageType, deathInfo.biome, deathInfo.dimension);
+                }
+
+                @Override
+                public void onKill(KillEvent kill) {
+                    journalKillDays.add(LogTime.epochDay(kill.timeMillis));
+                    addKills(kill.timeMillis, kill.killerUUID, kill.killerName, kill.kind, kill.key, kill.count);
+                }
+            });
+        }
+    }
+
+    private void readTree(Path root, boolean killFiles) throws IOException {
+        if (!Files.isDirectory(root)) return;
+        try (DirectoryStream<Path> playerDirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path playerDir : playerDirs) {
+                String fallbackName = playerDir.getFileName().toString();
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(playerDir)) {
+                    for (Path file : files) {
+                        String fileName = file.getFileName().toString();
+                        if (fileName.endsWith(LogArchive.SUFFIX)) {
+                            sources++;
+                            LogArchive.forEachEntry(file, (name, in) -> readFile(name,
+                                    new String(in.readAllBytes(), StandardCharsets.UTF_8), fallbackName, killFiles));
+                        } else if (fileName.endsWith(".txt")) {
+                            sources++;
+                            readFile(fileName, Files.readString(file, StandardCharsets.UTF_8), fallbackName, killFiles);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void readFile(String fileName, String text, String fallbackName, boolean killFile) {
+        if (killFile) {
+            readKillFile(fileName, text, fallbackName);
+        } else {
+            readDeathFile(fileName, text, fallbackName);
+        }
+    }
+
+    private void readDeathFile(String fileName, String text, String fallbackName) {
+        long timeMillis = StatsLoader.deathTime(fileName);
+        if (timeMillis == Long.MIN_VALUE || journalDeathDays.contains(LogTime.epochDay(timeMillis))) return;
+
+        // "Location: [x, y, z] in minecraft:overworld"
+        String location = LogReplay.headerValue(text, "Location: ", "");
+        int in = location.lastIndexOf(" in ");
+        addDeath(timeMillis, LogReplay.headerValue(text, "UUID: ", null),
+                LogReplay.headerValue(text, "Player: ", fallbackName),
+                LogReplay.headerValue(text, "Source Entity: ", null),
+                LogReplay.headerValue(text, "Damage Type: ", null),
+                LogReplay.headerValue(text, "Biome: ", null),
+                in >= 0 ? location.substring(in + 4) : null);
+    }
+
+    private void readKillFile(String fileName, String text, String fallbackName) {
+        LocalDate day = LogArchive.fileDay(fileName);
+        if (day == null || journalKillDays.contains(day.toEpochDay())) return;
+        UUID killerUUID;
+        try {
+            killerUUID = UUID.fromString(LogReplay.headerValue(text, "UUID: ", ""));
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Map<String, Integer> entityKills = new HashMap<>();
+        Map<String, Integer> namedEntityKills = new HashMap<>();
+        Map<String, Integer> playerKills = new HashMap<>();
+        KillLogFile.parseKillData(text, entityKills, namedEntityKills, playerKills);
+
+        long dayStart = day.toEpochDay() * KillTally.MILLIS_PER_DAY;
+        String name = LogReplay.headerValue(text, "Name: ", fallbackName);
+        entityKills.forEach((key, count) -> addKills(dayStart, killerUUID, name, KillTally.Kind.ENTITY, key, count));
+        namedEntityKills.forEach((key, count) ->
+                addKills(dayStart, killerUUID, name, KillTally.Kind.NAMED_ENTITY, key, count));
+        playerKills.forEach((key, count) -> addKills(dayStart, killerUUID, name, KillTally.Kind.PLAYER, key, count));
+    }
+
+    private void addDeath(long timeMillis, String playerUUID, String playerName, String source, String damageType,
+                          String biome, String dimension) {
+        deaths.add(new DeathRow(timeMillis, canonical(playerUUID), canonical(playerName), canonical(source),
+                canonical(damageType), canonical(biome), canonical(dimension)));
+    }
+
+    private void addKills(long timeMillis, UUID killerUUID, String killerName, KillTally.Kind kind, String key,
+                          long count) {
+        long hour = Math.floorDiv(timeMillis, EventIndex.BUCKET_MILLIS) * EventIndex.BUCKET_MILLIS;
+        kills.computeIfAbsent(hour, h -> new HashMap<>())
+                .computeIfAbsent(new KillRow(killerUUID, canonical(key), kind), row -> new long[1])[0] += count;
+        killerNames.put(killerUUID, canonical(killerName));
+    }
+
+    private String canonical(String value) {
+        if (value == null) return null;
+        String existing = strings.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    private Result write(Path indexDir) throws IOException {
+        deaths.sort(Comparator.comparingLong(DeathRow::timeMillis));
+
+        EventIndex index = new EventIndex(indexDir);
+        try {
+            PlayerDeathEventHandler.DeathInfo deathInfo = new PlayerDeathEventHandler.DeathInfo();
+            for (DeathRow death : deaths) {
+                deathInfo.timeMillis = death.timeMillis();
+                deathInfo.playerUUID = death.playerUUID();
+                deathInfo.playerName = death.playerName();
+                deathInfo.sourceEntity = death.source();
+                deathInfo.damageType = death.damageType();
+                deathInfo.biome = death.biome();
+                deathInfo.dimension = death.dimension();
+                index.writeDeath(deathInfo);
+            }
+
+            // EventIndex sums a bucket's kills and appends them when the next bucket starts or on close
+            for (Map.Entry<Long, Map<KillRow, long[]>> hour : kills.entrySet()) {
+                for (Map.Entry<KillRow, long[]> kill : hour.getValue().entrySet()) {
+                    KillRow row = kill.getKey();
+                    for (long left = kill.getValue()[0]; left > 0; left -= Integer.MAX_VALUE) {
+                        index.writeKill(new KillEvent(hour.getKey(), row.killerUUID(),
+                                killerNames.get(row.killerUUID()), row.kind(), row.key(),
+                                (int) Math.min(left, Integer.MAX_VALUE)));
+                    }
+                }
+            }
+        } finally {
+            index.close();
+        }
+        return new Result(index.deathCount(), index.killEntryCount(), sources);
+    }
+}
@@ -0,0 +1,89 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Append-only string dictionary for the event index: [int length][UTF-8 bytes] per entry, id = position in file.
+// Player names, entity names, biomes and so on repeat endlessly, so index entries only store these ids.
+public class IndexStrings {
+
+    private final FileChannel channel;
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    public IndexStrings(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load();
+    }
+
+    public synchronized int id(String value) throws IOException {
+        if (value == null) return -1;
+
+        Integer id = ids.get(value);
+        if (id != null) return id;
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(4 + bytes.length);
+        entry.putInt(bytes.length).put(bytes).flip();
+        LoggerMetrics.bytesWritten(entry.remaining());
+        while (entry.hasRemaining()) {
+            channel.write(entry, channel.size());
+        }
+
+        int newId = strings.size();
+        strings.add(value);
+        ids.put(value, newId);
+        return newId;
+    }
+
+    // Returns -1 without creating anything if the string was never indexed
+    public synchronized int find(String value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    public synchronized String get(int id) {
+        return id < 0 || id >= strings.size() ? null : strings.get(id);
+    }
+
+    public synchronized int size() {
+        return strings.size();
+    }
+
+    public synchronized void force() throws IOException {
+        channel.force(false);
+    }
+
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        long good = 0;
+        while (data.remaining() >= 4) {
+            int length = data.getInt();
+            if (length < 0 || length > data.remaining()) break;
+            byte[] bytes = new byte[length];
+            data.get(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            ids.put(value, strings.size());
+            strings.add(value);
+            good = data.position();
+        }
+
+        // Drop a torn tail from a crash mid-append
+        if (good < size) {
+            channel.truncate(good);
+        }
+    }
+}
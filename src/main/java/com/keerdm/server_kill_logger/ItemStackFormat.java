@@ -0,0 +1,16 @@
+package com.keerdm.server_kill_logger;
+
+// Builds the "Display Name (namespace:item) (NBT: ...)" text used for equipped and inventory items
+public class ItemStackFormat {
+
+    public static String format(String displayName, String itemId, String nbt) {
+        // Combine registry ID and display name
+        String formattedItem = String.format("%s (%s)", displayName, itemId);
+
+        // Add NBT tag information if present
+        if (nbt != null) {
+            formattedItem += " (NBT: " + nbt + ")";
+        }
+        return formattedItem;
+    }
+}
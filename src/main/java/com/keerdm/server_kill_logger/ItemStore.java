@@ -0,0 +1,265 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Content-addressed store for death inventories, so a kit that dies a thousand times is written once.
+//
+// player_item_store/items/<h[0..2]>/<h[2..]> holds one rendered item (name and NBT, without the count) and
+// player_item_store/snapshots/<h[0..2]>/<h[2..]> one inventory as "<count>\t<item hash>" lines, where h is the
+// first 128 bits of the content's SHA-256 in hex. Death records then carry just the snapshot hash.
+// Objects are never rewritten. An LRU of recently stored hashes means a repeat kit doesn't even check the disk.
+// Only the inventory goes through the store; the six equipped slots stay inline in the record.
+// Stored on the writer thread; RetentionManager removes the objects no death record refers to any more.
+public class ItemStore {
+
+    public static final String DEFAULT_DIR = "player_item_store";
+
+    private static final String ITEMS = "items";
+    private static final String SNAPSHOTS = "snapshots";
+    private static final int HASH_BYTES = 16;
+    // How a snapshot is referred to in text death logs and in JSON Lines
+    private static final Pattern SNAPSHOT_REFERENCE =
+            Pattern.compile("(?:Snapshot: |\"inventorySnapshot\":\")([0-9a-f]{" + HASH_BYTES * 2 + "})");
+
+    public record Collected(long objects, long bytes) {
+    }
+
+    private record SnapshotLine(int count, String itemHash) {
+    }
+
+    private static volatile ItemStore current;
+
+    private final Path dir;
+    private final LogStorage.SyncPolicy syncPolicy;
+    private final Map<String, Boolean> recent;
+    private final MessageDigest digest;
+    // Keys put since beginCollection(), which collect() must keep; null when no collection is running
+    private Set<String> usedDuringCollection;
+
+    public ItemStore(Path dir, int cacheSize, LogStorage.SyncPolicy syncPolicy) {
+        this.dir = dir;
+        this.syncPolicy = syncPolicy;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The store death records are deduplicated into, or null when it is turned off
+    public static ItemStore current() {
+        return current;
+    }
+
+    public static void setCurrent(ItemStore store) {
+        current = store;
+    }
+
+    // Stores any items and the snapshot not seen before and returns the snapshot's hash
+    public synchronized String putInventory(List<PlayerDeathEventHandler.DeathInfo.InventoryItem> items)
+            throws IOException {
+        StringBuilder snapshot = new StringBuilder(items.size() * (HASH_BYTES * 2 + 4));
+        for (PlayerDeathEventHandler.DeathInfo.InventoryItem item : items) {
+            snapshot.append(item.count).append('\t').append(put(ITEMS, item.name)).append('\n');
+        }
+        return put(SNAPSHOTS, snapshot.toString());
+    }
+
+    private String put(String kind, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String hash = CaptureProfile.hex(digest.digest(bytes), HASH_BYTES);
+
+        // Items and snapshots share the cache; the kind's initial keeps their keys apart
+        String key = kind.charAt(0) + hash;
+        if (usedDuringCollection != null) usedDuringCollection.add(key);
+        if (recent.get(key) != null) return hash;
+
+        Path file = objectPath(dir, kind, hash);
+        if (!Files.exists(file)) {
+            write(file, bytes);
+        }
+        recent.put(key, Boolean.TRUE);
+        return hash;
+    }
+
+    // Writes to a temp file and swaps it in, so a crash never leaves a half-written object under its hash
+    private void write(Path file, byte[] bytes) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            // A death record may reach the disk referring to this object, so it must not be lost first.
+            // New objects are rare once kits repeat, so forcing each one costs little.
+            if (syncPolicy != LogStorage.SyncPolicy.NONE) {
+                channel.force(true);
+            }
+        }
+        LoggerMetrics.fileOpened();
+        LoggerMetrics.bytesWritten(bytes.length);
+
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Expands a snapshot hash from a death record back into its inventory
+    public static List<PlayerDeathEventHandler.DeathInfo.InventoryItem> readInventory(Path dir, String snapshotHash)
+            throws IOException {
+        List<PlayerDeathEventHandler.DeathInfo.InventoryItem> items = new ArrayList<>();
+        for (SnapshotLine line : parseSnapshot(read(dir, SNAPSHOTS, snapshotHash), snapshotHash)) {
+            PlayerDeathEventHandler.DeathInfo.InventoryItem item = new PlayerDeathEventHandler.DeathInfo.InventoryItem();
+            item.count = line.count();
+            item.name = read(dir, ITEMS, line.itemHash());
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static List<SnapshotLine> parseSnapshot(String snapshot, String snapshotHash) throws IOException {
+        List<SnapshotLine> lines = new ArrayList<>();
+        int lineStart = 0;
+        while (lineStart < snapshot.length()) {
+            int tab = snapshot.indexOf('\t', lineStart);
+            int lineEnd = snapshot.indexOf('\n', lineStart);
+            if (tab < 0 || lineEnd < tab) throw new IOException("Corrupt snapshot " + snapshotHash);
+            try {
+                lines.add(new SnapshotLine(Integer.parseInt(snapshot.substring(lineStart, tab)),
+                        snapshot.substring(tab + 1, lineEnd)));
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt snapshot " + snapshotHash, e);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return lines;
+    }
+
+    // Adds every snapshot hash a text death log or JSON Lines text refers to
+    public static void findReferences(CharSequence text, Set<String> snapshotHashes) {
+        Matcher matcher = SNAPSHOT_REFERENCE.matcher(text);
+        while (matcher.find()) {
+            snapshotHashes.add(matcher.group(1));
+        }
+    }
+
+    // Collection runs on another thread while deaths keep being stored: between beginCollection() and
+    // endCollection() every object put is remembered, and collect() keeps those whatever the logs said.
+    public synchronized void beginCollection() {
+        usedDuringCollection = new HashSet<>();
+    }
+
+    public synchronized void endCollection() {
+        usedDuringCollection = null;
+    }
+
+    // Deletes the snapshots not in liveSnapshots, then the items no remaining snapshot lists. liveSnapshots must
+    // be gathered from every death record after beginCollection(), once AsyncLogWriter.awaitCommitted() has
+    // seen everything submitted before it to disk.
+    public Collected collect(Set<String> liveSnapshots) throws IOException {
+        long[] freed = new long[2];
+        Set<String> liveItems = new HashSet<>();
+        for (String hash : listObjects(SNAPSHOTS, freed)) {
+            if (liveSnapshots.contains(hash) || !remove(SNAPSHOTS, hash, freed)) {
+                try {
+                    for (SnapshotLine line : parseSnapshot(read(dir, SNAPSHOTS, hash), hash)) {
+                        liveItems.add(line.itemHash());
+                    }
+                } catch (IOException e) {
+                    // Nothing to keep for a snapshot that can't be read
+                    e.printStackTrace();
+                }
+            }
+        }
+        for (String hash : listObjects(ITEMS, freed)) {
+            if (!liveItems.contains(hash)) {
+                remove(ITEMS, hash, freed);
+            }
+        }
+        return new Collected(freed[0], freed[1]);
+    }
+
+    // The hashes stored under kind; temp files a crash left behind are deleted on the way
+    private List<String> listObjects(String kind, long[] freed) throws IOException {
+        Path kindDir = dir.resolve(kind);
+        if (!Files.isDirectory(kindDir)) return List.of();
+
+        List<String> hashes = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(kindDir, 2)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // Temp files only exist while put() holds the lock
+                    synchronized (this) {
+                        freed[1] += Files.size(file);
+                        Files.deleteIfExists(file);
+                    }
+                    freed[0]++;
+                } else {
+                    String hash = file.getParent().getFileName().toString() + name;
+                    if (hash.length() == HASH_BYTES * 2) hashes.add(hash);
+                }
+            }
+        }
+        return hashes;
+    }
+
+    // Deletes an object unless it was put since beginCollection(); put() can't run in between
+    private synchronized boolean remove(String kind, String hash, long[] freed) throws IOException {
+        if (usedDuringCollection == null) throw new IllegalStateException("No collection running");
+        String key = kind.charAt(0) + hash;
+        if (usedDuringCollection.contains(key)) return false;
+
+        recent.remove(key);
+        Path file = objectPath(dir, kind, hash);
+        long size = Files.size(file);
+        if (Files.deleteIfExists(file)) {
+            freed[0]++;
+            freed[1] += size;
+        }
+        return true;
+    }
+
+    private static String read(Path dir, String kind, String hash) throws IOException {
+        if (hash.length() != HASH_BYTES * 2) throw new IOException("Not an item store hash: " + hash);
+        try {
+            return Files.readString(objectPath(dir, kind, hash));
+        } catch (NoSuchFileException e) {
+            throw new IOException("Missing " + kind + " object " + hash, e);
+        }
+    }
+
+    private static Path objectPath(Path dir, String kind, String hash) {
+        return dir.resolve(kind).resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+}
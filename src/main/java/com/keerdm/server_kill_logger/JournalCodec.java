@@ -0,0 +1,278 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+// Binary layout of the event journal.
+//
+// Segment: [int magic][short format version][long created millis] followed by records.
+// Record:  [int length][byte type][byte schema version][payload][int crc32]
+// where length counts type + schema version + payload and the CRC covers the same bytes.
+public class JournalCodec {
+
+    static final int MAGIC = 0x534B4C4A; // "SKLJ"
+    static final short FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 4 + 2 + 8;
+    static final int MAX_RECORD_BYTES = 16 << 20;
+    // Item strings (name plus NBT) are cut to this many chars when a death would not fit in MAX_RECORD_BYTES
+    static final int TRUNCATED_ITEM_CHARS = 8192;
+    static final String TRUNCATED_MARK = "...[truncated]";
+
+    static final byte TYPE_DEATH = 1;
+    static final byte TYPE_KILL = 2;
+
+    // Schema 2 added the death dimension, schema 3 the captured group mask, schema 4 recent damage,
+    // schema 5 the item store snapshot hash
+    static final byte DEATH_SCHEMA = 5;
+    // Kill schema 2 added the count
+    static final byte KILL_SCHEMA = 2;
+
+    // A ByteArrayOutputStream whose buffer can be framed in place without copying
+    static class RecordBuffer extends ByteArrayOutputStream {
+        private final CRC32 crc = new CRC32();
+
+        RecordBuffer() {
+            super(1024);
+        }
+
+        void beginRecord(byte type, byte schema) {
+            reset();
+            write(0);
+            write(0);
+            write(0);
+            write(0);
+            write(type);
+            write(schema);
+        }
+
+        // Fills in the length prefix and appends the CRC
+        void endRecord() {
+            int length = count - 4;
+            buf[0] = (byte) (length >>> 24);
+            buf[1] = (byte) (length >>> 16);
+            buf[2] = (byte) (length >>> 8);
+            buf[3] = (byte) length;
+
+            crc.reset();
+            crc.update(buf, 4, length);
+            int value = (int) crc.getValue();
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    static void encodeDeath(PlayerDeathEventHandler.DeathInfo deathInfo, DataOutput out) throws IOException {
+        encodeDeath(deathInfo, out, Integer.MAX_VALUE);
+    }
+
+    // Same, with equipped and inventory item strings cut to itemChars chars; with full NBT a shulker box or
+    // a book can otherwise make the record bigger than MAX_RECORD_BYTES
+    static void encodeDeath(PlayerDeathEventHandler.DeathInfo deathInfo, DataOutput out, int itemChars)
+            throws IOException {
+        out.writeLong(deathInfo.timeMillis);
+        out.writeInt(deathInfo.capturedGroups);
+        writeString(out, deathInfo.playerName);
+        writeString(out, deathInfo.playerUUID);
+        writeString(out, deathInfo.logDateUtc);
+        writeString(out, deathInfo.logDateLocal);
+        writeString(out, deathInfo.causeOfDeath);
+        writeString(out, deathInfo.damageType);
+        writeString(out, deathInfo.sourceEntity);
+        writeString(out, deathInfo.location());
+        writeString(out, deathInfo.dimension);
+        writeString(out, deathInfo.biome);
+        writeString(out, deathInfo.gamemode);
+        writeString(out, deathInfo.opStatus);
+
+        out.writeInt(deathInfo.nearbyPlayers.size());
+        for (PlayerDeathEventHandler.DeathInfo.NearbyPlayerInfo nearbyPlayer : deathInfo.nearbyPlayers) {
+            writeString(out, nearbyPlayer.name);
+            out.writeDouble(nearbyPlayer.distance);
+            writeString(out, nearbyPlayer.location());
+            writeString(out, nearbyPlayer.dimension);
+        }
+
+        out.writeInt(deathInfo.xpLevel);
+        out.writeFloat(deathInfo.xpPoints);
+        out.writeFloat(deathInfo.health);
+        out.writeFloat(deathInfo.maxHealth);
+        out.writeInt(deathInfo.foodLevel);
+        out.writeFloat(deathInfo.saturation);
+        writeString(out, deathInfo.difficulty);
+        out.writeLong(deathInfo.dayTime);
+        writeString(out, deathInfo.weather);
+        out.writeInt(deathInfo.moonPhase);
+
+        PlayerDeathEventHandler.DeathInfo.EquippedItems equippedItems = deathInfo.equippedItems;
+        writeString(out, truncate(equippedItems.helmet, itemChars));
+        writeString(out, truncate(equippedItems.chestplate, itemChars));
+        writeString(out, truncate(equippedItems.leggings, itemChars));
+        writeString(out, truncate(equippedItems.boots, itemChars));
+        writeString(out, truncate(equippedItems.mainHand, itemChars));
+        writeString(out, truncate(equippedItems.offHand, itemChars));
+
+        // A snapshot hash stands in for the items
+        List<PlayerDeathEventHandler.DeathInfo.InventoryItem> items = deathInfo.inventorySnapshot == null
+                ? deathInfo.inventoryContents : List.of();
+        out.writeInt(items.size());
+        for (PlayerDeathEventHandler.DeathInfo.InventoryItem item : items) {
+            out.writeInt(item.count);
+            writeString(out, truncate(item.name, itemChars));
+        }
+
+        int damageCount = deathInfo.recentDamage != null ? deathInfo.recentDamage.size() : 0;
+        out.writeInt(damageCount);
+        for (int i = 0; i < damageCount; i++) {
+            PlayerDeathEventHandler.DeathInfo.DamageEntry entry = deathInfo.recentDamage.get(i);
+            out.writeLong(entry.timeMillis);
+            writeString(out, entry.attacker);
+            writeString(out, entry.damageType);
+            out.writeFloat(entry.amount);
+        }
+
+        writeString(out, deathInfo.inventorySnapshot);
+    }
+
+    static PlayerDeathEventHandler.DeathInfo decodeDeath(DataInput in, byte schema) throws IOException {
+        if (schema < 1 || schema > DEATH_SCHEMA) throw new IOException("Unknown death record schema " + schema);
+
+        PlayerDeathEventHandler.DeathInfo deathInfo = new PlayerDeathEventHandler.DeathInfo();
+        deathInfo.timeMillis = in.readLong();
+        deathInfo.capturedGroups = schema >= 3 ? in.readInt() : CaptureProfile.ALL_GROUPS;
+        deathInfo.playerName = readString(in);
+        deathInfo.playerUUID = readString(in);
+        deathInfo.logDateUtc = readString(in);
+        deathInfo.logDateLocal = readString(in);
+        deathInfo.causeOfDeath = readString(in);
+        deathInfo.damageType = readString(in);
+        deathInfo.sourceEntity = readString(in);
+        deathInfo.location = readString(in);
+        if (schema >= 2) {
+            deathInfo.dimension = readString(in);
+        } else if (deathInfo.location != null && deathInfo.location.contains(" in ")) {
+            deathInfo.dimension = deathInfo.location.substring(deathInfo.location.lastIndexOf(" in ") + 4);
+        }
+        deathInfo.biome = readString(in);
+        deathInfo.gamemode = readString(in);
+        deathInfo.opStatus = readString(in);
+
+        int nearbyCount = in.readInt();
+        deathInfo.nearbyPlayers = new ArrayList<>(nearbyCount);
+        for (int i = 0; i < nearbyCount; i++) {
+            PlayerDeathEventHandler.DeathInfo.NearbyPlayerInfo nearbyPlayer = new PlayerDeathEventHandler.DeathInfo.NearbyPlayerInfo();
+            nearbyPlayer.name = readString(in);
+            nearbyPlayer.distance = in.readDouble();
+            nearbyPlayer.location = readString(in);
+            nearbyPlayer.dimension = readString(in);
+            deathInfo.nearbyPlayers.add(nearbyPlayer);
+        }
+
+        deathInfo.xpLevel = in.readInt();
+        deathInfo.xpPoints = in.readFloat();
+        deathInfo.health = in.readFloat();
+        deathInfo.maxHealth = in.readFloat();
+        deathInfo.foodLevel = in.readInt();
+        deathInfo.saturation = in.readFloat();
+        deathInfo.difficulty = readString(in);
+        deathInfo.dayTime = in.readLong();
+        deathInfo.weather = readString(in);
+        deathInfo.moonPhase = in.readInt();
+
+        PlayerDeathEventHandler.DeathInfo.EquippedItems equippedItems = new PlayerDeathEventHandler.DeathInfo.EquippedItems();
+        equippedItems.helmet = readString(in);
+        equippedItems.chestplate = readString(in);
+        equippedItems.leggings = readString(in);
+        equippedItems.boots = readString(in);
+        equippedItems.mainHand = readString(in);
+        equippedItems.offHand = readString(in);
+        deathInfo.equippedItems = equippedItems;
+
+        int itemCount = in.readInt();
+        deathInfo.inventoryContents = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            PlayerDeathEventHandler.DeathInfo.InventoryItem item = new PlayerDeathEventHandler.DeathInfo.InventoryItem();
+            item.count = in.readInt();
+            item.name = readString(in);
+            deathInfo.inventoryContents.add(item);
+        }
+
+        int damageCount = schema >= 4 ? in.readInt() : 0;
+        deathInfo.recentDamage = new ArrayList<>(damageCount);
+        for (int i = 0; i < damageCount; i++) {
+            PlayerDeathEventHandler.DeathInfo.DamageEntry entry = new PlayerDeathEventHandler.DeathInfo.DamageEntry();
+            entry.timeMillis = in.readLong();
+            entry.attacker = readString(in);
+            entry.damageType = readString(in);
+            entry.amount = in.readFloat();
+            deathInfo.recentDamage.add(entry);
+        }
+
+        if (schema >= 5) {
+            deathInfo.inventorySnapshot = readString(in);
+        }
+        return deathInfo;
+    }
+
+    static void encodeKill(KillEvent kill, DataOutput out) throws IOException {
+        out.writeLong(kill.timeMillis);
+        out.writeLong(kill.killerUUID.getMostSignificantBits());
+        out.writeLong(kill.killerUUID.getLeastSignificantBits());
+        writeString(out, kill.killerName);
+        out.writeByte(kill.kind.ordinal());
+        writeString(out, kill.key);
+        out.writeInt(kill.count);
+    }
+
+    static KillEvent decodeKill(DataInput in, byte schema) throws IOException {
+        if (schema < 1 || schema > KILL_SCHEMA) throw new IOException("Unknown kill record schema " + schema);
+
+        long timeMillis = in.readLong();
+        UUID killerUUID = new UUID(in.readLong(), in.readLong());
+        String killerName = readString(in);
+        KillTally.Kind kind = KillTally.Kind.values()[in.readByte()];
+        String key = readString(in);
+        int count = schema >= 2 ? in.readInt() : 1;
+        return new KillEvent(timeMillis, killerUUID, killerName, kind, key, count);
+    }
+
+    static String truncate(String value, int maxChars) {
+        if (value == null || value.length() <= maxChars) return value;
+        int end = maxChars;
+        // Never split a surrogate pair
+        if (Character.isHighSurrogate(value.charAt(end - 1))) end--;
+        return value.substring(0, end) + TRUNCATED_MARK;
+    }
+
+    // Length-prefixed UTF-8; -1 marks null. Unlike writeUTF this has no 64 KiB limit, which NBT can exceed.
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        if (length > MAX_RECORD_BYTES) throw new IOException("String too long: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,210 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Append-only binary journal of typed death and kill records, split into numbered segments.
+// A new segment is started when the current one reaches segmentMaxBytes or gets older than segmentMaxAge.
+// Records are collected in a direct buffer and reach the file in one write per batch (group commit).
+public class JournalLogStorage implements LogStorage {
+
+    public static final String DEFAULT_DIR = "player_log_journal";
+
+    static final String SEGMENT_PREFIX = "segment-";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final int PENDING_BYTES = 256 * 1024;
+
+    private final Path journalDir;
+    private final long segmentMaxBytes;
+    private final long segmentMaxAgeMillis;
+    private final SyncPolicy syncPolicy;
+
+    private final JournalCodec.RecordBuffer buffer = new JournalCodec.RecordBuffer();
+    private final DataOutputStream data = new DataOutputStream(buffer);
+    private final ByteBuffer pending = ByteBuffer.allocateDirect(PENDING_BYTES);
+
+    private FileChannel channel;
+    private long segmentIndex;
+    private long segmentBytes;
+    private long segmentCreated;
+    private boolean unsynced;
+
+    public JournalLogStorage(Path journalDir, long segmentMaxBytes, long segmentMaxAgeMinutes) throws IOException {
+        this(journalDir, segmentMaxBytes, segmentMaxAgeMinutes, SyncPolicy.INTERVAL);
+    }
+
+    public JournalLogStorage(Path journalDir, long segmentMaxBytes, long segmentMaxAgeMinutes,
+                             SyncPolicy syncPolicy) throws IOException {
+        this.journalDir = journalDir;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.segmentMaxAgeMillis = TimeUnit.MINUTES.toMillis(segmentMaxAgeMinutes);
+        this.syncPolicy = syncPolicy;
+
+        Files.createDirectories(journalDir);
+        // Never append to a segment left by an earlier run; its tail may be torn
+        segmentIndex = lastSegmentIndex(journalDir);
+    }
+
+    @Override
+    public boolean storesKillEvents() {
+        return true;
+    }
+
+    @Override
+    public void writeDeath(PlayerDeathEventHandler.DeathInfo deathInfo) throws IOException {
+        buffer.beginRecord(JournalCodec.TYPE_DEATH, JournalCodec.DEATH_SCHEMA);
+        JournalCodec.encodeDeath(deathInfo, data);
+        if (recordBytes() > JournalCodec.MAX_RECORD_BYTES) {
+            // Readers can't take a record this big; keep the death and cut the item NBT instead
+            buffer.beginRecord(JournalCodec.TYPE_DEATH, JournalCodec.DEATH_SCHEMA);
+            JournalCodec.encodeDeath(deathInfo, data, JournalCodec.TRUNCATED_ITEM_CHARS);
+            LoggerMetrics.recordTruncated();
+        }
+        append();
+    }
+
+    @Override
+    public void writeKill(KillEvent kill) throws IOException {
+        buffer.beginRecord(JournalCodec.TYPE_KILL, JournalCodec.KILL_SCHEMA);
+        JournalCodec.encodeKill(kill, data);
+        append();
+    }
+
+    @Override
+    public void commit() throws IOException {
+        writePending();
+        if (syncPolicy == SyncPolicy.BATCH) {
+            sync();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writePending();
+        if (syncPolicy != SyncPolicy.NONE) {
+            sync();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            writePending();
+            // Always forced on close, whatever the policy, so a clean shutdown leaves nothing in the page cache
+            channel.force(false);
+            channel.close();
+            channel = null;
+            unsynced = false;
+        }
+    }
+
+    // What the record's length prefix will say: type, schema version and payload
+    private int recordBytes() {
+        return buffer.size() - 4;
+    }
+
+    private void append() throws IOException {
+        if (recordBytes() > JournalCodec.MAX_RECORD_BYTES) {
+            LoggerMetrics.recordRejected();
+            throw new IOException("Journal record of " + recordBytes() + " bytes is over the "
+                    + JournalCodec.MAX_RECORD_BYTES + " byte limit");
+        }
+        buffer.endRecord();
+
+        long now = System.currentTimeMillis();
+        if (channel == null
+                || segmentBytes + buffer.size() > segmentMaxBytes
+                || now - segmentCreated >= segmentMaxAgeMillis) {
+            roll(now);
+        }
+
+        if (buffer.size() > pending.remaining()) {
+            writePending();
+        }
+        if (buffer.size() > pending.capacity()) {
+            // Too big to stage; goes straight to the file after whatever was pending
+            writeFully(ByteBuffer.wrap(buffer.buffer(), 0, buffer.size()));
+        } else {
+            pending.put(buffer.buffer(), 0, buffer.size());
+        }
+        segmentBytes += buffer.size();
+    }
+
+    private void writePending() throws IOException {
+        if (pending.position() == 0) return;
+
+        pending.flip();
+        try {
+            writeFully(pending);
+        } finally {
+            // Keeps anything a failed write left behind for the next attempt
+            pending.compact();
+        }
+    }
+
+    private void sync() throws IOException {
+        if (unsynced) {
+            channel.force(false);
+            unsynced = false;
+        }
+    }
+
+    private void roll(long now) throws IOException {
+        close();
+
+        segmentIndex++;
+        segmentCreated = now;
+        channel = FileChannel.open(journalDir.resolve(segmentName(segmentIndex)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        LoggerMetrics.fileOpened();
+
+        ByteBuffer header = ByteBuffer.allocate(JournalCodec.HEADER_BYTES);
+        header.putInt(JournalCodec.MAGIC);
+        header.putShort(JournalCodec.FORMAT_VERSION);
+        header.putLong(now);
+        header.flip();
+        writeFully(header);
+        segmentBytes = JournalCodec.HEADER_BYTES;
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        LoggerMetrics.bytesWritten(bytes.remaining());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        unsynced = true;
+    }
+
+    static String segmentName(long index) {
+        return String.format("%s%012d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long lastSegmentIndex(Path journalDir) throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(JournalLogStorage::isSegment)
+                    .mapToLong(path -> {
+                        String name = path.getFileName().toString();
+                        try {
+                            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                        } catch (NumberFormatException e) {
+                            return 0;
+                        }
+                    })
+                    .max()
+                    .orElse(0);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Streams records back out of a journal directory, oldest segment first.
+// A torn or corrupt tail (e.g. from a crash mid-write) ends that segment instead of failing the read; a
+// record over JournalCodec.MAX_RECORD_BYTES with the segment going on past it fails the read.
+public class JournalReader {
+
+    public interface Visitor {
+        void onDeath(PlayerDeathEventHandler.DeathInfo deathInfo) throws IOException;
+
+        void onKill(KillEvent kill) throws IOException;
+    }
+
+    public static List<Path> segments(Path journalDir) throws IOException {
+        if (!Files.isDirectory(journalDir)) return List.of();
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(JournalLogStorage::isSegment).sorted().collect(Collectors.toList());
+        }
+    }
+
+    public static void read(Path journalDir, Visitor visitor) throws IOException {
+        for (Path segment : segments(journalDir)) {
+            readSegment(segment, visitor);
+        }
+    }
+
+    public static void readSegment(Path segment, Visitor visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+            readSegment(in, segment, visitor);
+        }
+    }
+
+    // Reads one segment from in, e.g. a memory-mapped view of it; segment only names it in errors
+    public static void readSegment(DataInputStream in, Path segment, Visitor visitor) throws IOException {
+        if (in.readInt() != JournalCodec.MAGIC) throw new IOException("Not a journal segment: " + segment);
+        short formatVersion = in.readShort();
+        if (formatVersion != JournalCodec.FORMAT_VERSION) {
+            throw new IOException("Unsupported journal format " + formatVersion + " in " + segment);
+        }
+        in.readLong();
+
+        CRC32 crc = new CRC32();
+        byte[] body = new byte[1024];
+        long offset = JournalCodec.HEADER_BYTES;
+        while (true) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+            if (length < 2) return;
+            if (length > JournalCodec.MAX_RECORD_BYTES) {
+                // A torn tail ends before the length it claims; anything else would silently cost us every
+                // record after it
+                try {
+                    in.skipNBytes(length + 4L);
+                } catch (EOFException e) {
+                    return;
+                }
+                throw new IOException("Record of " + length + " bytes at offset " + offset + " in " + segment
+                        + " is over the " + JournalCodec.MAX_RECORD_BYTES + " byte limit");
+            }
+
+            if (body.length < length) {
+                body = new byte[Math.max(length, body.length * 2)];
+            }
+            int expectedCrc;
+            try {
+                in.readFully(body, 0, length);
+                expectedCrc = in.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+
+            crc.reset();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != expectedCrc) return;
+            offset += 4L + length + 4L;
+
+            byte type = body[0];
+            byte schema = body[1];
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(body, 2, length - 2));
+            switch (type) {
+                case JournalCodec.TYPE_DEATH -> visitor.onDeath(JournalCodec.decodeDeath(record, schema));
+                case JournalCodec.TYPE_KILL -> visitor.onKill(JournalCodec.decodeKill(record, schema));
+                default -> {
+                    // Record types from a newer version are skipped
+                }
+            }
+        }
+    }
+}
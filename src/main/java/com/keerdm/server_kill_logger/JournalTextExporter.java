@@ -0,0 +1,59 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Rebuilds the original human-readable layout (player_death_logs and player_kill_entity_logs) from a journal.
+// Inventories stored as ItemStore snapshots are written out in full again, as long as the snapshot is still there.
+public class JournalTextExporter {
+
+    public record Result(long deaths, long kills, long missingSnapshots) {
+    }
+
+    private static final int KILLS_PER_FLUSH = 100_000;
+
+    // itemStoreDir may be null, in which case inventories stay snapshot references
+    public static Result export(Path journalDir, Path outDir, LogStorage.Layout layout, Path itemStoreDir)
+            throws IOException {
+        if (Files.exists(outDir)) {
+            // Kill tallies merge with whatever they find, so exporting on top of an old export would double count
+            throw new IOException(outDir + " already exists");
+        }
+
+        TextLogStorage deathStorage = new TextLogStorage(outDir.resolve("player_death_logs"), LogStorage.SyncPolicy.NONE, layout);
+        KillTallyStore killTallies = new KillTallyStore(outDir.resolve("player_kill_entity_logs"));
+        killTallies.setLayout(layout);
+        long[] counts = new long[3];
+
+        JournalReader.read(journalDir, new JournalReader.Visitor() {
+            @Override
+            public void onDeath(PlayerDeathEventHandler.DeathInfo deathInfo) throws IOException {
+                if (deathInfo.inventorySnapshot != null && itemStoreDir != null) {
+                    try {
+                        deathInfo.inventoryContents = ItemStore.readInventory(itemStoreDir, deathInfo.inventorySnapshot);
+                        deathInfo.inventorySnapshot = null;
+                    } catch (IOException e) {
+                        // Keep the reference rather than lose the death
+                        counts[2]++;
+                    }
+                }
+                deathStorage.writeDeath(deathInfo);
+                counts[0]++;
+            }
+
+            @Override
+            public void onKill(KillEvent kill) throws IOException {
+                killTallies.record(kill.killerUUID, kill.killerName, kill.timeMillis, kill.kind, kill.key, kill.count);
+                long before = counts[1];
+                counts[1] += kill.count;
+                if (before / KILLS_PER_FLUSH != counts[1] / KILLS_PER_FLUSH) {
+                    killTallies.flush();
+                }
+            }
+        });
+
+        killTallies.flush();
+        return new Result(counts[0], counts[1], counts[2]);
+    }
+}
@@ -0,0 +1,200 @@
+package com.keerdm.server_kill_logger;
+
+import java.util.Arrays;
+
+// Streams one JSON object per line straight into a reusable UTF-8 byte buffer, with no intermediate tree or String.
+// Callers are trusted to nest begin/end calls correctly; nothing is validated.
+public class JsonLineWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final int MAX_DEPTH = 16;
+
+    private byte[] buf = new byte[4096];
+    private int count;
+
+    // Whether the container at each depth already has a member, i.e. needs a comma before the next one
+    private final boolean[] hasMember = new boolean[MAX_DEPTH];
+    private int depth;
+
+    public void reset() {
+        count = 0;
+        depth = 0;
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Ends the current line; the buffer then holds one complete JSON Lines record
+    public JsonLineWriter endLine() {
+        put('\n');
+        return this;
+    }
+
+    public JsonLineWriter beginObject() {
+        return open('{');
+    }
+
+    public JsonLineWriter endObject() {
+        return close('}');
+    }
+
+    public JsonLineWriter beginArray() {
+        return open('[');
+    }
+
+    public JsonLineWriter endArray() {
+        return close(']');
+    }
+
+    public JsonLineWriter name(String name) {
+        separate();
+        string(name);
+        put(':');
+        // The value that follows belongs to this name, so it must not be preceded by a comma
+        hasMember[depth] = false;
+        return this;
+    }
+
+    public JsonLineWriter value(String value) {
+        separate();
+        if (value == null) {
+            ascii("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    public JsonLineWriter value(long value) {
+        separate();
+        ascii(Long.toString(value));
+        return this;
+    }
+
+    public JsonLineWriter value(double value) {
+        separate();
+        // JSON has no NaN or Infinity
+        ascii(Double.isFinite(value) ? Double.toString(value) : "null");
+        return this;
+    }
+
+    public JsonLineWriter value(float value) {
+        separate();
+        ascii(Float.isFinite(value) ? Float.toString(value) : "null");
+        return this;
+    }
+
+    public JsonLineWriter value(boolean value) {
+        separate();
+        ascii(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonLineWriter field(String name, String value) {
+        return name(name).value(value);
+    }
+
+    public JsonLineWriter field(String name, long value) {
+        return name(name).value(value);
+    }
+
+    public JsonLineWriter field(String name, double value) {
+        return name(name).value(value);
+    }
+
+    public JsonLineWriter field(String name, float value) {
+        return name(name).value(value);
+    }
+
+    private JsonLineWriter open(char bracket) {
+        separate();
+        put(bracket);
+        hasMember[++depth] = false;
+        return this;
+    }
+
+    private JsonLineWriter close(char bracket) {
+        depth--;
+        put(bracket);
+        return this;
+    }
+
+    private void separate() {
+        if (depth == 0) return;
+        if (hasMember[depth]) {
+            put(',');
+        }
+        hasMember[depth] = true;
+    }
+
+    private void string(String value) {
+        ensure(value.length() * 6 + 2);
+        byte[] b = buf;
+        int n = count;
+        b[n++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80) {
+                if (c == '"' || c == '\\') b[n++] = '\\';
+                b[n++] = (byte) c;
+            } else if (c < 0x20) {
+                b[n++] = '\\';
+                switch (c) {
+                    case '\n' -> b[n++] = 'n';
+                    case '\r' -> b[n++] = 'r';
+                    case '\t' -> b[n++] = 't';
+                    case '\b' -> b[n++] = 'b';
+                    case '\f' -> b[n++] = 'f';
+                    default -> {
+                        b[n++] = 'u';
+                        b[n++] = '0';
+                        b[n++] = '0';
+                        b[n++] = HEX[c >> 4];
+                        b[n++] = HEX[c & 0xF];
+                    }
+                }
+            } else if (c < 0x800) {
+                b[n++] = (byte) (0xC0 | (c >> 6));
+                b[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                b[n++] = (byte) (0xF0 | (codePoint >> 18));
+                b[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                b[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                b[n++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // An unpaired surrogate can't be encoded; same replacement the JDK encoder uses
+                b[n++] = '?';
+            } else {
+                b[n++] = (byte) (0xE0 | (c >> 12));
+                b[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        b[n++] = '"';
+        count = n;
+    }
+
+    private void ascii(String text) {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buf[count++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void put(char c) {
+        ensure(1);
+        buf[count++] = (byte) c;
+    }
+
+    private void ensure(int extra) {
+        if (count + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+// One JSON object per line for every death and kill, appended to a file per UTC day:
+// player_log_jsonl/events-2026-10-17.jsonl. Meant for log shippers; nothing is ever rewritten.
+// Records are staged in a direct buffer and reach the file in one write per batch, like the journal.
+public class JsonLinesLogStorage implements LogStorage {
+
+    public static final String DEFAULT_DIR = "player_log_jsonl";
+
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final int PENDING_BYTES = 256 * 1024;
+
+    private final Path logDir;
+    private final SyncPolicy syncPolicy;
+
+    private final JsonLineWriter json = new JsonLineWriter();
+    private final ByteBuffer pending = ByteBuffer.allocateDirect(PENDING_BYTES);
+
+    private FileChannel channel;
+    private long dayStart;
+    private long dayEnd;
+    private boolean unsynced;
+
+    public JsonLinesLogStorage(Path logDir, SyncPolicy syncPolicy) throws IOException {
+        this.logDir = logDir;
+        this.syncPolicy = syncPolicy;
+        Files.createDirectories(logDir);
+    }
+
+    @Override
+    public boolean storesKillEvents() {
+        return true;
+    }
+
+    @Override
+    public void writeDeath(PlayerDeathEventHandler.DeathInfo deathInfo) throws IOException {
+        json.reset();
+        json.beginObject()
+                .field("type", "death")
+                .field("time", deathInfo.timeMillis)
+                .field("player", deathInfo.playerName)
+                .field("uuid", deathInfo.playerUUID)
+                .field("timeUtc", deathInfo.logDateUtc)
+                .field("timeLocal", deathInfo.logDateLocal)
+                .field("damageType", deathInfo.damageType)
+                .field("source", deathInfo.sourceEntity)
+                .field("location", deathInfo.location())
+                .field("dimension", deathInfo.dimension);
+
+        if (deathInfo.captured(CaptureProfile.Group.DEATH_MESSAGE)) {
+            json.field("cause", deathInfo.causeOfDeath);
+        }
+        if (deathInfo.captured(CaptureProfile.Group.BIOME)) {
+            json.field("biome", deathInfo.biome);
+        }
+        if (deathInfo.captured(CaptureProfile.Group.GAMEMODE_AND_OP)) {
+            json.field("gamemode", deathInfo.gamemode)
+                    .field("op", deathInfo.opStatus);
+        }
+
+        if (deathInfo.recentDamage != null && !deathInfo.recentDamage.isEmpty()) {
+            json.name("recentDamage").beginArray();
+            for (PlayerDeathEventHandler.DeathInfo.DamageEntry entry : deathInfo.recentDamage) {
+                json.beginObject()
+                        .field("time", entry.timeMillis)
+                        .field("amount", entry.amount)
+                        .field("damageType", entry.damageType)
+                        .field("attacker", entry.attacker)
+                        .endObject();
+            }
+            json.endArray();
+        }
+
+        if (deathInfo.captured(CaptureProfile.Group.NEARBY_PLAYERS)) {
+            json.name("nearbyPlayers").beginArray();
+            for (PlayerDeathEventHandler.DeathInfo.NearbyPlayerInfo nearbyPlayer : deathInfo.nearbyPlayers) {
+                json.beginObject()
+                        .field("name", nearbyPlayer.name)
+                        .field("distance", nearbyPlayer.distance)
+                        .field("location", nearbyPlayer.location())
+                        .field("dimension", nearbyPlayer.dimension)
+                        .endObject();
+            }
+            json.endArray();
+        }
+
+        if (deathInfo.captured(CaptureProfile.Group.STATS)) {
+            json.name("stats").beginObject()
+                    .field("xpLevel", deathInfo.xpLevel)
+                    .field("xpPoints", deathInfo.xpPoints)
+                    .field("health", deathInfo.health)
+                    .field("maxHealth", deathInfo.maxHealth)
+                    .field("foodLevel", deathInfo.foodLevel)
+                    .field("saturation", deathInfo.saturation)
+                    .endObject();
+        }
+
+        if (deathInfo.captured(CaptureProfile.Group.CONDITIONS)) {
+            json.name("conditions").beginObject()
+                    .field("difficulty", deathInfo.difficulty)
+                    .field("dayTime", deathInfo.dayTime)
+                    .field("weather", deathInfo.weather)
+                    .field("moonPhase", deathInfo.moonPhase)
+                    .endObject();
+        }
+
+        if (deathInfo.captured(CaptureProfile.Group.EQUIPMENT)) {
+            PlayerDeathEventHandler.DeathInfo.EquippedItems equippedItems = deathInfo.equippedItems;
+            json.name("equipment").beginObject()
+                    .field("helmet", equippedItems.helmet)
+                    .field("chestplate", equippedItems.chestplate)
+                    .field("leggings", equippedItems.leggings)
+                    .field("boots", equippedItems.boots)
+                    .field("mainHand", equippedItems.mainHand)
+                    .field("offHand", equippedItems.offHand)
+                    .endObject();
+        }
+
+        if (deathInfo.captured(CaptureProfile.Group.INVENTORY) && deathInfo.inventorySnapshot != null) {
+            json.field("inventorySnapshot", deathInfo.inventorySnapshot);
+        } else if (deathInfo.captured(CaptureProfile.Group.INVENTORY)) {
+            json.name("inventory").beginArray();
+            for (PlayerDeathEventHandler.DeathInfo.InventoryItem item : deathInfo.inventoryContents) {
+                json.beginObject()
+                        .field("count", item.count)
+                        .field("item", item.name)
+                        .endObject();
+            }
+            json.endArray();
+        }
+
+        json.endObject().endLine();
+        append(deathInfo.timeMillis);
+    }
+
+    @Override
+    public void writeKill(KillEvent kill) throws IOException {
+        json.reset();
+        json.beginObject()
+                .field("type", "kill")
+                .field("time", kill.timeMillis)
+                .field("killer", kill.killerName)
+                .field("killerUuid", kill.killerUUID.toString())
+                .field("kind", kill.kind.name().toLowerCase(Locale.ROOT))
+                .field("target", kill.key);
+        // Only kills KillSampler folded together carry a count; every other line is one kill
+        if (kill.count != 1) {
+            json.field("count", kill.count);
+        }
+        json.endObject().endLine();
+        append(kill.timeMillis);
+    }
+
+    @Override
+    public void commit() throws IOException {
+        writePending();
+        if (syncPolicy == SyncPolicy.BATCH) {
+            sync();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writePending();
+        if (syncPolicy != SyncPolicy.NONE) {
+            sync();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            writePending();
+            channel.force(false);
+            channel.close();
+            channel = null;
+            unsynced = false;
+        }
+    }
+
+    private void append(long timeMillis) throws IOException {
+        if (channel == null || timeMillis < dayStart || timeMillis >= dayEnd) {
+            roll(timeMillis);
+        }
+
+        if (json.size() > pending.remaining()) {
+            writePending();
+        }
+        if (json.size() > pending.capacity()) {
+            writeFully(ByteBuffer.wrap(json.buffer(), 0, json.size()));
+        } else {
+            pending.put(json.buffer(), 0, json.size());
+        }
+    }
+
+    // Switches to the file for timeMillis' UTC day. Normally that's midnight; a record that arrives
+    // just after the switch but belongs to the previous day reopens that day's file.
+    private void roll(long timeMillis) throws IOException {
+        close();
+
+        LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(timeMillis, KillTally.MILLIS_PER_DAY));
+        dayStart = day.toEpochDay() * KillTally.MILLIS_PER_DAY;
+        dayEnd = dayStart + KillTally.MILLIS_PER_DAY;
+        channel = FileChannel.open(logDir.resolve("events-" + day.format(FILE_DATE) + ".jsonl"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        LoggerMetrics.fileOpened();
+    }
+
+    private void writePending() throws IOException {
+        if (pending.position() == 0) return;
+
+        pending.flip();
+        try {
+            writeFully(pending);
+        } finally {
+            pending.compact();
+        }
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        LoggerMetrics.bytesWritten(bytes.remaining());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        unsynced = true;
+    }
+
+    private void sync() throws IOException {
+        if (unsynced) {
+            channel.force(false);
+            unsynced = false;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.util.UUID;
+
+// A kill, queued for storages that keep individual events rather than daily tallies. count is 1 unless
+// KillSampler folded a farm's kills into one event, in which case they all happened by timeMillis.
+public class KillEvent implements LogRecord {
+    public final long timeMillis;
+    public final UUID killerUUID;
+    public final String killerName;
+    public final KillTally.Kind kind;
+    public final String key;
+    public final int count;
+
+    public KillEvent(long timeMillis, UUID killerUUID, String killerName, KillTally.Kind kind, String key) {
+        this(timeMillis, killerUUID, killerName, kind, key, 1);
+    }
+
+    public KillEvent(long timeMillis, UUID killerUUID, String killerName, KillTally.Kind kind, String key, int count) {
+        this.timeMillis = timeMillis;
+        this.killerUUID = killerUUID;
+        this.killerName = killerName;
+        this.kind = kind;
+        this.key = key;
+        this.count = count;
+    }
+
+    @Override
+    public void writeTo(LogStorage storage) throws IOException {
+        storage.writeKill(this);
+    }
+}
@@ -0,0 +1,39 @@
+package com.keerdm.server_kill_logger;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns entity type kill keys ("Zombie", "Skeleton") to small int ids so tallies can count the kills farms
+// produce with primitive maps instead of string-keyed ones. There is one key per entity type, so the table
+// stays small; named entity and player keys come and go with name tags and renames, and KillTally counts
+// those by name for the day instead of giving them ids for the life of the server.
+public class KillKeys {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private volatile String[] names = new String[64];
+    private int nextId;
+
+    public int intern(String entityType) {
+        Integer id = ids.get(entityType);
+        if (id != null) return id;
+
+        synchronized (this) {
+            id = ids.get(entityType);
+            if (id != null) return id;
+
+            int newId = nextId++;
+            if (newId == names.length) {
+                names = Arrays.copyOf(names, newId * 2);
+            }
+            names[newId] = entityType;
+            ids.put(entityType, newId);
+            return newId;
+        }
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+}
@@ -0,0 +1,255 @@
+package com.keerdm.server_kill_logger;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.SharedSuggestionProvider;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+// /killlog ... admin commands. Anything that touches the disk runs off the server thread.
+public class KillLogCommand {
+
+    private static final int QUERY_LINES = 10;
+    private static final List<String> TOP_METRICS = List.of("kills", "player-kills", "deaths");
+    private static final List<String> TOP_WINDOWS = List.of("hour", "day", "week");
+    private static final DateTimeFormatter QUERY_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm 'UTC'")
+            .withZone(ZoneOffset.UTC);
+
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("killlog")
+                .requires(source -> source.hasPermission(3))
+                .then(Commands.literal("stats")
+                        .executes(KillLogCommand::stats))
+                .then(Commands.literal("top")
+                        .executes(context -> top(context, "kills", "day", QUERY_LINES))
+                        .then(Commands.argument("metric", StringArgumentType.word())
+                                .suggests((context, builder) -> SharedSuggestionProvider.suggest(TOP_METRICS, builder))
+                                .executes(context -> top(context, StringArgumentType.getString(context, "metric"),
+                                        "day", QUERY_LINES))
+                                .then(Commands.argument("window", StringArgumentType.word())
+                                        .suggests((context, builder) -> SharedSuggestionProvider.suggest(TOP_WINDOWS, builder))
+                                        .executes(context -> top(context, StringArgumentType.getString(context, "metric"),
+                                                StringArgumentType.getString(context, "window"), QUERY_LINES))
+                                        .then(Commands.argument("count", IntegerArgumentType.integer(1, 100))
+                                                .executes(context -> top(context, StringArgumentType.getString(context, "metric"),
+                                                        StringArgumentType.getString(context, "window"),
+                                                        IntegerArgumentType.getInteger(context, "count")))))))
+                .then(Commands.literal("export")
+                        .executes(KillLogCommand::export))
+                .then(Commands.literal("migrate-layout")
+                        .executes(KillLogCommand::migrateLayout))
+                .then(Commands.literal("inventory")
+                        .then(Commands.argument("snapshot", StringArgumentType.word())
+                                .executes(context -> inventory(context, StringArgumentType.getString(context, "snapshot")))))
+                .then(Commands.literal("query")
+                        .then(Commands.literal("deaths")
+                                .executes(context -> queryDeaths(context, ""))
+                                .then(Commands.argument("filters", StringArgumentType.greedyString())
+                                        .executes(context -> queryDeaths(context, StringArgumentType.getString(context, "filters")))))
+                        .then(Commands.literal("kills")
+                                .executes(context -> queryKills(context, ""))
+                                .then(Commands.argument("filters", StringArgumentType.greedyString())
+                                        .executes(context -> queryKills(context, StringArgumentType.getString(context, "filters")))))));
+    }
+
+    // e.g. /killlog query deaths player=Steve since=7d  or  /killlog query deaths biome=plains
+    private static int queryDeaths(CommandContext<CommandSourceStack> context, String filters) {
+        EventIndex index = Server_Kill_Logger.eventIndex();
+        if (index == null) {
+            context.getSource().sendFailure(Component.literal("The event index is disabled"));
+            return 0;
+        }
+        IndexQuery query;
+        try {
+            query = IndexQuery.parse(filters, System.currentTimeMillis());
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendFailure(Component.literal(e.getMessage()));
+            return 0;
+        }
+
+        runInBackground(context.getSource(), "Query", () -> {
+            long start = System.nanoTime();
+            Map<String, Long> bySource = index.countDeaths(query, EventIndex.DeathField.SOURCE);
+            List<EventIndex.DeathHit> latest = index.findDeaths(query, QUERY_LINES);
+            long total = bySource.values().stream().mapToLong(Long::longValue).sum();
+
+            StringBuilder message = new StringBuilder();
+            message.append(total).append(" matching deaths");
+            appendTop(message, "Killed by", bySource);
+            if (!latest.isEmpty()) {
+                message.append("\nLatest:");
+                for (EventIndex.DeathHit hit : latest) {
+                    message.append("\n  ").append(QUERY_TIME.format(Instant.ofEpochMilli(hit.timeMillis())))
+                            .append(" ").append(hit.player())
+                            .append(" <- ").append(hit.source())
+                            .append(" (").append(hit.damageType()).append(", ").append(hit.biome()).append(")");
+                }
+            }
+            message.append("\n(").append((System.nanoTime() - start) / 1_000_000).append(" ms)");
+            return message.toString();
+        });
+        return 1;
+    }
+
+    // e.g. /killlog query kills target=Steve since=7d  (top killers of Steve)  or  /killlog query kills killer=Alex
+    private static int queryKills(CommandContext<CommandSourceStack> context, String filters) {
+        EventIndex index = Server_Kill_Logger.eventIndex();
+        if (index == null) {
+            context.getSource().sendFailure(Component.literal("The event index is disabled"));
+            return 0;
+        }
+        IndexQuery query;
+        try {
+            query = IndexQuery.parse(filters, System.currentTimeMillis());
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendFailure(Component.literal(e.getMessage()));
+            return 0;
+        }
+
+        runInBackground(context.getSource(), "Query", () -> {
+            long start = System.nanoTime();
+            Map<String, Long> byKiller = index.countKills(query, EventIndex.KillField.KILLER);
+            Map<String, Long> byTarget = index.countKills(query, EventIndex.KillField.TARGET);
+            long total = byKiller.values().stream().mapToLong(Long::longValue).sum();
+
+            StringBuilder message = new StringBuilder();
+            message.append(total).append(" matching kills");
+            appendTop(message, "Top killers", byKiller);
+            appendTop(message, "Top targets", byTarget);
+            message.append("\n(").append((System.nanoTime() - start) / 1_000_000).append(" ms)");
+            return message.toString();
+        });
+        return 1;
+    }
+
+    private static void appendTop(StringBuilder message, String title, Map<String, Long> counts) {
+        if (counts.isEmpty()) return;
+        message.append("\n").append(title).append(":");
+        counts.entrySet().stream().limit(QUERY_LINES).forEach(count ->
+                message.append("\n  ").append(count.getKey()).append(" x").append(count.getValue()));
+    }
+
+    // e.g. /killlog top player-kills week 20. Served from memory, so it answers on the server thread
+    private static int top(CommandContext<CommandSourceStack> context, String metricName, String windowName, int count) {
+        StatsEngine.Metric metric;
+        StatsEngine.Window window;
+        try {
+            metric = StatsEngine.parseMetric(metricName);
+            window = StatsEngine.parseWindow(windowName);
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendFailure(Component.literal("Use /killlog top <" + String.join("|", TOP_METRICS)
+                    + "> <" + String.join("|", TOP_WINDOWS) + "> [count]"));
+            return 0;
+        }
+
+        long now = System.currentTimeMillis();
+        List<StatsEngine.Standing> standings = StatsEventHandler.STATS.top(metric, window, count, now);
+        StringBuilder message = new StringBuilder();
+        message.append("Top ").append(metricName).append(", last ").append(windowName)
+                .append(" (").append(StatsEventHandler.STATS.total(metric, window, now)).append(" server-wide)");
+        if (standings.isEmpty()) {
+            message.append("\n  Nobody yet");
+        }
+        for (int i = 0; i < standings.size(); i++) {
+            StatsEngine.Standing standing = standings.get(i);
+            message.append("\n  ").append(i + 1).append(". ")
+                    .append(standing.name() != null ? standing.name() : standing.uuid().toString())
+                    .append(" x").append(standing.score());
+        }
+        String text = message.toString();
+        context.getSource().sendSuccess(() -> Component.literal(text), false);
+        return 1;
+    }
+
+    // Counters only; cheap enough to answer on the server thread
+    private static int stats(CommandContext<CommandSourceStack> context) {
+        String summary = LoggerMetrics.summary();
+        context.getSource().sendSuccess(() -> Component.literal(summary), false);
+        return 1;
+    }
+
+    private static int export(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        Path journalDir = Paths.get(JournalLogStorage.DEFAULT_DIR);
+        Path outDir = Paths.get("player_logs_export",
+                ZonedDateTime.now(ZoneOffset.UTC).format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss")));
+
+        source.sendSuccess(() -> Component.literal("Exporting " + journalDir + " to " + outDir + "..."), true);
+        runInBackground(source, "Export", () -> {
+            JournalTextExporter.Result result = JournalTextExporter.export(journalDir, outDir, Config.layout,
+                    Paths.get(ItemStore.DEFAULT_DIR));
+            String missing = result.missingSnapshots() > 0
+                    ? " (" + result.missingSnapshots() + " inventories not found in " + ItemStore.DEFAULT_DIR + ")" : "";
+            return "Exported " + result.deaths() + " deaths and " + result.kills() + " kills to " + outDir + missing;
+        });
+        return 1;
+    }
+
+    // e.g. /killlog inventory 3f2a...  for the "Snapshot:" line of a death log written with the item store on
+    private static int inventory(CommandContext<CommandSourceStack> context, String snapshot) {
+        runInBackground(context.getSource(), "Inventory lookup", () -> {
+            List<PlayerDeathEventHandler.DeathInfo.InventoryItem> items =
+                    ItemStore.readInventory(Paths.get(ItemStore.DEFAULT_DIR), snapshot);
+            StringBuilder message = new StringBuilder();
+            message.append("Snapshot ").append(snapshot).append(":");
+            for (PlayerDeathEventHandler.DeathInfo.InventoryItem item : items) {
+                message.append("\n  ").append(item.count).append("x ").append(item.name);
+            }
+            return message.toString();
+        });
+        return 1;
+    }
+
+    // Moves name-keyed player directories into the UUID layout
+    private static int migrateLayout(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        if (Config.layout != LogStorage.Layout.UUID) {
+            source.sendFailure(Component.literal("Set storage.layout to UUID and restart before migrating"));
+            return 0;
+        }
+
+        source.sendSuccess(() -> Component.literal("Migrating player directories to the UUID layout..."), true);
+        runInBackground(source, "Migration", () -> {
+            LayoutMigrator.Result result = LayoutMigrator.migrate(Paths.get("player_death_logs"),
+                    Paths.get("player_kill_entity_logs"), Server_Kill_Logger.PLAYER_NAMES, System.currentTimeMillis());
+            AsyncLogWriter.flushSoon();
+            return "Moved " + result.movedFiles() + " files, merged " + result.mergedFiles() + ", skipped "
+                    + result.skippedFiles() + " (today's kill files and files without a UUID)";
+        });
+        return 1;
+    }
+
+    interface BackgroundTask {
+        String run() throws IOException;
+    }
+
+    // Runs the task on its own thread and reports back to the command source on the server thread
+    static void runInBackground(CommandSourceStack source, String name, BackgroundTask task) {
+        MinecraftServer server = source.getServer();
+        Thread thread = new Thread(() -> {
+            try {
+                String message = task.run();
+                server.execute(() -> source.sendSuccess(() -> Component.literal(message), true));
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                server.execute(() -> source.sendFailure(Component.literal(name + " failed: " + e.getMessage())));
+            }
+        }, "Server Kill Logger " + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
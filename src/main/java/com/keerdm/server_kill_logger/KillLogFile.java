@@ -0,0 +1,180 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Reads and writes the daily per-player kill files in player_kill_entity_logs
+public class KillLogFile {
+
+    static void readExistingKillData(String fileName,
+                                     Map<String, Integer> entityKills,
+                                     Map<String, Integer> namedEntityKills,
+                                     Map<String, Integer> playerKills) {
+
+        try {
+            String text;
+            Path file = Paths.get(fileName);
+            if (Files.exists(file)) {
+                text = Files.readString(file);
+            } else {
+                // Days packed by RetentionManager are read straight out of their month's archive
+                try (InputStream in = LogArchive.open(file)) {
+                    if (in == null) return;
+                    text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+            parseKillData(text, entityKills, namedEntityKills, playerKills);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Parses the sections of a kill file's text into the three maps; LogReplay uses this too
+    static void parseKillData(String text,
+                              Map<String, Integer> entityKills,
+                              Map<String, Integer> namedEntityKills,
+                              Map<String, Integer> playerKills) {
+        boolean inEntitySection = false;
+        boolean inNamedEntitySection = false;
+        boolean inPlayerKillSection = false;
+
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = text.length();
+            String line = text.substring(lineStart, lineEnd).trim();
+            lineStart = lineEnd + 1;
+
+            if (line.equals("Entities Killed")) {
+                inEntitySection = true;
+                inNamedEntitySection = false;
+                inPlayerKillSection = false;
+                continue;
+            }
+
+            if (line.equals("----------------")) continue;
+
+            if (line.isEmpty()) {
+                inEntitySection = false;
+                inNamedEntitySection = false;
+                inPlayerKillSection = false;
+                continue;
+            }
+
+            if (line.equals("Player Kills")) {
+                inPlayerKillSection = true;
+                inEntitySection = false;
+                inNamedEntitySection = false;
+                continue;
+            }
+
+            // Parse kills: "<key> x<count>". Names can contain " x" themselves, so split at the last one
+            int separator = line.lastIndexOf(" x");
+            if (separator <= 0 || !isCount(line, separator + 2)) continue;
+            String key = line.substring(0, separator);
+            int count = Integer.parseInt(line.substring(separator + 2));
+
+            if (inPlayerKillSection) {
+                playerKills.put(key, count);
+                continue;
+            }
+
+            // Named entities follow the plain ones in the same section
+            if (key.startsWith("minecraft:") || key.contains(" (name:")) {
+                inNamedEntitySection = true;
+                inEntitySection = false;
+            }
+
+            if (inNamedEntitySection) {
+                namedEntityKills.put(key, count);
+            } else if (inEntitySection) {
+                entityKills.put(key, count);
+            }
+        }
+    }
+
+    // Whether line[start..] is a count that fits in an int
+    private static boolean isCount(String line, int start) {
+        int length = line.length() - start;
+        if (length < 1 || length > 9) return false;
+        for (int i = start; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    // Kill files are rewritten on whichever thread flushes the tallies, normally the writer thread
+    private static final ThreadLocal<TextBuffer> BUFFERS = ThreadLocal.withInitial(TextBuffer::new);
+
+    // Renders the whole file into the thread's reused buffer and writes it with one channel write; returns the
+    // bytes written
+    static int writeKillsToFile(String fileName, String killerName, String killerUUID,
+                                ZonedDateTime nowUtc, ZonedDateTime nowLocal,
+                                Map<String, Integer> dailyEntityKills,
+                                Map<String, Integer> dailyNamedEntityKills,
+                                Map<String, Integer> dailyPlayerKills) throws IOException {
+        TextBuffer buffer = BUFFERS.get();
+        StringBuilder text = buffer.reset();
+
+        // Player Details Section
+        text.append("Player Details\n");
+        text.append("----------------\n");
+        text.append("Name: ").append(killerName).append('\n');
+        text.append("UUID: ").append(killerUUID).append('\n');
+        text.append("Date (UTC): ");
+        LogTime.DAY.formatTo(nowUtc, text);
+        text.append("\nDate (Server): ");
+        LogTime.DAY.formatTo(nowLocal, text);
+        text.append("\n\n");
+
+        // Player Kills Section
+        text.append("Player Kills\n");
+        text.append("----------------\n");
+        if (dailyPlayerKills != null && !dailyPlayerKills.isEmpty()) {
+            appendKills(text, dailyPlayerKills);
+        } else {
+            text.append("No players killed\n");
+        }
+        text.append('\n');
+
+        // Entities Killed Section
+        text.append("Entities Killed\n");
+        text.append("----------------\n");
+
+        // First, write unnamed/generic entities
+        if (dailyEntityKills != null && !dailyEntityKills.isEmpty()) {
+            appendKills(text, dailyEntityKills);
+        }
+
+        // Then, write named entities
+        if (dailyNamedEntityKills != null && !dailyNamedEntityKills.isEmpty()) {
+            appendKills(text, dailyNamedEntityKills);
+        }
+
+        // If no kills at all
+        if ((dailyEntityKills == null || dailyEntityKills.isEmpty()) &&
+                (dailyNamedEntityKills == null || dailyNamedEntityKills.isEmpty())) {
+            text.append("No entities killed\n");
+        }
+
+        return buffer.writeTo(Paths.get(fileName));
+    }
+
+    // "<key> x<count>" lines, highest count first
+    private static void appendKills(StringBuilder text, Map<String, Integer> kills) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(kills.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        for (Map.Entry<String, Integer> entry : entries) {
+            text.append(entry.getKey()).append(" x").append((int) entry.getValue()).append('\n');
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.keerdm.server_kill_logger;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keeps what kill events cost flat however fast a mob farm kills. Each killer and kill key (an entity type;
+// callers only pass unnamed kills) has a token bucket: while it has tokens every kill is emitted as its own
+// event, and once a farm outruns it further kills are only counted. The count is emitted as one event
+// carrying the delta when a token is back, when the window is up, when the hour changes, every sampleEvery
+// counted kills if that is set, and on drainAll()/release(). Nothing is ever dropped, so anything summing
+// events (the index, replays, exports) still gets exact totals, and a delta never spans two index hours.
+public class KillSampler {
+
+    // eventsPerMinute is the refill rate and burst the bucket size; 0 events per minute turns sampling off.
+    // sampleEvery > 0 also emits the delta every that many counted kills.
+    public record Settings(int eventsPerMinute, int burst, int sampleEvery, long windowMillis) {
+    }
+
+    public interface Emitter {
+        // count is 1 for a kill emitted as it happened, otherwise the kills counted up to timeMillis
+        void emit(UUID killerUUID, String killerName, int keyId, long timeMillis, int count);
+    }
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private final PlayerStateRegistry<Buckets> players = new PlayerStateRegistry<>();
+    // Buckets holding a delta; lets drain() skip the sweep while nothing is being farmed
+    private final AtomicInteger pendingBuckets = new AtomicInteger();
+    private volatile Settings settings;
+
+    public KillSampler(Settings settings) {
+        this.settings = settings;
+    }
+
+    public void setSettings(Settings settings) {
+        this.settings = settings;
+    }
+
+    public void onKill(UUID killerUUID, String killerName, int keyId, long nowMillis, Emitter emitter) {
+        Settings settings = this.settings;
+        if (settings.eventsPerMinute() <= 0) {
+            emitter.emit(killerUUID, killerName, keyId, nowMillis, 1);
+            return;
+        }
+
+        synchronized (players.lock(killerUUID)) {
+            Buckets buckets = players.get(killerUUID);
+            if (buckets == null) {
+                buckets = new Buckets(killerUUID);
+                players.put(killerUUID, buckets);
+            }
+            buckets.killerName = killerName;
+            Bucket bucket = buckets.get(keyId, settings, nowMillis);
+
+            if (bucket.due(nowMillis, settings.windowMillis())) {
+                emitPending(killerUUID, buckets.killerName, bucket, emitter);
+            }
+
+            bucket.refill(settings, nowMillis);
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                int count = bucket.pending + 1;
+                if (bucket.pending > 0) {
+                    bucket.pending = 0;
+                    pendingBuckets.decrementAndGet();
+                }
+                emitter.emit(killerUUID, killerName, keyId, nowMillis, count);
+                return;
+            }
+
+            if (bucket.pending++ == 0) {
+                bucket.pendingSince = nowMillis;
+                pendingBuckets.incrementAndGet();
+            }
+            bucket.lastKill = nowMillis;
+            LoggerMetrics.killCoalesced();
+            if (settings.sampleEvery() > 0 && bucket.pending >= settings.sampleEvery()) {
+                emitPending(killerUUID, killerName, bucket, emitter);
+            }
+        }
+    }
+
+    // Emits every delta whose window is up or whose hour is over; meant to be called about once a second
+    public void drain(long nowMillis, Emitter emitter) {
+        if (pendingBuckets.get() == 0) return;
+        long windowMillis = settings.windowMillis();
+        for (Buckets buckets : players.values()) {
+            UUID killerUUID = buckets.killerUUID;
+            synchronized (players.lock(killerUUID)) {
+                for (int i = 0; i < buckets.size; i++) {
+                    Bucket bucket = buckets.buckets[i];
+                    if (bucket.due(nowMillis, windowMillis)) {
+                        emitPending(killerUUID, buckets.killerName, bucket, emitter);
+                    }
+                }
+            }
+        }
+    }
+
+    // Emits the player's deltas and forgets their buckets, e.g. when they log out
+    public void release(UUID killerUUID, Emitter emitter) {
+        synchronized (players.lock(killerUUID)) {
+            Buckets buckets = players.remove(killerUUID);
+            if (buckets == null) return;
+            for (int i = 0; i < buckets.size; i++) {
+                if (buckets.buckets[i].pending > 0) {
+                    emitPending(killerUUID, buckets.killerName, buckets.buckets[i], emitter);
+                }
+            }
+        }
+    }
+
+    // Emits every delta still held, e.g. before the writer stops
+    public void drainAll(Emitter emitter) {
+        drain(Long.MAX_VALUE, emitter);
+    }
+
+    // Caller holds the player's lock
+    private void emitPending(UUID killerUUID, String killerName, Bucket bucket, Emitter emitter) {
+        int count = bucket.pending;
+        bucket.pending = 0;
+        pendingBuckets.decrementAndGet();
+        emitter.emit(killerUUID, killerName, bucket.keyId, bucket.lastKill, count);
+    }
+
+    // One killer's buckets. A player only ever farms a handful of kill keys, so a linear scan of a small
+    // array beats a map and never boxes the key.
+    private static class Buckets {
+        final UUID killerUUID;
+        String killerName;
+        Bucket[] buckets = new Bucket[4];
+        int size;
+
+        Buckets(UUID killerUUID) {
+            this.killerUUID = killerUUID;
+        }
+
+        Bucket get(int keyId, Settings settings, long nowMillis) {
+            for (int i = 0; i < size; i++) {
+                if (buckets[i].keyId == keyId) return buckets[i];
+            }
+            if (size == buckets.length) {
+                buckets = Arrays.copyOf(buckets, size * 2);
+            }
+            Bucket bucket = new Bucket(keyId, settings.burst(), nowMillis);
+            buckets[size++] = bucket;
+            return bucket;
+        }
+    }
+
+    private static class Bucket {
+        final int keyId;
+        double tokens;
+        long refilledAt;
+        int pending;
+        long pendingSince;
+        long lastKill;
+
+        Bucket(int keyId, int burst, long nowMillis) {
+            this.keyId = keyId;
+            this.tokens = burst;
+            this.refilledAt = nowMillis;
+        }
+
+        // Whether the delta has to go out before nowMillis: its window is up, or its hour is over, so a delta
+        // never spans two of the index's hourly buckets
+        boolean due(long nowMillis, long windowMillis) {
+            return pending > 0 && (nowMillis - pendingSince >= windowMillis
+                    || Math.floorDiv(nowMillis, HOUR_MILLIS) != Math.floorDiv(pendingSince, HOUR_MILLIS));
+        }
+
+        void refill(Settings settings, long nowMillis) {
+            if (nowMillis <= refilledAt) return;
+            tokens = Math.min(settings.burst(),
+                    tokens + (nowMillis - refilledAt) * settings.eventsPerMinute() / 60_000.0);
+            refilledAt = nowMillis;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// One player's kill counts for one UTC day, kept in memory and rewritten to disk on flush
+public class KillTally {
+
+    public enum Kind {
+        ENTITY,
+        NAMED_ENTITY,
+        PLAYER
+    }
+
+    static final long MILLIS_PER_DAY = 86_400_000L;
+
+    // Told what the day's file held when this tally folded it in, before it wrote anything to it
+    interface LoadListener {
+        void loaded(KillTally tally, long kills, long playerKills);
+    }
+
+    private final KillKeys keys;
+    private final LoadListener loadListener;
+    private final String killerName;
+    private final String killerUUID;
+    private final long epochDay;
+    private final Path file;
+
+    // Entity type kills by KillKeys id
+    private final IntCounterMap counts = new IntCounterMap();
+    // Named entity and player kills by key; these only live as long as the day's tally
+    private final Map<String, int[]> namedEntityCounts = new HashMap<>();
+    private final Map<String, int[]> playerCounts = new HashMap<>();
+    private long lastMillis;
+    private boolean dirty;
+
+    // Set once the day's file has been folded in, by whichever of flush() and a login preload gets there first
+    private final Object loadLock = new Object();
+    private volatile boolean loaded;
+
+    // playerDir is the killer's directory under player_kill_entity_logs
+    public KillTally(KillKeys keys, Path playerDir, String killerName, UUID killerUUID, long nowMillis) {
+        this(keys, playerDir, killerName, killerUUID, nowMillis, (tally, kills, playerKills) -> {
+        });
+    }
+
+    KillTally(KillKeys keys, Path playerDir, String killerName, UUID killerUUID, long nowMillis,
+              LoadListener loadListener) {
+        this.keys = keys;
+        this.loadListener = loadListener;
+        this.killerName = killerName;
+        this.killerUUID = killerUUID.toString();
+        this.epochDay = LogTime.epochDay(nowMillis);
+        this.file = playerDir.resolve(LogTime.dayFileName(nowMillis) + ".txt");
+    }
+
+    public long epochDay() {
+        return epochDay;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    public synchronized void record(int keyId, long nowMillis) {
+        counts.increment(keyId);
+        lastMillis = nowMillis;
+        dirty = true;
+    }
+
+    public synchronized void record(int keyId, int count, long nowMillis) {
+        counts.add(keyId, count);
+        lastMillis = nowMillis;
+        dirty = true;
+    }
+
+    // Counts count kills of any kind by key; entity types go through KillKeys like the keyId overloads
+    public synchronized void record(Kind kind, String key, int count, long nowMillis) {
+        add(kind, key, count);
+        lastMillis = nowMillis;
+        dirty = true;
+    }
+
+    // Total kills counted, including any folded in from disk
+    synchronized long total() {
+        return total(Kind.ENTITY) + total(Kind.NAMED_ENTITY) + total(Kind.PLAYER);
+    }
+
+    // Kills of one kind counted, including any folded in from disk
+    synchronized long total(Kind kind) {
+        long total = 0;
+        switch (kind) {
+            case ENTITY -> {
+                long[] sum = new long[1];
+                counts.forEach((keyId, count) -> sum[0] += count);
+                total = sum[0];
+            }
+            case NAMED_ENTITY -> {
+                for (int[] count : namedEntityCounts.values()) total += count[0];
+            }
+            case PLAYER -> {
+                for (int[] count : playerCounts.values()) total += count[0];
+            }
+        }
+        return total;
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    // Folds in whatever an earlier run already wrote for this day. Safe to call from any thread, and only
+    // reads the file once; KillTallyStore.preload() calls it off the writer thread when a player logs in.
+    public void load() {
+        if (loaded) return;
+        synchronized (loadLock) {
+            if (loaded) return;
+            Map<String, Integer> diskEntityKills = new HashMap<>();
+            Map<String, Integer> diskNamedEntityKills = new HashMap<>();
+            Map<String, Integer> diskPlayerKills = new HashMap<>();
+            KillLogFile.readExistingKillData(file.toString(), diskEntityKills, diskNamedEntityKills, diskPlayerKills);
+
+            synchronized (this) {
+                diskEntityKills.forEach((key, count) -> add(Kind.ENTITY, key, count));
+                diskNamedEntityKills.forEach((key, count) -> add(Kind.NAMED_ENTITY, key, count));
+                diskPlayerKills.forEach((key, count) -> add(Kind.PLAYER, key, count));
+            }
+            long playerKills = sum(diskPlayerKills);
+            loadListener.loaded(this, sum(diskEntityKills) + sum(diskNamedEntityKills) + playerKills, playerKills);
+            loaded = true;
+        }
+    }
+
+    // Called on the writer thread only
+    public void flush() throws IOException {
+        // The first flush folds in the day's file unless a preload already did
+        load();
+
+        IntCounterMap snapshot;
+        Map<String, Integer> namedEntityKills = new HashMap<>();
+        Map<String, Integer> playerKills = new HashMap<>();
+        long nowMillis;
+        synchronized (this) {
+            if (!dirty) return;
+            snapshot = counts.copy();
+            namedEntityCounts.forEach((key, count) -> namedEntityKills.put(key, count[0]));
+            playerCounts.forEach((key, count) -> playerKills.put(key, count[0]));
+            nowMillis = lastMillis;
+            dirty = false;
+        }
+
+        Map<String, Integer> entityKills = new HashMap<>();
+        snapshot.forEach((keyId, count) -> entityKills.put(keys.name(keyId), count));
+
+        Instant now = Instant.ofEpochMilli(nowMillis);
+        ZonedDateTime nowUtc = now.atZone(ZoneOffset.UTC);
+        ZonedDateTime nowLocal = now.atZone(ZoneId.systemDefault());
+
+        try {
+            Files.createDirectories(file.getParent());
+
+            // Write the whole day to a temp file and swap it in, so a crash never leaves a half-written file
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            KillLogFile.writeKillsToFile(temp.toString(), killerName, killerUUID, nowUtc, nowLocal,
+                    entityKills, namedEntityKills, playerKills);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        }
+    }
+
+    private static long sum(Map<String, Integer> counts) {
+        long total = 0;
+        for (int count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    // Caller holds this tally's lock
+    private void add(Kind kind, String key, int count) {
+        Map<String, int[]> byKey = switch (kind) {
+            case ENTITY -> null;
+            case NAMED_ENTITY -> namedEntityCounts;
+            case PLAYER -> playerCounts;
+        };
+        if (byKey == null) {
+            counts.add(keys.intern(key), count);
+            return;
+        }
+
+        int[] counter = byKey.get(key);
+        if (counter == null) {
+            byKey.put(key, new int[]{count});
+        } else {
+            counter[0] += count;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+// Resident per-player kill tallies for the current UTC day.
+// Kills are counted in memory on the server thread(s); the writer thread flushes dirty tallies to disk.
+// Rollover, release and counting for one player all happen under that player's registry lock,
+// so concurrent callers can neither lose a kill nor count into a tally that was already retired.
+public class KillTallyStore implements Flushable {
+
+    private final KillKeys keys = new KillKeys();
+    private final Path logDir;
+    private final PlayerStateRegistry<KillTally> activeTallies = new PlayerStateRegistry<>();
+    private final Queue<KillTally> retiredTallies = new ConcurrentLinkedQueue<>();
+    // Per day file, {kills, player kills} earlier runs had written to it, from the first time this run read it.
+    // Only the latest day's files are kept.
+    private final Map<Path, long[]> earlierKills = new ConcurrentHashMap<>();
+    private volatile long earlierKillsDay = Long.MIN_VALUE;
+    private volatile LogStorage.Layout layout = LogStorage.Layout.NAME;
+
+    public KillTallyStore(Path logDir) {
+        this.logDir = logDir;
+    }
+
+    public KillKeys keys() {
+        return keys;
+    }
+
+    // Applies to tallies started from now on
+    public void setLayout(LogStorage.Layout layout) {
+        this.layout = layout;
+    }
+
+    // Counts an entity type kill; keyId comes from keys(). Once a player's tally for the day exists this does
+    // not allocate
+    public void record(UUID killerUUID, String killerName, long nowMillis, int keyId) {
+        synchronized (activeTallies.lock(killerUUID)) {
+            activeTally(killerUUID, killerName, nowMillis).record(keyId, nowMillis);
+        }
+    }
+
+    // Counts count kills of keyId at once, e.g. a KillEvent that KillSampler folded a farm's kills into
+    public void record(UUID killerUUID, String killerName, long nowMillis, int keyId, int count) {
+        synchronized (activeTallies.lock(killerUUID)) {
+            activeTally(killerUUID, killerName, nowMillis).record(keyId, count, nowMillis);
+        }
+    }
+
+    // Counts count kills of any kind by key, e.g. a named entity or player kill
+    public void record(UUID killerUUID, String killerName, long nowMillis, KillTally.Kind kind, String key, int count) {
+        synchronized (activeTallies.lock(killerUUID)) {
+            activeTally(killerUUID, killerName, nowMillis).record(kind, key, count, nowMillis);
+        }
+    }
+
+    // Starts the player's tally for today and reads what an earlier run wrote for it on loader, so neither
+    // their first kill nor the writer's first flush of it has to wait for the disk. Only online players pay
+    // for this, and only once a day; everyone else's files are never read.
+    public void preload(UUID killerUUID, String killerName, long nowMillis, Executor loader) {
+        KillTally tally;
+        synchronized (activeTallies.lock(killerUUID)) {
+            tally = activeTally(killerUUID, killerName, nowMillis);
+            // After a quick re-login the tally released at logout may not be written yet. Reading the file now
+            // would miss its kills, and this tally would then write over them; its first flush reads it instead,
+            // after the retired one.
+            if (isRetired(tally.file())) return;
+        }
+        loader.execute(tally::load);
+    }
+
+    private boolean isRetired(Path file) {
+        for (KillTally retired : retiredTallies) {
+            if (retired.file().equals(file)) return true;
+        }
+        return false;
+    }
+
+    // Caller holds the player's registry lock
+    private KillTally activeTally(UUID killerUUID, String killerName, long nowMillis) {
+        KillTally tally = activeTallies.get(killerUUID);
+
+        // Day rollover: hand yesterday's tally to the writer and start a fresh one
+        if (tally == null || tally.epochDay() != LogTime.epochDay(nowMillis)) {
+            if (tally != null) {
+                retire(tally);
+            }
+            Path playerDir = logDir.resolve(layout.playerDir(killerName, killerUUID.toString()));
+            tally = new KillTally(keys, playerDir, killerName, killerUUID, nowMillis, this::loaded);
+            activeTallies.put(killerUUID, tally);
+        }
+        return tally;
+    }
+
+    // A later tally for the same file reads this run's kills back too, so only the first read counts
+    private void loaded(KillTally tally, long kills, long playerKills) {
+        synchronized (earlierKills) {
+            if (tally.epochDay() < earlierKillsDay) return;
+            if (tally.epochDay() > earlierKillsDay) {
+                earlierKills.clear();
+                earlierKillsDay = tally.epochDay();
+            }
+            earlierKills.putIfAbsent(tally.file().toAbsolutePath().normalize(), new long[]{kills, playerKills});
+        }
+    }
+
+    // Starts a new server run in this JVM: what the tallies held at the last stop was all written, so it
+    // counts as earlier kills now
+    public void beginRun() {
+        synchronized (earlierKills) {
+            earlierKills.clear();
+            earlierKillsDay = Long.MIN_VALUE;
+        }
+        for (KillTally tally : activeTallies.values()) {
+            if (tally.isLoaded()) {
+                loaded(tally, tally.total(), tally.total(KillTally.Kind.PLAYER));
+            }
+        }
+    }
+
+    // {kills, player kills} the day file held before this run first read it, or null if this run hasn't read it,
+    // in which case it hasn't written to it either. Lets StatsLoader leave out the kills it counted live.
+    public long[] earlierKills(Path file) {
+        return earlierKills.get(file.toAbsolutePath().normalize());
+    }
+
+    // Drops a player's tally from memory once it has been written, e.g. when they log out
+    public void release(UUID killerUUID) {
+        synchronized (activeTallies.lock(killerUUID)) {
+            KillTally tally = activeTallies.remove(killerUUID);
+            if (tally != null) {
+                retire(tally);
+            }
+        }
+    }
+
+    // Kills in the player's tally for today, including any read back from disk; 0 if none is in memory
+    long kills(UUID killerUUID) {
+        synchronized (activeTallies.lock(killerUUID)) {
+            KillTally tally = activeTallies.get(killerUUID);
+            return tally != null ? tally.total() : 0;
+        }
+    }
+
+    // Kills currently held in memory across active and not yet written retired tallies
+    long residentKills() {
+        long total = 0;
+        for (KillTally tally : retiredTallies) {
+            total += tally.total();
+        }
+        for (KillTally tally : activeTallies.values()) {
+            total += tally.total();
+        }
+        return total;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // Retired tallies leave the queue only once written, so preload() can tell one is still pending. If one
+        // fails it stays at the head for the next flush: a newer tally for the same file must not be written first.
+        KillTally retired;
+        while ((retired = retiredTallies.peek()) != null) {
+            retired.flush();
+            retiredTallies.poll();
+        }
+
+        IOException failure = null;
+        for (KillTally tally : activeTallies.values()) {
+            if (!tally.isDirty()) continue;
+            try {
+                tally.flush();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        if (failure != null) throw failure;
+    }
+
+    private void retire(KillTally tally) {
+        retiredTallies.add(tally);
+        AsyncLogWriter.flushSoon();
+    }
+}
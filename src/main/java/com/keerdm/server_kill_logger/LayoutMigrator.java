@@ -0,0 +1,167 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Moves name-keyed player directories (player_death_logs/Steve/...) into the UUID layout
+// (player_death_logs/<uuid>/...), reading each file's "UUID:" line to find its owner.
+// Files for one UUID spread over several old names end up together; kill files for the same day are merged.
+// Today's kill files are left alone because their tally may still be live; run it again tomorrow for those.
+public class LayoutMigrator {
+
+    public record Result(long movedFiles, long mergedFiles, long skippedFiles) {
+    }
+
+    private static final String UUID_LINE = "UUID: ";
+    private static final String NAME_LINE = "Name: ";
+    private static final String PLAYER_LINE = "Player: ";
+
+    private final PlayerNameTable names;
+    private long movedFiles;
+    private long mergedFiles;
+    private long skippedFiles;
+
+    private LayoutMigrator(PlayerNameTable names) {
+        this.names = names;
+    }
+
+    public static Result migrate(Path deathLogDir, Path killLogDir, PlayerNameTable names, long nowMillis)
+            throws IOException {
+        LayoutMigrator migrator = new LayoutMigrator(names);
+        migrator.migrateTree(deathLogDir, false, nowMillis);
+        migrator.migrateTree(killLogDir, true, nowMillis);
+        return new Result(migrator.movedFiles, migrator.mergedFiles, migrator.skippedFiles);
+    }
+
+    private void migrateTree(Path root, boolean killFiles, long nowMillis) throws IOException {
+        if (!Files.isDirectory(root)) return;
+
+        String today = LogTime.dayFileName(nowMillis) + ".txt";
+        try (DirectoryStream<Path> playerDirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path playerDir : playerDirs) {
+                if (isUUID(playerDir.getFileName().toString())) continue;
+
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(playerDir, "*.txt")) {
+                    for (Path file : files) {
+                        if (killFiles && file.getFileName().toString().equals(today)) {
+                            skippedFiles++;
+                            continue;
+                        }
+                        migrateFile(root, playerDir, file, killFiles);
+                    }
+                }
+
+                // Only goes once everything in it has moved
+                try (DirectoryStream<Path> left = Files.newDirectoryStream(playerDir)) {
+                    if (!left.iterator().hasNext()) {
+                        Files.delete(playerDir);
+                    }
+                }
+            }
+        }
+    }
+
+    private void migrateFile(Path root, Path playerDir, Path file, boolean killFile) throws IOException {
+        Map<String, String> header = readHeader(file);
+        String uuidText = header.get(UUID_LINE);
+        if (uuidText == null || !isUUID(uuidText)) {
+            skippedFiles++;
+            return;
+        }
+
+        UUID uuid = UUID.fromString(uuidText);
+        String name = header.getOrDefault(killFile ? NAME_LINE : PLAYER_LINE, playerDir.getFileName().toString());
+        names.updateIfAbsent(uuid, name);
+
+        Path targetDir = root.resolve(uuidText);
+        Files.createDirectories(targetDir);
+        Path target = targetDir.resolve(file.getFileName());
+
+        if (!Files.exists(target)) {
+            Files.move(file, target);
+            movedFiles++;
+        } else if (killFile) {
+            mergeKillFiles(file, target, uuidText, name);
+            Files.delete(file);
+            mergedFiles++;
+        } else {
+            // Two deaths in the same second under different names; keep both
+            String fileName = file.getFileName().toString();
+            String stem = fileName.substring(0, fileName.length() - ".txt".length());
+            int suffix = 2;
+            while (Files.exists(target)) {
+                target = targetDir.resolve(stem + "_" + suffix++ + ".txt");
+            }
+            Files.move(file, target);
+            movedFiles++;
+        }
+    }
+
+    // The same player under two names on one day: add the counts together into the target file
+    private void mergeKillFiles(Path source, Path target, String uuidText, String name) throws IOException {
+        Map<String, Integer> entityKills = new HashMap<>();
+        Map<String, Integer> namedEntityKills = new HashMap<>();
+        Map<String, Integer> playerKills = new HashMap<>();
+        KillLogFile.readExistingKillData(target.toString(), entityKills, namedEntityKills, playerKills);
+
+        Map<String, Integer> sourceEntityKills = new HashMap<>();
+        Map<String, Integer> sourceNamedEntityKills = new HashMap<>();
+        Map<String, Integer> sourcePlayerKills = new HashMap<>();
+        KillLogFile.readExistingKillData(source.toString(), sourceEntityKills, sourceNamedEntityKills, sourcePlayerKills);
+        sourceEntityKills.forEach((key, count) -> entityKills.merge(key, count, Integer::sum));
+        sourceNamedEntityKills.forEach((key, count) -> namedEntityKills.merge(key, count, Integer::sum));
+        sourcePlayerKills.forEach((key, count) -> playerKills.merge(key, count, Integer::sum));
+
+        String latestName = names.name(UUID.fromString(uuidText));
+        ZonedDateTime dayUtc = parseDay(target.getFileName().toString());
+        KillLogFile.writeKillsToFile(target.toString(), latestName != null ? latestName : name, uuidText, dayUtc,
+                dayUtc.withZoneSameInstant(ZoneId.systemDefault()), entityKills, namedEntityKills, playerKills);
+    }
+
+    private static ZonedDateTime parseDay(String fileName) {
+        try {
+            String day = fileName.substring(0, fileName.length() - ".txt".length());
+            return LocalDate.parse(day, LogTime.DAY_FILE).atStartOfDay(ZoneOffset.UTC);
+        } catch (DateTimeParseException | StringIndexOutOfBoundsException e) {
+            return ZonedDateTime.now(ZoneOffset.UTC);
+        }
+    }
+
+    // The "Key: value" lines at the top of a death or kill file
+    private static Map<String, String> readHeader(Path file) throws IOException {
+        Map<String, String> header = new HashMap<>();
+        // Written by FileWriter, i.e. in the platform charset
+        try (BufferedReader reader = Files.newBufferedReader(file, Charset.defaultCharset())) {
+            String line;
+            for (int i = 0; i < 8 && (line = reader.readLine()) != null; i++) {
+                for (String key : new String[]{UUID_LINE, NAME_LINE, PLAYER_LINE}) {
+                    if (line.startsWith(key)) {
+                        header.putIfAbsent(key, line.substring(key.length()).trim());
+                    }
+                }
+            }
+        }
+        return header;
+    }
+
+    private static boolean isUUID(String text) {
+        if (text.length() != 36) return false;
+        try {
+            return UUID.fromString(text).toString().equals(text);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
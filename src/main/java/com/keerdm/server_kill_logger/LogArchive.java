@@ -0,0 +1,109 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Monthly per-player archives written by RetentionManager: player_death_logs/<player>/2026-10.zip holds
+// that month's closed death files, player_kill_entity_logs/<player>/2026-10.zip the daily kill files.
+// Readers go through here so a file is found whether it is still loose or already archived.
+public class LogArchive {
+
+    public static final String SUFFIX = ".zip";
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    public interface EntryVisitor {
+        void visit(String fileName, InputStream in) throws IOException;
+    }
+
+    public static String archiveName(LocalDate day) {
+        return day.format(MONTH) + SUFFIX;
+    }
+
+    // The UTC day a death file (October-17-2026_12-00-00.txt) or kill file (October-17-2026.txt) belongs to,
+    // or null if the name isn't one of ours
+    public static LocalDate fileDay(String fileName) {
+        if (!fileName.endsWith(".txt")) return null;
+
+        int end = fileName.indexOf('_');
+        if (end < 0) end = fileName.length() - ".txt".length();
+        try {
+            return LocalDate.parse(fileName.substring(0, end), LogTime.DAY_FILE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // Opens file whether it is loose or inside its month's archive; null if it is in neither
+    public static InputStream open(Path file) throws IOException {
+        if (Files.exists(file)) return Files.newInputStream(file);
+
+        String fileName = file.getFileName().toString();
+        LocalDate day = fileDay(fileName);
+        if (day == null) return null;
+
+        Path archive = file.resolveSibling(archiveName(day));
+        if (!Files.exists(archive)) return null;
+
+        ZipFile zip = new ZipFile(archive.toFile());
+        ZipEntry entry = zip.getEntry(fileName);
+        if (entry == null) {
+            zip.close();
+            return null;
+        }
+        return closingBoth(zip.getInputStream(entry), zip);
+    }
+
+    // Streams every log file for one player directory, loose files first and then each archive's entries
+    public static void forEach(Path playerDir, EntryVisitor visitor) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(playerDir, "*.txt")) {
+            for (Path file : files) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    visitor.visit(file.getFileName().toString(), in);
+                }
+            }
+        }
+
+        try (DirectoryStream<Path> archives = Files.newDirectoryStream(playerDir, "*" + SUFFIX)) {
+            for (Path archive : archives) {
+                forEachEntry(archive, visitor);
+            }
+        }
+    }
+
+    // Streams every file packed into one archive
+    public static void forEachEntry(Path archive, EntryVisitor visitor) throws IOException {
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                try (InputStream in = zip.getInputStream(entry)) {
+                    visitor.visit(entry.getName(), in);
+                }
+            }
+        }
+    }
+
+    private static InputStream closingBoth(InputStream in, ZipFile zip) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    zip.close();
+                }
+            }
+        };
+    }
+}
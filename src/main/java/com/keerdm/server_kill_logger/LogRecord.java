@@ -0,0 +1,8 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+
+// An immutable snapshot taken on the server thread and written later by the AsyncLogWriter
+public interface LogRecord {
+    void writeTo(LogStorage storage) throws IOException;
+}
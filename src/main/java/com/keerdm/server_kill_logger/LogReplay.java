@@ -0,0 +1,384 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Rebuilds kill and death counts from the raw logs, with no server running: daily kill files and death files
+// (loose or in RetentionManager archives) and journal segments. Sources are split across a fork-join pool,
+// each worker counts into its own Aggregates and the halves are merged on the way back up.
+// Journal segments and other large files are memory-mapped rather than read through a stream.
+public class LogReplay {
+
+    // What a row can be broken down by; anything left out is summed over
+    public enum Dimension {
+        DAY,
+        PLAYER,
+        TARGET
+    }
+
+    // One output row. type is entity, named_entity, player or death; for deaths the target is the damage type.
+    // Dimensions that were rolled up are null.
+    public record Row(String day, String playerUUID, String type, String target) {
+    }
+
+    static final String DEATH = "death";
+
+    // Files at least this big are mapped instead of read into a byte[]
+    static final long MAP_THRESHOLD = 1 << 20;
+    // Sources a fork-join leaf handles itself rather than splitting further
+    private static final int LEAF_SOURCES = 64;
+
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<Row> ROW_ORDER = Comparator.comparing(Row::day, NULLS_FIRST)
+            .thenComparing(Row::playerUUID, NULLS_FIRST)
+            .thenComparing(Row::type, NULLS_FIRST)
+            .thenComparing(Row::target, NULLS_FIRST);
+
+    private enum SourceKind {
+        KILL_FILE,
+        DEATH_FILE,
+        KILL_ARCHIVE,
+        DEATH_ARCHIVE,
+        JOURNAL_SEGMENT
+    }
+
+    private record Source(SourceKind kind, Path path) {
+    }
+
+    public static class Aggregates {
+        private final EnumSet<Dimension> by;
+        private final Map<Row, long[]> counts = new HashMap<>();
+        // Days, UUIDs and targets repeat across millions of lines; keep one copy of each
+        private final Map<String, String> strings = new HashMap<>();
+        // Latest name seen per UUID, and the day it was seen on
+        private final Map<String, String[]> names = new HashMap<>();
+        private long sources;
+        private long records;
+
+        Aggregates(EnumSet<Dimension> by) {
+            this.by = by;
+        }
+
+        public long sources() {
+            return sources;
+        }
+
+        // Kill file lines, death files and journal records counted
+        public long records() {
+            return records;
+        }
+
+        public String name(String playerUUID) {
+            String[] seen = names.get(playerUUID);
+            return seen != null ? seen[1] : null;
+        }
+
+        // Counts are summed over the dimensions left out of by as they come in, so only output rows are held
+        void add(String day, String playerUUID, String playerName, String type, String target, long count) {
+            Row row = new Row(
+                    by.contains(Dimension.DAY) ? canonical(day) : null,
+                    by.contains(Dimension.PLAYER) ? canonical(playerUUID) : null,
+                    type,
+                    by.contains(Dimension.TARGET) ? canonical(target) : null);
+            counts.computeIfAbsent(row, key -> new long[1])[0] += count;
+            records++;
+            if (playerName != null && by.contains(Dimension.PLAYER)) {
+                noteName(playerUUID, day, playerName);
+            }
+        }
+
+        private String canonical(String value) {
+            String existing = strings.putIfAbsent(value, value);
+            return existing != null ? existing : value;
+        }
+
+        private void noteName(String playerUUID, String day, String playerName) {
+            String[] seen = names.get(playerUUID);
+            if (seen == null) {
+                names.put(canonical(playerUUID), new String[]{day, playerName});
+            } else if (day.compareTo(seen[0]) >= 0) {
+                seen[0] = day;
+                seen[1] = playerName;
+            }
+        }
+
+        void merge(Aggregates other) {
+            other.counts.forEach((row, count) -> counts.computeIfAbsent(row, key -> new long[1])[0] += count[0]);
+            other.names.forEach((uuid, seen) -> noteName(uuid, seen[0], seen[1]));
+            sources += other.sources;
+            records += other.records;
+        }
+
+        // The rows sorted by day, player, type and target
+        public Map<Row, Long> rows() {
+            Map<Row, Long> rows = new TreeMap<>(ROW_ORDER);
+            counts.forEach((row, count) -> rows.put(row, count[0]));
+            return rows;
+        }
+    }
+
+    // by picks the dimensions rows are broken down by; everything else is summed over
+    public static Aggregates run(List<Path> killDirs, List<Path> deathDirs, List<Path> journalDirs,
+                                 EnumSet<Dimension> by, ForkJoinPool pool) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        for (Path killDir : killDirs) {
+            collectTree(killDir, SourceKind.KILL_FILE, SourceKind.KILL_ARCHIVE, sources);
+        }
+        for (Path deathDir : deathDirs) {
+            collectTree(deathDir, SourceKind.DEATH_FILE, SourceKind.DEATH_ARCHIVE, sources);
+        }
+        for (Path journalDir : journalDirs) {
+            for (Path segment : JournalReader.segments(journalDir)) {
+                sources.add(new Source(SourceKind.JOURNAL_SEGMENT, segment));
+            }
+        }
+
+        try {
+            return pool.invoke(new ReplayTask(sources, 0, sources.size(), by));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void collectTree(Path root, SourceKind fileKind, SourceKind archiveKind, List<Source> sources)
+            throws IOException {
+        if (!Files.isDirectory(root)) return;
+        try (DirectoryStream<Path> playerDirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path playerDir : playerDirs) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(playerDir)) {
+                    for (Path file : files) {
+                        String fileName = file.getFileName().toString();
+                        if (fileName.endsWith(".txt")) {
+                            sources.add(new Source(fileKind, file));
+                        } else if (fileName.endsWith(LogArchive.SUFFIX)) {
+                            sources.add(new Source(archiveKind, file));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static class ReplayTask extends RecursiveTask<Aggregates> {
+        private final List<Source> sources;
+        private final int from;
+        private final int to;
+        private final EnumSet<Dimension> by;
+
+        ReplayTask(List<Source> sources, int from, int to, EnumSet<Dimension> by) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.by = by;
+        }
+
+        @Override
+        protected Aggregates compute() {
+            if (to - from <= LEAF_SOURCES) {
+                Aggregates aggregates = new Aggregates(by);
+                for (int i = from; i < to; i++) {
+                    try {
+                        replay(sources.get(i), aggregates);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(sources.get(i).path() + ": " + e.getMessage(), e);
+                    }
+                }
+                return aggregates;
+            }
+
+            int middle = (from + to) >>> 1;
+            ReplayTask left = new ReplayTask(sources, from, middle, by);
+            left.fork();
+            Aggregates right = new ReplayTask(sources, middle, to, by).compute();
+            Aggregates aggregates = left.join();
+            aggregates.merge(right);
+            return aggregates;
+        }
+    }
+
+    private static void replay(Source source, Aggregates aggregates) throws IOException {
+        aggregates.sources++;
+        Path path = source.path();
+        String fallbackName = path.getParent().getFileName().toString();
+
+        switch (source.kind()) {
+            case KILL_FILE -> replayKillFile(path.getFileName().toString(), readText(path), fallbackName, aggregates);
+            case DEATH_FILE -> replayDeathFile(path.getFileName().toString(), readText(path), fallbackName, aggregates);
+            case KILL_ARCHIVE -> LogArchive.forEachEntry(path, (fileName, in) ->
+                    replayKillFile(fileName, new String(in.readAllBytes(), StandardCharsets.UTF_8), fallbackName, aggregates));
+            case DEATH_ARCHIVE -> LogArchive.forEachEntry(path, (fileName, in) ->
+                    replayDeathFile(fileName, new String(in.readAllBytes(), StandardCharsets.UTF_8), fallbackName, aggregates));
+            case JOURNAL_SEGMENT -> replaySegment(path, aggregates);
+        }
+    }
+
+    private static void replayKillFile(String fileName, String text, String fallbackName, Aggregates aggregates) {
+        LocalDate day = LogArchive.fileDay(fileName);
+        if (day == null) return;
+
+        Map<String, Integer> entityKills = new HashMap<>();
+        Map<String, Integer> namedEntityKills = new HashMap<>();
+        Map<String, Integer> playerKills = new HashMap<>();
+        KillLogFile.parseKillData(text, entityKills, namedEntityKills, playerKills);
+
+        String dayText = day.toString();
+        String uuid = headerValue(text, "UUID: ", "");
+        String name = headerValue(text, "Name: ", fallbackName);
+        entityKills.forEach((key, count) -> aggregates.add(dayText, uuid, name, type(KillTally.Kind.ENTITY), key, count));
+        namedEntityKills.forEach((key, count) ->
+                aggregates.add(dayText, uuid, name, type(KillTally.Kind.NAMED_ENTITY), key, count));
+        playerKills.forEach((key, count) -> aggregates.add(dayText, uuid, name, type(KillTally.Kind.PLAYER), key, count));
+    }
+
+    private static void replayDeathFile(String fileName, String text, String fallbackName, Aggregates aggregates) {
+        LocalDate day = LogArchive.fileDay(fileName);
+        if (day == null) return;
+
+        aggregates.add(day.toString(), headerValue(text, "UUID: ", ""), headerValue(text, "Player: ", fallbackName),
+                DEATH, headerValue(text, "Damage Type: ", "unknown"), 1);
+    }
+
+    private static void replaySegment(Path segment, Aggregates aggregates) throws IOException {
+        JournalReader.Visitor visitor = new JournalReader.Visitor() {
+            @Override
+            public void onDeath(PlayerDeathEventHandler.DeathInfo deathInfo) {
+                aggregates.add(day(deathInfo.timeMillis), deathInfo.playerUUID, deathInfo.playerName, DEATH,
+                        deathInfo.damageType, 1);
+            }
+
+            @Override
+            public void onKill(KillEvent kill) {
+                aggregates.add(day(kill.timeMillis), kill.killerUUID.toString(), kill.killerName, type(kill.kind),
+                        kill.key, kill.count);
+            }
+        };
+
+        long size = Files.size(segment);
+        if (size < MAP_THRESHOLD || size > Integer.MAX_VALUE) {
+            JournalReader.readSegment(segment, visitor);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(segment)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            JournalReader.readSegment(new DataInputStream(new ByteBufferInputStream(mapped)), segment, visitor);
+        }
+    }
+
+    // Kill and death files are read back as UTF-8, like KillLogFile does
+    private static String readText(Path file) throws IOException {
+        long size = Files.size(file);
+        if (size < MAP_THRESHOLD || size > Integer.MAX_VALUE) {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            return StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size)).toString();
+        }
+    }
+
+    // The value of the first "Key: value" line, which for our files is always in the header
+    static String headerValue(String text, String key, String fallback) {
+        int start = text.startsWith(key) ? 0 : text.indexOf("\n" + key);
+        if (start < 0) return fallback;
+        if (start > 0) start++;
+
+        int end = text.indexOf('\n', start);
+        if (end < 0) end = text.length();
+        return text.substring(start + key.length(), end).trim();
+    }
+
+    private static String type(KillTally.Kind kind) {
+        return kind.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String day(long timeMillis) {
+        return LocalDate.ofEpochDay(LogTime.epochDay(timeMillis)).toString();
+    }
+
+    public static void writeCsv(Map<Row, Long> rows, Aggregates aggregates, OutputStream out) throws IOException {
+        StringBuilder line = new StringBuilder("day,uuid,player,type,target,count\n");
+        for (Map.Entry<Row, Long> entry : rows.entrySet()) {
+            Row row = entry.getKey();
+            appendCsv(line, row.day()).append(',');
+            appendCsv(line, row.playerUUID()).append(',');
+            appendCsv(line, row.playerUUID() != null ? aggregates.name(row.playerUUID()) : null).append(',');
+            appendCsv(line, row.type()).append(',');
+            appendCsv(line, row.target()).append(',');
+            line.append(entry.getValue()).append('\n');
+            if (line.length() >= 1 << 16) {
+                out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+                line.setLength(0);
+            }
+        }
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value == null) return line;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return line.append(value);
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    // One JSON object per line, like the JSONL storage backend
+    public static void writeJson(Map<Row, Long> rows, Aggregates aggregates, OutputStream out) throws IOException {
+        JsonLineWriter json = new JsonLineWriter();
+        for (Map.Entry<Row, Long> entry : rows.entrySet()) {
+            Row row = entry.getKey();
+            json.reset();
+            json.beginObject();
+            if (row.day() != null) json.field("day", row.day());
+            if (row.playerUUID() != null) {
+                json.field("uuid", row.playerUUID())
+                        .field("player", aggregates.name(row.playerUUID()));
+            }
+            json.field("type", row.type());
+            if (row.target() != null) json.field("target", row.target());
+            json.field("count", entry.getValue())
+                    .endObject().endLine();
+            out.write(json.buffer(), 0, json.size());
+        }
+    }
+
+    // Lets JournalReader's DataInputStream read straight out of a mapped segment
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
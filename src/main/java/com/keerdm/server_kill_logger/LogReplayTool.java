@@ -0,0 +1,151 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Offline entry point for LogReplay and IndexRebuilder; the mod jar's Main-Class, so from the server directory:
+//   java -jar server_kill_logger-<version>.jar --format csv --by day,player --out kills.csv
+//   java -jar server_kill_logger-<version>.jar --rebuild-index player_log_index
+// Nothing here touches Minecraft classes.
+public class LogReplayTool {
+
+    private static final String USAGE = String.join("\n",
+            "Rebuilds kill and death counts from the logs and writes them as CSV or JSON Lines.",
+            "",
+            "Options (with none of --kills, --deaths or --journal, the default directories that exist are read):",
+            "  --kills <dir>        daily kill files, e.g. player_kill_entity_logs",
+            "  --deaths <dir>       death files, e.g. player_death_logs",
+            "  --journal <dir>      journal segments, e.g. " + JournalLogStorage.DEFAULT_DIR,
+            "  --format csv|json    output format (default csv)",
+            "  --by <dimensions>    comma-separated from day, player, target (default day,player,target)",
+            "  --out <file>         write here instead of standard output",
+            "  --threads <n>        parallelism (default: available processors)",
+            "  --rebuild-index <dir>  build the event index from the logs into dir instead, which must not hold",
+            "                       an index yet; with the server stopped, move the old one away and rebuild",
+            "                       into " + EventIndex.DEFAULT_DIR);
+
+    public static void main(String[] args) {
+        try {
+            System.exit(run(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("Replay failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    static int run(String[] args) throws IOException {
+        List<Path> killDirs = new ArrayList<>();
+        List<Path> deathDirs = new ArrayList<>();
+        List<Path> journalDirs = new ArrayList<>();
+        String format = "csv";
+        EnumSet<LogReplay.Dimension> by = EnumSet.allOf(LogReplay.Dimension.class);
+        Path outFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path indexDir = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--help") || option.equals("-h")) {
+                System.out.println(USAGE);
+                return 0;
+            }
+            if (i + 1 == args.length) throw new IllegalArgumentException("Missing value for " + option);
+            String value = args[++i];
+            switch (option) {
+                case "--kills" -> killDirs.add(Paths.get(value));
+                case "--deaths" -> deathDirs.add(Paths.get(value));
+                case "--journal" -> journalDirs.add(Paths.get(value));
+                case "--format" -> {
+                    format = value.toLowerCase(Locale.ROOT);
+                    if (!format.equals("csv") && !format.equals("json")) {
+                        throw new IllegalArgumentException("Unknown format " + value);
+                    }
+                }
+                case "--by" -> by = parseDimensions(value);
+                case "--out" -> outFile = Paths.get(value);
+                case "--rebuild-index" -> indexDir = Paths.get(value);
+                case "--threads" -> {
+                    try {
+                        threads = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        threads = 0;
+                    }
+                    if (threads < 1) throw new IllegalArgumentException("Invalid thread count " + value);
+                }
+                default -> throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+
+        if (killDirs.isEmpty() && deathDirs.isEmpty() && journalDirs.isEmpty()) {
+            addIfPresent(killDirs, Paths.get("player_kill_entity_logs"));
+            addIfPresent(deathDirs, Paths.get("player_death_logs"));
+            addIfPresent(journalDirs, Paths.get(JournalLogStorage.DEFAULT_DIR));
+            if (killDirs.isEmpty() && deathDirs.isEmpty() && journalDirs.isEmpty()) {
+                throw new IllegalArgumentException("No log directories found here; pass --kills, --deaths or --journal");
+            }
+        }
+
+        long start = System.nanoTime();
+        if (indexDir != null) {
+            IndexRebuilder.Result result = IndexRebuilder.rebuild(indexDir, killDirs, deathDirs, journalDirs);
+            System.err.printf(Locale.ROOT, "Indexed %d deaths and %d hourly kill counts from %d files and segments in %.1fs%n",
+                    result.deaths(), result.killEntries(), result.sources(), (System.nanoTime() - start) / 1e9);
+            return 0;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        LogReplay.Aggregates aggregates;
+        try {
+            aggregates = LogReplay.run(killDirs, deathDirs, journalDirs, by, pool);
+        } finally {
+            pool.shutdown();
+        }
+        Map<LogReplay.Row, Long> rows = aggregates.rows();
+
+        try (OutputStream out = new BufferedOutputStream(outFile != null
+                ? Files.newOutputStream(outFile) : System.out, 1 << 16)) {
+            if (format.equals("json")) {
+                LogReplay.writeJson(rows, aggregates, out);
+            } else {
+                LogReplay.writeCsv(rows, aggregates, out);
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf(Locale.ROOT, "Read %d files and segments (%d records) into %d rows in %.1fs, %.0f files/s%n",
+                aggregates.sources(), aggregates.records(), rows.size(), seconds, aggregates.sources() / seconds);
+        return 0;
+    }
+
+    private static EnumSet<LogReplay.Dimension> parseDimensions(String value) {
+        EnumSet<LogReplay.Dimension> dimensions = EnumSet.noneOf(LogReplay.Dimension.class);
+        for (String name : value.split(",")) {
+            if (name.isBlank()) continue;
+            try {
+                dimensions.add(LogReplay.Dimension.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown dimension " + name.trim());
+            }
+        }
+        return dimensions;
+    }
+
+    private static void addIfPresent(List<Path> dirs, Path dir) {
+        if (Files.isDirectory(dir)) dirs.add(dir);
+    }
+}
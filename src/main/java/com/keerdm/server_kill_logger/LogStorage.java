@@ -0,0 +1,58 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+// Where death and kill records end up. Only ever called from the writer thread.
+public interface LogStorage extends Flushable, Closeable {
+
+    enum Backend {
+        TEXT,
+        JOURNAL,
+        JSONL
+    }
+
+    // How the per-player directories in player_death_logs and player_kill_entity_logs are named
+    enum Layout {
+        // The player's current name; a rename starts a new directory
+        NAME,
+        // The player's UUID; names are kept in PlayerNameTable
+        UUID;
+
+        public String playerDir(String playerName, String playerUUID) {
+            return this == UUID ? playerUUID : playerName;
+        }
+    }
+
+    // When written data is forced to disk
+    enum SyncPolicy {
+        // Leave it to the OS
+        NONE,
+        // After every batch the writer thread drains
+        BATCH,
+        // On every flush interval and on shutdown
+        INTERVAL
+    }
+
+    void writeDeath(PlayerDeathEventHandler.DeathInfo deathInfo) throws IOException;
+
+    void writeKill(KillEvent kill) throws IOException;
+
+    // Whether individual kill events should be queued for this storage at all
+    default boolean storesKillEvents() {
+        return false;
+    }
+
+    // Called after each batch drained by the writer thread; storages that buffer records write them out here
+    default void commit() throws IOException {
+    }
+
+    @Override
+    default void flush() throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,57 @@
+package com.keerdm.server_kill_logger;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+// Every date and time the logs print, with the formatters compiled once.
+// Event handlers only take a single clock reading (now()) and store the epoch millis; the text
+// forms are produced on the writer thread. The UTC day strings are cached until UTC midnight.
+public class LogTime {
+
+    static final DateTimeFormatter DEATH_TIME_UTC = DateTimeFormatter.ofPattern("MMMM dd, yyyy HH:mm:ss 'UTC'");
+    static final DateTimeFormatter DEATH_TIME_LOCAL = DateTimeFormatter.ofPattern("MMMM dd, yyyy HH:mm:ss z");
+    static final DateTimeFormatter DEATH_FILE = DateTimeFormatter.ofPattern("MMMM-dd-yyyy_HH-mm-ss");
+    static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("MMMM dd, yyyy");
+    static final DateTimeFormatter DAY_FILE = DateTimeFormatter.ofPattern("MMMM-dd-yyyy");
+
+    private record CachedDay(long epochDay, String fileName) {
+    }
+
+    private static volatile CachedDay cachedDay = new CachedDay(Long.MIN_VALUE, null);
+
+    public static long now() {
+        return System.currentTimeMillis();
+    }
+
+    public static long epochDay(long timeMillis) {
+        return Math.floorDiv(timeMillis, KillTally.MILLIS_PER_DAY);
+    }
+
+    // e.g. "October 17, 2026 12:00:00 UTC"
+    public static String deathTimeUtc(long timeMillis) {
+        return Instant.ofEpochMilli(timeMillis).atZone(ZoneOffset.UTC).format(DEATH_TIME_UTC);
+    }
+
+    // e.g. "October 17, 2026 14:00:00 CEST", in the server's time zone
+    public static String deathTimeLocal(long timeMillis) {
+        return Instant.ofEpochMilli(timeMillis).atZone(ZoneId.systemDefault()).format(DEATH_TIME_LOCAL);
+    }
+
+    // e.g. "October-17-2026_12-00-00", the name of a death log file without ".txt"
+    public static String deathFileName(long timeMillis) {
+        return Instant.ofEpochMilli(timeMillis).atZone(ZoneOffset.UTC).format(DEATH_FILE);
+    }
+
+    // e.g. "October-17-2026", the name of a daily kill file without ".txt"
+    public static String dayFileName(long timeMillis) {
+        long epochDay = epochDay(timeMillis);
+        CachedDay day = cachedDay;
+        if (day.epochDay() != epochDay) {
+            day = new CachedDay(epochDay, Instant.ofEpochMilli(timeMillis).atZone(ZoneOffset.UTC).format(DAY_FILE));
+            cachedDay = day;
+        }
+        return day.fileName();
+    }
+}
@@ -0,0 +1,143 @@
+package com.keerdm.server_kill_logger;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide counters for what the logger costs the server. Everything here is striped
+// (LongAdder) or a LatencyHistogram, so recording never contends with the writer thread.
+public class LoggerMetrics {
+
+    // Time spent in the event handlers on the server thread
+    public static final LatencyHistogram DEATH_CAPTURE = new LatencyHistogram();
+    public static final LatencyHistogram KILL_CAPTURE = new LatencyHistogram();
+    // Time the writer thread spends rendering and staging one record, and committing one batch to disk
+    public static final LatencyHistogram RECORD_WRITE = new LatencyHistogram();
+    public static final LatencyHistogram BATCH_COMMIT = new LatencyHistogram();
+
+    private static final LongAdder DEATHS = new LongAdder();
+    private static final LongAdder KILLS = new LongAdder();
+    private static final LongAdder KILLS_COALESCED = new LongAdder();
+    private static final LongAdder RECORDS_WRITTEN = new LongAdder();
+    private static final LongAdder RECORDS_TRUNCATED = new LongAdder();
+    private static final LongAdder RECORDS_REJECTED = new LongAdder();
+    private static final LongAdder BYTES_WRITTEN = new LongAdder();
+    private static final LongAdder FILE_OPENS = new LongAdder();
+
+    private static final long STARTED_NANOS = System.nanoTime();
+
+    public static void deathCaptured(long startNanos) {
+        DEATH_CAPTURE.recordSince(startNanos);
+        DEATHS.increment();
+    }
+
+    public static void killCaptured(long startNanos) {
+        KILL_CAPTURE.recordSince(startNanos);
+        KILLS.increment();
+    }
+
+    // A kill counted into a KillSampler delta instead of being queued as its own event
+    public static void killCoalesced() {
+        KILLS_COALESCED.increment();
+    }
+
+    public static void recordWritten(long startNanos) {
+        RECORD_WRITE.recordSince(startNanos);
+        RECORDS_WRITTEN.increment();
+    }
+
+    // A record that only fit the storage's size limit once its item NBT was cut
+    public static void recordTruncated() {
+        RECORDS_TRUNCATED.increment();
+    }
+
+    // A record the storage refused because it was over its size limit even after truncating
+    public static void recordRejected() {
+        RECORDS_REJECTED.increment();
+    }
+
+    public static void bytesWritten(long bytes) {
+        BYTES_WRITTEN.add(bytes);
+    }
+
+    public static void fileOpened() {
+        FILE_OPENS.increment();
+    }
+
+    public static long deaths() {
+        return DEATHS.sum();
+    }
+
+    public static long kills() {
+        return KILLS.sum();
+    }
+
+    public static long killsCoalesced() {
+        return KILLS_COALESCED.sum();
+    }
+
+    public static long recordsWritten() {
+        return RECORDS_WRITTEN.sum();
+    }
+
+    public static long recordsTruncated() {
+        return RECORDS_TRUNCATED.sum();
+    }
+
+    public static long recordsRejected() {
+        return RECORDS_REJECTED.sum();
+    }
+
+    public static long bytesWritten() {
+        return BYTES_WRITTEN.sum();
+    }
+
+    public static long fileOpens() {
+        return FILE_OPENS.sum();
+    }
+
+    public static double uptimeSeconds() {
+        return (System.nanoTime() - STARTED_NANOS) / 1e9;
+    }
+
+    // Deaths and kills per second, averaged since the mod was loaded
+    public static double eventsPerSecond() {
+        double uptime = uptimeSeconds();
+        return uptime <= 0 ? 0 : (DEATHS.sum() + KILLS.sum()) / uptime;
+    }
+
+    // A few lines for /killlog stats
+    public static String summary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("Events: %d deaths, %d kills (%.2f/s), %d kills coalesced",
+                deaths(), kills(), eventsPerSecond(), killsCoalesced()));
+        summary.append(String.format("\nWriter: %d records, %s, %d file opens, queue %d, dropped %d",
+                recordsWritten(), formatBytes(bytesWritten()), fileOpens(),
+                AsyncLogWriter.currentQueueDepth(), AsyncLogWriter.currentDroppedRecords()));
+        if (recordsTruncated() > 0 || recordsRejected() > 0) {
+            summary.append(String.format("\nOversized records: %d truncated, %d rejected",
+                    recordsTruncated(), recordsRejected()));
+        }
+        appendHistogram(summary, "Death capture", DEATH_CAPTURE);
+        appendHistogram(summary, "Kill capture", KILL_CAPTURE);
+        appendHistogram(summary, "Record write", RECORD_WRITE);
+        appendHistogram(summary, "Batch commit", BATCH_COMMIT);
+        return summary.toString();
+    }
+
+    private static void appendHistogram(StringBuilder summary, String name, LatencyHistogram histogram) {
+        summary.append(String.format("\n%s: n=%d mean=%s p50=%s p99=%s max=%s", name, histogram.count(),
+                formatNanos((long) histogram.meanNanos()), formatNanos(histogram.percentileNanos(0.5)),
+                formatNanos(histogram.percentileNanos(0.99)), formatNanos(histogram.maxNanos())));
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 10_000) return nanos + "ns";
+        if (nanos < 10_000_000) return (nanos / 1_000) + "us";
+        return (nanos / 1_000_000) + "ms";
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 10 * 1024) return bytes + " B";
+        if (bytes < 10 * 1024 * 1024) return (bytes / 1024) + " KiB";
+        return (bytes / (1024 * 1024)) + " MiB";
+    }
+}
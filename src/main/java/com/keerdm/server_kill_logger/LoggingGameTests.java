@@ -0,0 +1,147 @@
+package com.keerdm.server_kill_logger;
+
+import com.mojang.authlib.GameProfile;
+import net.minecraft.core.BlockPos;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.monster.Zombie;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.gametest.GameTestHolder;
+import net.minecraftforge.gametest.PrefixGameTestTemplate;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+// Real deaths through the real event bus: the kill tests kill a spawned entity or a mock player, so the death
+// goes through DeathEventDispatcher and every sink exactly as in a game; the nearby-players test moves mock
+// players around a death's position. Only enabled where
+// forge.enabledGameTestNamespaces names the mod, as in the runs in build.gradle:
+//
+//   ./gradlew runGameTestServer
+//
+// Killers are mock players with a fresh UUID and name, so their tallies and leaderboard entries start empty.
+@GameTestHolder(Server_Kill_Logger.MODID)
+@PrefixGameTestTemplate(false)
+public class LoggingGameTests {
+
+    @GameTest(template = "empty")
+    public static void entityKillIsCountedBySinks(GameTestHelper helper) {
+        Player killer = mockPlayer(helper);
+        Zombie zombie = helper.spawnWithNoFreeWill(EntityType.ZOMBIE, 1, 2, 1);
+        zombie.hurt(helper.getLevel().damageSources().playerAttack(killer), Float.MAX_VALUE);
+
+        helper.assertTrue(zombie.isDeadOrDying(), "Zombie survived");
+        assertKills(helper, killer, 1, 0);
+        helper.succeed();
+    }
+
+    @GameTest(template = "empty")
+    public static void namedEntityKillIsCountedBySinks(GameTestHelper helper) {
+        Player killer = mockPlayer(helper);
+        Zombie zombie = helper.spawnWithNoFreeWill(EntityType.ZOMBIE, 1, 2, 1);
+        zombie.setCustomName(Component.literal("Bob"));
+        zombie.hurt(helper.getLevel().damageSources().playerAttack(killer), Float.MAX_VALUE);
+
+        assertKills(helper, killer, 1, 0);
+        helper.succeed();
+    }
+
+    @GameTest(template = "empty")
+    public static void playerKillIsLoggedAndCounted(GameTestHelper helper) {
+        Player killer = mockPlayer(helper);
+        ServerPlayer victim = helper.makeMockServerPlayerInLevel();
+        long deathsBefore = LoggerMetrics.deaths();
+        // die() straight away, whatever the server's PvP setting
+        victim.die(helper.getLevel().damageSources().playerAttack(killer));
+
+        long now = System.currentTimeMillis();
+        helper.assertTrue(LoggerMetrics.deaths() > deathsBefore, "Death log sink didn't capture the death");
+        helper.assertTrue(StatsEventHandler.STATS.score(victim.getUUID(), StatsEngine.Metric.DEATHS,
+                StatsEngine.Window.HOUR, now) == 1, "Victim's death not on the leaderboard");
+        assertKills(helper, killer, 1, 1);
+        helper.succeed();
+    }
+
+    @GameTest(template = "empty")
+    public static void nearbyPlayersFollowPlayersWhoMoveAfterTheGridIsBuilt(GameTestHelper helper) {
+        ServerLevel level = helper.getLevel();
+        ServerPlayer center = helper.makeMockServerPlayerInLevel();
+        ServerPlayer walker = helper.makeMockServerPlayerInLevel();
+        ServerPlayer teleporter = helper.makeMockServerPlayerInLevel();
+        Vec3 origin = helper.absoluteVec(new Vec3(2.5, 2, 2.5));
+        center.moveTo(origin.x, origin.y, origin.z);
+        walker.moveTo(origin.x + 12, origin.y, origin.z);
+        teleporter.moveTo(origin.x + 500, origin.y, origin.z);
+
+        // As during a level tick, with the grid used however few players are online
+        PlayerDeathEventHandler.beginLevelTick(level);
+        try {
+            List<Player> before = PlayerDeathEventHandler.getNearbyPlayers(center, 10, 0);
+            helper.assertTrue(before.contains(center) && !before.contains(walker) && !before.contains(teleporter),
+                    "Players out of range listed before moving");
+
+            // Walks into range without any event, within the grid's margin
+            walker.moveTo(origin.x + 5, origin.y, origin.z);
+            // Teleports into range from far outside the margin, as /tp does it
+            CommandSourceStack source = level.getServer().createCommandSourceStack().withSuppressedOutput();
+            level.getServer().getCommands().performPrefixedCommand(source, String.format(Locale.ROOT,
+                    "tp %s %.1f %.1f %.1f", teleporter.getStringUUID(), origin.x - 3, origin.y, origin.z));
+
+            List<Player> after = PlayerDeathEventHandler.getNearbyPlayers(center, 10, 0);
+            helper.assertTrue(after.contains(walker), "Player who walked into range after the grid was built missed");
+            helper.assertTrue(after.contains(teleporter),
+                    "Player who teleported into range after the grid was built missed");
+
+            // And out again: never listed stale
+            walker.moveTo(origin.x + 30, origin.y, origin.z);
+            helper.assertTrue(!PlayerDeathEventHandler.getNearbyPlayers(center, 10, 0).contains(walker),
+                    "Player who walked out of range still listed");
+        } finally {
+            PlayerDeathEventHandler.endLevelTick(level);
+            for (ServerPlayer player : List.of(center, walker, teleporter)) {
+                level.getServer().getPlayerList().remove(player);
+            }
+        }
+        helper.succeed();
+    }
+
+    // What the tallies and the leaderboards hold for killer, who has killed nothing before this test
+    private static void assertKills(GameTestHelper helper, Player killer, long kills, long playerKills) {
+        long now = System.currentTimeMillis();
+        UUID uuid = killer.getUUID();
+        long tallied = PlayerKillEntityEventHandler.KILL_TALLIES.kills(uuid);
+        long scored = StatsEventHandler.STATS.score(uuid, StatsEngine.Metric.KILLS, StatsEngine.Window.HOUR, now);
+        long scoredPlayerKills = StatsEventHandler.STATS.score(uuid, StatsEngine.Metric.PLAYER_KILLS,
+                StatsEngine.Window.HOUR, now);
+        if (Config.writeDailyTallies) {
+            helper.assertTrue(tallied == kills, "Tally holds " + tallied + " kills, expected " + kills);
+        }
+        helper.assertTrue(scored == kills, "Leaderboard holds " + scored + " kills, expected " + kills);
+        helper.assertTrue(scoredPlayerKills == playerKills,
+                "Leaderboard holds " + scoredPlayerKills + " player kills, expected " + playerKills);
+    }
+
+    // Like GameTestHelper.makeMockPlayer(), but with its own name so its kill file is new too
+    private static Player mockPlayer(GameTestHelper helper) {
+        UUID uuid = UUID.randomUUID();
+        GameProfile profile = new GameProfile(uuid, "klt-" + uuid.toString().substring(0, 8));
+        return new Player(helper.getLevel(), BlockPos.ZERO, 0.0F, profile) {
+            @Override
+            public boolean isSpectator() {
+                return false;
+            }
+
+            @Override
+            public boolean isCreative() {
+                return false;
+            }
+        };
+    }
+}
@@ -0,0 +1,206 @@
+package com.keerdm.server_kill_logger;
+
+import net.minecraft.nbt.ByteArrayTag;
+import net.minecraft.nbt.ByteTag;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.DoubleTag;
+import net.minecraft.nbt.EndTag;
+import net.minecraft.nbt.FloatTag;
+import net.minecraft.nbt.IntArrayTag;
+import net.minecraft.nbt.IntTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.LongArrayTag;
+import net.minecraft.nbt.LongTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.ShortTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.nbt.TagVisitor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// The TRUNCATE and HASH forms of item NBT, without ever building the full SNBT text a shulker box dump
+// turns into. snbt() writes the same text as Tag.toString() but stops at the limit; sha256() streams the
+// binary tag through a digest kept per thread.
+public class NbtFormat {
+
+    private static final Pattern SIMPLE_KEY = Pattern.compile("[A-Za-z0-9._+-]+");
+    private static final String TRUNCATED = "... (truncated)";
+
+    private static final ThreadLocal<Hasher> HASHERS = ThreadLocal.withInitial(Hasher::new);
+
+    // At most maxChars chars of the tag's SNBT text, followed by a note if it was cut short
+    public static String snbt(Tag tag, int maxChars) {
+        BoundedWriter writer = new BoundedWriter(maxChars);
+        try {
+            tag.accept(writer);
+        } catch (LimitReached e) {
+            int end = maxChars;
+            // Don't split a surrogate pair
+            if (end > 0 && Character.isHighSurrogate(writer.text.charAt(end - 1))) end--;
+            writer.text.setLength(end);
+            writer.text.append(TRUNCATED);
+        }
+        return writer.text.toString();
+    }
+
+    // The first 16 bytes of the SHA-256 of the tag's binary form, as hex
+    public static String sha256(CompoundTag tag) throws IOException {
+        Hasher hasher = HASHERS.get();
+        hasher.digest.reset();
+        NbtIo.write(tag, hasher.out);
+        return CaptureProfile.hex(hasher.digest.digest(), 16);
+    }
+
+    private static class Hasher {
+        final MessageDigest digest;
+        final DataOutputStream out;
+
+        Hasher() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // Every JRE has SHA-256
+                throw new IllegalStateException(e);
+            }
+            out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+        }
+    }
+
+    // Thrown once the text is past the limit; shared and without a stack trace, since it is expected
+    private static class LimitReached extends RuntimeException {
+        static final LimitReached INSTANCE = new LimitReached();
+
+        private LimitReached() {
+            super(null, null, false, false);
+        }
+    }
+
+    // The output of StringTagVisitor, written into one builder that gives up past maxChars
+    private static class BoundedWriter implements TagVisitor {
+        final StringBuilder text = new StringBuilder();
+        private final int maxChars;
+
+        BoundedWriter(int maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        private void append(String value) {
+            text.append(value);
+            if (text.length() > maxChars) throw LimitReached.INSTANCE;
+        }
+
+        private void append(char value) {
+            text.append(value);
+            if (text.length() > maxChars) throw LimitReached.INSTANCE;
+        }
+
+        @Override
+        public void visitString(StringTag tag) {
+            append(StringTag.quoteAndEscape(tag.getAsString()));
+        }
+
+        @Override
+        public void visitByte(ByteTag tag) {
+            append(tag.getAsByte() + "b");
+        }
+
+        @Override
+        public void visitShort(ShortTag tag) {
+            append(tag.getAsShort() + "s");
+        }
+
+        @Override
+        public void visitInt(IntTag tag) {
+            append(String.valueOf(tag.getAsInt()));
+        }
+
+        @Override
+        public void visitLong(LongTag tag) {
+            append(tag.getAsLong() + "L");
+        }
+
+        @Override
+        public void visitFloat(FloatTag tag) {
+            append(tag.getAsFloat() + "f");
+        }
+
+        @Override
+        public void visitDouble(DoubleTag tag) {
+            append(tag.getAsDouble() + "d");
+        }
+
+        @Override
+        public void visitByteArray(ByteArrayTag tag) {
+            append("[B;");
+            byte[] values = tag.getAsByteArray();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) append(',');
+                append(values[i] + "B");
+            }
+            append(']');
+        }
+
+        @Override
+        public void visitIntArray(IntArrayTag tag) {
+            append("[I;");
+            int[] values = tag.getAsIntArray();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) append(',');
+                append(String.valueOf(values[i]));
+            }
+            append(']');
+        }
+
+        @Override
+        public void visitLongArray(LongArrayTag tag) {
+            append("[L;");
+            long[] values = tag.getAsLongArray();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) append(',');
+                append(values[i] + "L");
+            }
+            append(']');
+        }
+
+        @Override
+        public void visitList(ListTag tag) {
+            append('[');
+            for (int i = 0; i < tag.size(); i++) {
+                if (i > 0) append(',');
+                tag.get(i).accept(this);
+            }
+            append(']');
+        }
+
+        @Override
+        public void visitCompound(CompoundTag tag) {
+            append('{');
+            // Sorted like Tag.toString(), so the prefix matches the full text
+            List<String> keys = new ArrayList<>(tag.getAllKeys());
+            Collections.sort(keys);
+            for (int i = 0; i < keys.size(); i++) {
+                if (i > 0) append(',');
+                String key = keys.get(i);
+                append(SIMPLE_KEY.matcher(key).matches() ? key : StringTag.quoteAndEscape(key));
+                append(':');
+                tag.get(key).accept(this);
+            }
+            append('}');
+        }
+
+        @Override
+        public void visitEnd(EndTag tag) {
+            append("END");
+        }
+    }
+}
@@ -4,29 +4,53 @@ import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.level.GameType;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.biome.Biome;
-import net.minecraftforge.event.entity.living.LivingDeathEvent;
+import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.EntityTeleportEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
-import net.minecraft.resources.ResourceLocation;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Mod.EventBusSubscriber(bus = Mod.EventBusSubscriber.Bus.FORGE)
 public class PlayerDeathEventHandler {
 
+    // How far a player can move during one level tick without a teleport, dimension change or respawn, all of
+    // which throw the grid away
+    private static final double GRID_MOVEMENT_MARGIN = 8.0;
+    // Below this many players in the level the exact scan is as cheap as building a grid
+    private static final int EXACT_SCAN_PLAYERS = 64;
+
+    private static final Map<ResourceKey<Level>, NearbyPlayerGrid> PLAYER_GRIDS = new ConcurrentHashMap<>();
+
+    // Only used while its level ticks. Deaths between level ticks (attack packets, commands) come after players
+    // have moved by any amount, so those always use the exact scan
+    private static class NearbyPlayerGrid {
+        final SpatialGrid<Player> grid = new SpatialGrid<>();
+        boolean ticking;
+        boolean built;
+
+        void reset() {
+            grid.clear();
+            built = false;
+        }
+    }
+
     public static class DeathInfo {
+        public long timeMillis;
+        // CaptureProfile.Group bits for the optional parts that were recorded
+        public int capturedGroups = CaptureProfile.ALL_GROUPS;
         public String playerName;
         public String playerUUID;
         public String logDateUtc;
@@ -34,7 +58,12 @@ public class PlayerDeathEventHandler {
         public String causeOfDeath;
         public String damageType;
         public String sourceEntity;
+        // Formatted from the block position on the writer thread, see location(); set as is when read back
         public String location;
+        public int blockX;
+        public int blockY;
+        public int blockZ;
+        public String dimension;
         public String biome;
         public String gamemode;
         public String opStatus;
@@ -51,12 +80,39 @@ public class PlayerDeathEventHandler {
         public int moonPhase;
         public EquippedItems equippedItems;
         public List<InventoryItem> inventoryContents;
+        // Set instead of writing inventoryContents out when the ItemStore is on
+        public String inventorySnapshot;
+        // Hits taken before the death, oldest first (see CombatTracker)
+        public List<DamageEntry> recentDamage;
+
+        public boolean captured(CaptureProfile.Group group) {
+            return (capturedGroups & group.bit) != 0;
+        }
+
+        // "[x, y, z] in <dimension>"
+        public String location() {
+            if (location == null) {
+                location = "[" + blockX + ", " + blockY + ", " + blockZ + "] in " + dimension;
+            }
+            return location;
+        }
 
         public static class NearbyPlayerInfo {
             public String name;
             public double distance;
             public String location;
+            public int blockX;
+            public int blockY;
+            public int blockZ;
             public String dimension;
+
+            // "[x, y, z]"
+            public String location() {
+                if (location == null) {
+                    location = "[" + blockX + ", " + blockY + ", " + blockZ + "]";
+                }
+                return location;
+            }
         }
 
         public static class EquippedItems {
@@ -72,228 +128,251 @@ public class PlayerDeathEventHandler {
             public int count;
             public String name;
         }
+
+        public static class DamageEntry {
+            public long timeMillis;
+            // Player name or entity type, or null for damage nobody dealt (falling, lava, ...)
+            public String attacker;
+            public String damageType;
+            public float amount;
+        }
     }
 
-    @SubscribeEvent
-    public static DeathInfo onPlayerDeath(LivingDeathEvent event) {
+    // DeathSink for the death log; the UTC and server-local text is formatted later on the writer thread
+    public static void onPlayerDeath(DeathSnapshot death) {
         // Check if the entity is a player
-        if (!(event.getEntity() instanceof Player player)) return null;
-
-        // Get current time in UTC
-        ZonedDateTime nowUtc = ZonedDateTime.now(ZoneId.of("UTC"));
-        // Also get server local time
-        ZonedDateTime nowLocal = ZonedDateTime.now();
+        Player player = death.victimPlayer();
+        if (player == null) return;
+        DamageSource source = death.source();
 
+        CaptureProfile profile = Config.captureProfile;
         DeathInfo deathInfo = new DeathInfo();
-
-        try {
-            // Create main logs directory if it doesn't exist
-            File logsDir = new File("player_death_logs");
-            if (!logsDir.exists()) {
-                logsDir.mkdir();
-            }
-
-            // Create player-specific directory
-            File playerDir = new File("player_death_logs/" + player.getName().getString());
-            if (!playerDir.exists()) {
-                playerDir.mkdir();
-            }
-
-            // Create more readable date formats
-            String fileDate = nowUtc.format(DateTimeFormatter.ofPattern("MMMM-dd-yyyy_HH-mm-ss"));
-            String logDateUtc = nowUtc.format(DateTimeFormatter.ofPattern("MMMM dd, yyyy HH:mm:ss 'UTC'"));
-            String logDateLocal = nowLocal.format(DateTimeFormatter.ofPattern("MMMM dd, yyyy HH:mm:ss z"));
-
-            // Death location
-            BlockPos deathPos = player.blockPosition();
-            String dimension = player.level().dimension().location().toString();
-
-            // Populate DeathInfo object
-            deathInfo.playerName = player.getName().getString();
-            deathInfo.playerUUID = player.getStringUUID();
-            deathInfo.logDateUtc = logDateUtc;
-            deathInfo.logDateLocal = logDateLocal;
-            deathInfo.causeOfDeath = event.getSource().getLocalizedDeathMessage(player).getString();
-            deathInfo.damageType = event.getSource().type().msgId();
-            deathInfo.sourceEntity = event.getSource().getEntity() != null
-                    ? event.getSource().getEntity().getName().getString()
-                    : "Unknown";
-            deathInfo.location = String.format("[%d, %d, %d] in %s",
-                    deathPos.getX(), deathPos.getY(), deathPos.getZ(), dimension);
+        deathInfo.capturedGroups = profile.groups;
+
+        // Death location
+        BlockPos deathPos = player.blockPosition();
+        String dimension = player.level().dimension().location().toString();
+
+        // Populate DeathInfo object
+        deathInfo.timeMillis = death.timeMillis();
+        deathInfo.playerName = death.victimName();
+        deathInfo.playerUUID = player.getStringUUID();
+        if (profile.captures(CaptureProfile.Group.DEATH_MESSAGE)) {
+            deathInfo.causeOfDeath = source.getLocalizedDeathMessage(player).getString();
+        }
+        deathInfo.damageType = source.type().msgId();
+        deathInfo.sourceEntity = source.getEntity() != null
+                ? source.getEntity().getName().getString()
+                : "Unknown";
+        deathInfo.blockX = deathPos.getX();
+        deathInfo.blockY = deathPos.getY();
+        deathInfo.blockZ = deathPos.getZ();
+        deathInfo.dimension = dimension;
+        if (profile.captures(CaptureProfile.Group.BIOME)) {
             deathInfo.biome = player.level().getBiome(deathPos).unwrapKey()
                     .map(key -> key.location().toString())
                     .orElse("Unknown Biome");
+        }
 
-            // Gamemode and OP Status
-            if (player instanceof ServerPlayer serverPlayer) {
-                GameType gameMode = serverPlayer.gameMode.getGameModeForPlayer();
-                deathInfo.gamemode = gameMode.name();
+        // Gamemode and OP Status
+        if (profile.captures(CaptureProfile.Group.GAMEMODE_AND_OP) && player instanceof ServerPlayer serverPlayer) {
+            GameType gameMode = serverPlayer.gameMode.getGameModeForPlayer();
+            deathInfo.gamemode = gameMode.name();
 
-                boolean isOp = serverPlayer.getServer().getPlayerList().isOp(serverPlayer.getGameProfile());
-                int opLevel = serverPlayer.getServer().getPlayerList().getOps().get(serverPlayer.getGameProfile()) != null
-                        ? serverPlayer.getServer().getPlayerList().getOps().get(serverPlayer.getGameProfile()).getLevel()
-                        : 0;
-                deathInfo.opStatus = isOp ? "Yes (Level " + opLevel + ")" : "No";
-            }
+            boolean isOp = serverPlayer.getServer().getPlayerList().isOp(serverPlayer.getGameProfile());
+            int opLevel = serverPlayer.getServer().getPlayerList().getOps().get(serverPlayer.getGameProfile()) != null
+                    ? serverPlayer.getServer().getPlayerList().getOps().get(serverPlayer.getGameProfile()).getLevel()
+                    : 0;
+            deathInfo.opStatus = isOp ? "Yes (Level " + opLevel + ")" : "No";
+        }
 
-            // Nearby Players
-            List<Player> nearbyPlayersList = getNearbyPlayers(player, 50);
-            deathInfo.nearbyPlayers = new ArrayList<>();
+        // Nearby Players
+        deathInfo.nearbyPlayers = new ArrayList<>();
+        if (profile.captures(CaptureProfile.Group.NEARBY_PLAYERS)) {
+            List<Player> nearbyPlayersList = getNearbyPlayers(player, Config.nearbyPlayerRadius);
             for (Player nearbyPlayer : nearbyPlayersList) {
                 if (!nearbyPlayer.equals(player)) {
                     DeathInfo.NearbyPlayerInfo nearbyPlayerInfo = new DeathInfo.NearbyPlayerInfo();
                     nearbyPlayerInfo.name = nearbyPlayer.getName().getString();
                     nearbyPlayerInfo.distance = nearbyPlayer.distanceTo(player);
                     BlockPos nearbyPlayerPos = nearbyPlayer.blockPosition();
-                    nearbyPlayerInfo.location = String.format("[%d, %d, %d]",
-                            nearbyPlayerPos.getX(), nearbyPlayerPos.getY(), nearbyPlayerPos.getZ());
+                    nearbyPlayerInfo.blockX = nearbyPlayerPos.getX();
+                    nearbyPlayerInfo.blockY = nearbyPlayerPos.getY();
+                    nearbyPlayerInfo.blockZ = nearbyPlayerPos.getZ();
                     nearbyPlayerInfo.dimension = nearbyPlayer.level().dimension().location().toString();
                     deathInfo.nearbyPlayers.add(nearbyPlayerInfo);
                 }
             }
+        }
 
-            // Player stats
+        // Player stats
+        if (profile.captures(CaptureProfile.Group.STATS)) {
             deathInfo.xpLevel = player.experienceLevel;
             deathInfo.xpPoints = player.experienceProgress;
             deathInfo.health = player.getHealth();
             deathInfo.maxHealth = player.getMaxHealth();
             deathInfo.foodLevel = player.getFoodData().getFoodLevel();
             deathInfo.saturation = player.getFoodData().getSaturationLevel();
+        }
 
-            // Game conditions
+        // Game conditions
+        if (profile.captures(CaptureProfile.Group.CONDITIONS)) {
             deathInfo.difficulty = player.level().getDifficulty().toString();
             deathInfo.dayTime = player.level().getDayTime();
             deathInfo.weather = getWeatherString(player.level());
             deathInfo.moonPhase = player.level().getMoonPhase();
+        }
 
-            // Equipped Items
-            DeathInfo.EquippedItems equippedItems = new DeathInfo.EquippedItems();
-            equippedItems.helmet = formatItemStack(player.getInventory().getArmor(3));
-            equippedItems.chestplate = formatItemStack(player.getInventory().getArmor(2));
-            equippedItems.leggings = formatItemStack(player.getInventory().getArmor(1));
-            equippedItems.boots = formatItemStack(player.getInventory().getArmor(0));
-            equippedItems.mainHand = formatItemStack(player.getMainHandItem());
-            equippedItems.offHand = formatItemStack(player.getOffhandItem());
-            deathInfo.equippedItems = equippedItems;
-
-            // Inventory Contents
-            deathInfo.inventoryContents = new ArrayList<>();
+        // Equipped Items
+        DeathInfo.EquippedItems equippedItems = new DeathInfo.EquippedItems();
+        if (profile.captures(CaptureProfile.Group.EQUIPMENT)) {
+            equippedItems.helmet = formatItemStack(player.getInventory().getArmor(3), profile);
+            equippedItems.chestplate = formatItemStack(player.getInventory().getArmor(2), profile);
+            equippedItems.leggings = formatItemStack(player.getInventory().getArmor(1), profile);
+            equippedItems.boots = formatItemStack(player.getInventory().getArmor(0), profile);
+            equippedItems.mainHand = formatItemStack(player.getMainHandItem(), profile);
+            equippedItems.offHand = formatItemStack(player.getOffhandItem(), profile);
+        }
+        deathInfo.equippedItems = equippedItems;
+
+        // Inventory Contents
+        deathInfo.inventoryContents = new ArrayList<>();
+        if (profile.captures(CaptureProfile.Group.INVENTORY)) {
             for (ItemStack item : player.getInventory().items) {
                 if (!item.isEmpty()) {
                     DeathInfo.InventoryItem inventoryItem = new DeathInfo.InventoryItem();
                     inventoryItem.count = item.getCount();
-                    inventoryItem.name = formatItemStack(item);
+                    inventoryItem.name = formatItemStack(item, profile);
                     deathInfo.inventoryContents.add(inventoryItem);
                 }
             }
+        }
 
-            // Create log file
-            String fileName = String.format("player_death_logs/%s/%s.txt",
-                    player.getName().getString(),
-                    fileDate);
-
-            try (FileWriter writer = new FileWriter(fileName)) {
-                // Write all the same information to the log file
-                writer.write("Death Information:\n");
-                writer.write("----------------\n");
-                writer.write("Player: " + deathInfo.playerName + "\n");
-                writer.write("UUID: " + deathInfo.playerUUID + "\n");
-                writer.write("Time (UTC+0): " + deathInfo.logDateUtc + "\n");
-                writer.write("Time (Server Local): " + deathInfo.logDateLocal + "\n");
-
-                // Damage Details
-                writer.write("\nDamage Details:\n");
-                writer.write("----------------\n");
-                writer.write("Cause of Death: " + deathInfo.causeOfDeath + "\n");
-                writer.write("Damage Type: " + deathInfo.damageType + "\n");
-                writer.write("Source Entity: " + deathInfo.sourceEntity + "\n");
-
-                // Location and Biome
-                writer.write("Location: " + deathInfo.location + "\n");
-                writer.write("Biome: " + deathInfo.biome + "\n");
-
-                // Nearby Players
-                writer.write("\nNearby Players:\n");
-                writer.write("----------------\n");
-                if (deathInfo.nearbyPlayers.isEmpty()) {
-                    writer.write("No players nearby\n");
-                } else {
-                    for (DeathInfo.NearbyPlayerInfo nearbyPlayer : deathInfo.nearbyPlayers) {
-                        writer.write(String.format("* %s (%.1f blocks away)\n",
-                                nearbyPlayer.name, nearbyPlayer.distance));
-                        writer.write(String.format("  Location: %s in %s\n",
-                                nearbyPlayer.location, nearbyPlayer.dimension));
-                    }
-                }
+        // Recent damage, then hand the snapshot to the writer thread
+        DeathEventDispatcher.RECORDER.playerDeath(player.getUUID(), deathInfo);
+        LoggerMetrics.deathCaptured(death.captureStartNanos());
+    }
+
+    // Every player in centerPlayer's level within radius of them, centerPlayer included
+    private static List<Player> getNearbyPlayers(Player centerPlayer, double radius) {
+        return getNearbyPlayers(centerPlayer, radius, EXACT_SCAN_PLAYERS);
+    }
 
-                // Player Stats
-                writer.write("\nPlayer Stats at Death:\n");
-                writer.write("----------------\n");
-                writer.write(String.format("XP Level: %d\n", deathInfo.xpLevel));
-                writer.write(String.format("XP Points: %.2f\n", deathInfo.xpPoints));
-                writer.write(String.format("Health: %.1f/%.1f\n", deathInfo.health, deathInfo.maxHealth));
-                writer.write(String.format("Food Level: %d/20\n", deathInfo.foodLevel));
-                writer.write(String.format("Saturation: %.1f\n", deathInfo.saturation));
-
-                // Game Conditions
-                writer.write("\nGame Conditions:\n");
-                writer.write("----------------\n");
-                writer.write("Difficulty: " + deathInfo.difficulty + "\n");
-                writer.write(String.format("Day Time: %d (Minecraft ticks)\n", deathInfo.dayTime));
-                writer.write("Weather: " + deathInfo.weather + "\n");
-                writer.write(String.format("Moon Phase: %d/8\n", deathInfo.moonPhase));
-
-                // Equipped Items
-                writer.write("\nEquipped Items:\n");
-                writer.write("----------------\n");
-                writer.write("Helmet: " + deathInfo.equippedItems.helmet + "\n");
-                writer.write("Chestplate: " + deathInfo.equippedItems.chestplate + "\n");
-                writer.write("Leggings: " + deathInfo.equippedItems.leggings + "\n");
-                writer.write("Boots: " + deathInfo.equippedItems.boots + "\n");
-                writer.write("Main Hand: " + deathInfo.equippedItems.mainHand + "\n");
-                writer.write("Off Hand: " + deathInfo.equippedItems.offHand + "\n");
-
-                // Inventory Contents
-                writer.write("\nInventory Contents:\n");
-                writer.write("----------------\n");
-                if (deathInfo.inventoryContents.isEmpty()) {
-                    writer.write("Inventory is empty\n");
-                } else {
-                    for (DeathInfo.InventoryItem item : deathInfo.inventoryContents) {
-                        writer.write(String.format("%dx %s\n", item.count, item.name));
-                    }
+    // As above; the grid is only used with at least exactScanPlayers players in the level
+    static List<Player> getNearbyPlayers(Player centerPlayer, double radius, int exactScanPlayers) {
+        Level level = centerPlayer.level();
+        List<? extends Player> players = level.players();
+        if (players.size() < exactScanPlayers) {
+            return exactScan(players, centerPlayer, radius);
+        }
+
+        // level().players() is already per-dimension; index it once per level tick and share it between every
+        // death in that tick
+        NearbyPlayerGrid nearby = PLAYER_GRIDS.computeIfAbsent(level.dimension(), key -> new NearbyPlayerGrid());
+        List<Player> nearbyPlayers;
+        // Uncontended unless something outside the level's own tick thread reports a death in it
+        synchronized (nearby) {
+            if (!nearby.ticking) {
+                return exactScan(players, centerPlayer, radius);
+            }
+            if (!nearby.built) {
+                for (Player otherPlayer : players) {
+                    nearby.grid.add(otherPlayer, otherPlayer.getX(), otherPlayer.getY(), otherPlayer.getZ());
                 }
+                nearby.built = true;
             }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
+            // Players may have moved since the grid was built this tick, so look a bit wider and re-check live positions
+            nearbyPlayers = nearby.grid.within(centerPlayer.getX(), centerPlayer.getY(), centerPlayer.getZ(),
+                    radius + GRID_MOVEMENT_MARGIN);
         }
-
-        return deathInfo;
+        double radiusSqr = radius * radius;
+        nearbyPlayers.removeIf(otherPlayer -> otherPlayer.distanceToSqr(centerPlayer) > radiusSqr);
+        return nearbyPlayers;
     }
 
-    private static List<Player> getNearbyPlayers(Player centerPlayer, double radius) {
+    private static List<Player> exactScan(List<? extends Player> players, Player centerPlayer, double radius) {
+        double radiusSqr = radius * radius;
         List<Player> nearbyPlayers = new ArrayList<>();
+        for (Player otherPlayer : players) {
+            if (otherPlayer.distanceToSqr(centerPlayer) <= radiusSqr) {
+                nearbyPlayers.add(otherPlayer);
+            }
+        }
+        return nearbyPlayers;
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.level.isClientSide()) return;
+        if (event.phase == TickEvent.Phase.START) {
+            beginLevelTick(event.level);
+        } else {
+            endLevelTick(event.level);
+        }
+    }
 
-        // Get all players in the same dimension
-        for (Player otherPlayer : centerPlayer.level().players()) {
-            // Skip if in different dimensions
-            if (!otherPlayer.level().dimension().equals(centerPlayer.level().dimension())) continue;
+    // The grid is built on the first death after this, from positions as they are then
+    static void beginLevelTick(Level level) {
+        NearbyPlayerGrid nearby = PLAYER_GRIDS.computeIfAbsent(level.dimension(), key -> new NearbyPlayerGrid());
+        synchronized (nearby) {
+            nearby.reset();
+            nearby.ticking = true;
+        }
+    }
 
-            // Calculate distance
-            double distance = otherPlayer.distanceTo(centerPlayer);
+    // Also lets go of the players, so none is kept past logging out
+    static void endLevelTick(Level level) {
+        NearbyPlayerGrid nearby = PLAYER_GRIDS.get(level.dimension());
+        if (nearby == null) return;
+        synchronized (nearby) {
+            nearby.reset();
+            nearby.ticking = false;
+        }
+    }
 
-            // Add to list if within radius
-            if (distance <= radius) {
-                nearbyPlayers.add(otherPlayer);
+    // Players that jump further than GRID_MOVEMENT_MARGIN, or join or leave a level, mid-tick
+    @SubscribeEvent
+    public static void onEntityTeleport(EntityTeleportEvent event) {
+        if (event.getEntity() instanceof Player) {
+            invalidatePlayerGrids();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onPlayerChangedDimension(PlayerEvent.PlayerChangedDimensionEvent event) {
+        invalidatePlayerGrids();
+    }
+
+    @SubscribeEvent
+    public static void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
+        invalidatePlayerGrids();
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        invalidatePlayerGrids();
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        invalidatePlayerGrids();
+    }
+
+    private static void invalidatePlayerGrids() {
+        for (NearbyPlayerGrid nearby : PLAYER_GRIDS.values()) {
+            synchronized (nearby) {
+                nearby.reset();
             }
         }
+    }
 
-        return nearbyPlayers;
+    // Called once the server has stopped, so no level or player outlives it here
+    public static void clearPlayerGrids() {
+        PLAYER_GRIDS.clear();
     }
 
-    private static String formatItemStack(ItemStack item) {
+    private static String formatItemStack(ItemStack item, CaptureProfile profile) {
         if (item == null || item.isEmpty()) return "Empty";
 
         // Get the registry ID of the item
@@ -302,14 +381,26 @@ public class PlayerDeathEventHandler {
 
         String itemDesc = item.getDisplayName().getString();
 
-        // Combine registry ID and display name
-        String formattedItem = String.format("%s (%s)", itemDesc, itemIdString);
+        return ItemStackFormat.format(itemDesc, itemIdString, item.hasTag() ? formatNbt(item.getTag(), profile) : null);
+    }
 
-        // Add NBT tag information if present
-        if (item.hasTag()) {
-            formattedItem += " (NBT: " + item.getTag().toString() + ")";
+    private static String formatNbt(CompoundTag tag, CaptureProfile profile) {
+        switch (profile.nbtMode) {
+            case NONE:
+                return null;
+            case TRUNCATE:
+                // Stops writing at the limit, so a shulker box never turns into its full SNBT text
+                return NbtFormat.snbt(tag, profile.nbtMaxLength);
+            case HASH:
+                // Hash the binary form so the SNBT text is never built
+                try {
+                    return "sha256:" + NbtFormat.sha256(tag);
+                } catch (IOException e) {
+                    return NbtFormat.snbt(tag, profile.nbtMaxLength);
+                }
+            default:
+                return tag.toString();
         }
-        return formattedItem;
     }
 
     private static String getWeatherString(Level level) {
@@ -1,249 +1,138 @@
 package com.keerdm.server_kill_logger;
 
 import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.player.Player;
-import net.minecraftforge.event.entity.living.LivingDeathEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
-import java.io.*;
-import java.nio.file.Files;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 @Mod.EventBusSubscriber(bus = Mod.EventBusSubscriber.Bus.FORGE)
 public class PlayerKillEntityEventHandler {
 
-    @SubscribeEvent
-    public static void onEntityDeath(LivingDeathEvent event) {
-        // Check if the killer is a player
-        if (!(event.getSource().getEntity() instanceof Player killer)) return;
+    public static final KillTallyStore KILL_TALLIES = new KillTallyStore(Paths.get("player_kill_entity_logs"));
+    // Rate-limits the kill events queued for the journal, JSONL and the index; the tallies always count every kill
+    public static final KillSampler KILL_SAMPLER = new KillSampler(Config.killSampling);
 
-        // Get current times
-        ZonedDateTime nowUtc = ZonedDateTime.now(ZoneId.of("UTC"));
-        ZonedDateTime nowLocal = ZonedDateTime.now();
+    private static int ticks;
 
-        try {
-            // Create main logs directory if it doesn't exist
-            File logsDir = new File("player_kill_entity_logs");
-            if (!logsDir.exists()) {
-                logsDir.mkdir();
-            }
+    // Display name and unnamed-kill key per entity type, computed the first time a type is killed
+    private static final Map<EntityType<?>, EntityTypeKey> ENTITY_TYPE_KEYS = new ConcurrentHashMap<>();
+    // Kill key per online player, rebuilt only when the player's name changes
+    private static final Map<UUID, PlayerKey> PLAYER_KEYS = new ConcurrentHashMap<>();
 
-            // Create killer's directory
-            File killerDir = new File("player_kill_entity_logs/" + killer.getName().getString());
-            if (!killerDir.exists()) {
-                killerDir.mkdir();
-            }
+    private record EntityTypeKey(String displayName, int keyId) {
+    }
+
+    private record PlayerKey(String name, String key) {
+    }
 
-            // Create more readable date formats
-            String fileDate = nowUtc.format(DateTimeFormatter.ofPattern("MMMM-dd-yyyy"));
-
-            // Prepare kill file name
-            String fileName = String.format("player_kill_entity_logs/%s/%s.txt",
-                    killer.getName().getString(),
-                    fileDate);
-
-            // Prepare kill data
-            Map<String, Integer> entityKills = new HashMap<>();
-            Map<String, Integer> namedEntityKills = new HashMap<>();
-            Map<String, Integer> playerKills = new HashMap<>();
-
-            // Attempt to read existing kill data
-            readExistingKillData(fileName, entityKills, namedEntityKills, playerKills);
-
-            // Handle non-player entity kills
-            if (!(event.getEntity() instanceof Player)) {
-                Entity killedEntity = event.getEntity();
-
-                String entityType = parseEntityType(killedEntity);
-                String entityName = killedEntity.getName().getString();
-
-                // Decide how to track the kill
-                if (isUnnamedEntity(killedEntity, entityName)) {
-                    // Unnamed entity
-                    entityKills.merge(entityType, 1, Integer::sum);
-                } else {
-                    // Named entity
-                    String namedEntityKey = String.format("%s (name:%s)", entityType, entityName);
-                    namedEntityKills.merge(namedEntityKey, 1, Integer::sum);
-                }
+    // DeathSink for the kill tallies
+    public static void onEntityDeath(DeathSnapshot death) {
+        // Check if the killer is a player
+        Player killer = death.killer();
+        if (killer == null) return;
+        // Timed from here rather than from the dispatch, which for a PvP kill includes capturing the death log
+        long startNanos = System.nanoTime();
+
+        long nowMillis = death.timeMillis();
+        UUID killerUUID = killer.getUUID();
+        KillTally.Kind kind;
+        String key;
+
+        // Handle non-player entity kills
+        if (!(death.victim() instanceof Player killedPlayer)) {
+            Entity killedEntity = death.victim();
+            EntityTypeKey typeKey = ENTITY_TYPE_KEYS.computeIfAbsent(killedEntity.getType(),
+                    PlayerKillEntityEventHandler::createEntityTypeKey);
+
+            // Only entities with a custom name can be named kills; everything else stays allocation-free
+            String entityName = killedEntity.hasCustomName() ? killedEntity.getName().getString() : null;
+            if (entityName == null || isUnnamedEntity(typeKey.displayName(), entityName)) {
+                // Unnamed entity
+                DeathEventDispatcher.RECORDER.entityKill(killerUUID, death.killerName(), typeKey.keyId(), nowMillis);
+                LoggerMetrics.killCaptured(startNanos);
+                return;
             }
 
+            // Named entity
+            kind = KillTally.Kind.NAMED_ENTITY;
+            key = DeathRecorder.namedEntityKey(typeKey.displayName(), entityName);
+        } else {
             // Handle player kills
-            if (event.getEntity() instanceof Player killedPlayer) {
-                String playerKey = String.format("%s (uuid:%s)",
-                        killedPlayer.getName().getString(),
-                        killedPlayer.getStringUUID());
-                playerKills.merge(playerKey, 1, Integer::sum);
-            }
+            kind = KillTally.Kind.PLAYER;
+            key = playerKey(killedPlayer, death.victimName());
+        }
 
-            // Write updated kills to file
-            writeKillsToFile(fileName, killer, nowUtc, nowLocal,
-                    entityKills, namedEntityKills, playerKills);
+        DeathEventDispatcher.RECORDER.keyedKill(killerUUID, death.killerName(), kind, key, nowMillis);
+        LoggerMetrics.killCaptured(startNanos);
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    @SubscribeEvent
+    public static void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        // Read back what an earlier run wrote for today in the background, before the player's first kill
+        if (Config.writeDailyTallies) {
+            KILL_TALLIES.preload(event.getEntity().getUUID(), event.getEntity().getGameProfile().getName(),
+                    LogTime.now(), ForkJoinPool.commonPool());
         }
     }
 
-    private static void readExistingKillData(String fileName,
-                                             Map<String, Integer> entityKills,
-                                             Map<String, Integer> namedEntityKills,
-                                             Map<String, Integer> playerKills) {
-
-        try {
-            File file = new File(fileName);
-            if (!file.exists()) return;
-
-            List<String> lines = Files.readAllLines(file.toPath());
-            boolean inEntitySection = false;
-            boolean inNamedEntitySection = false;
-            boolean inPlayerKillSection = false;
-
-            for (String line : lines) {
-                line = line.trim();
-
-                if (line.equals("Entities Killed")) {
-                    inEntitySection = true;
-                    inNamedEntitySection = false;
-                    inPlayerKillSection = false;
-                    continue;
-                }
-
-                if (line.equals("----------------")) continue;
-
-                if (line.isEmpty()) {
-                    inEntitySection = false;
-                    inNamedEntitySection = false;
-                    inPlayerKillSection = false;
-                    continue;
-                }
-
-                if (line.equals("Player Kills")) {
-                    inPlayerKillSection = true;
-                    inEntitySection = false;
-                    inNamedEntitySection = false;
-                    continue;
-                }
-
-                // Parse kills
-                if (inPlayerKillSection && line.contains("x")) {
-                    String[] parts = line.split(" x");
-                    if (parts.length == 2) {
-                        playerKills.put(parts[0], Integer.parseInt(parts[1]));
-                    }
-                }
-
-                if (inEntitySection && line.contains("x")) {
-                    String[] parts = line.split(" x");
-                    if (parts.length == 2) {
-                        entityKills.put(parts[0], Integer.parseInt(parts[1]));
-                    }
-                }
-
-                if (line.startsWith("minecraft:") || line.contains("(name:") && line.contains("x")) {
-                    inNamedEntitySection = true;
-                    inEntitySection = false;
-                }
-
-                if (inNamedEntitySection && line.contains("x")) {
-                    String[] parts = line.split(" x");
-                    if (parts.length == 2) {
-                        namedEntityKills.put(parts[0], Integer.parseInt(parts[1]));
-                    }
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        // Write out and forget the player's tally; it is reloaded from disk if they come back today
+        DeathEventDispatcher.RECORDER.release(event.getEntity().getUUID());
+        PLAYER_KEYS.remove(event.getEntity().getUUID());
     }
 
-    private static void writeKillsToFile(String fileName, Player killer,
-                                         ZonedDateTime nowUtc, ZonedDateTime nowLocal,
-                                         Map<String, Integer> dailyEntityKills,
-                                         Map<String, Integer> dailyNamedEntityKills,
-                                         Map<String, Integer> dailyPlayerKills) throws IOException {
-
-        try (FileWriter writer = new FileWriter(fileName)) {
-            // Player Details Section
-            writer.write("Player Details\n");
-            writer.write("----------------\n");
-            writer.write("Name: " + killer.getName().getString() + "\n");
-            writer.write("UUID: " + killer.getStringUUID() + "\n");
-            writer.write("Date (UTC): " + nowUtc.format(DateTimeFormatter.ofPattern("MMMM dd, yyyy")) + "\n");
-            writer.write("Date (Server): " + nowLocal.format(DateTimeFormatter.ofPattern("MMMM dd, yyyy")) + "\n\n");
-
-            // Player Kills Section
-            writer.write("Player Kills\n");
-            writer.write("----------------\n");
-            if (dailyPlayerKills != null && !dailyPlayerKills.isEmpty()) {
-                dailyPlayerKills.entrySet().stream()
-                        .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                        .forEach(entry -> {
-                            try {
-                                writer.write(String.format("%s x%d\n", entry.getKey(), entry.getValue()));
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-                        });
-            } else {
-                writer.write("No players killed\n");
-            }
-            writer.write("\n");
-
-            // Entities Killed Section
-            writer.write("Entities Killed\n");
-            writer.write("----------------\n");
-
-            // First, write unnamed/generic entities
-            if (dailyEntityKills != null && !dailyEntityKills.isEmpty()) {
-                dailyEntityKills.entrySet().stream()
-                        .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                        .forEach(entry -> {
-                            try {
-                                writer.write(String.format("%s x%d\n", entry.getKey(), entry.getValue()));
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-                        });
-            }
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        // Once a second, queue the deltas of farms that have gone quiet
+        if (event.phase != TickEvent.Phase.END || ++ticks % 20 != 0) return;
+        DeathEventDispatcher.RECORDER.drainSampledKills(LogTime.now());
+    }
 
-            // Then, write named entities
-            if (dailyNamedEntityKills != null && !dailyNamedEntityKills.isEmpty()) {
-                dailyNamedEntityKills.entrySet().stream()
-                        .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                        .forEach(entry -> {
-                            try {
-                                writer.write(String.format("%s x%d\n", entry.getKey(), entry.getValue()));
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-                        });
-            }
+    // Queues every delta KillSampler still holds; called before the writer stops
+    public static void flushSampledKills() {
+        DeathEventDispatcher.RECORDER.flushSampledKills();
+    }
 
-            // If no kills at all
-            if ((dailyEntityKills == null || dailyEntityKills.isEmpty()) &&
-                    (dailyNamedEntityKills == null || dailyNamedEntityKills.isEmpty())) {
-                writer.write("No entities killed\n");
-            }
+    private static String playerKey(Player killedPlayer, String name) {
+        PlayerKey playerKey = PLAYER_KEYS.get(killedPlayer.getUUID());
+        if (playerKey == null || !playerKey.name().equals(name)) {
+            playerKey = new PlayerKey(name, DeathRecorder.playerKey(name, killedPlayer.getStringUUID()));
+            PLAYER_KEYS.put(killedPlayer.getUUID(), playerKey);
         }
+        return playerKey.key();
+    }
+
+    // Display name used for an entity type in kill files and combat history, e.g. "Zombie"
+    static String entityTypeName(EntityType<?> type) {
+        return ENTITY_TYPE_KEYS.computeIfAbsent(type, PlayerKillEntityEventHandler::createEntityTypeKey).displayName();
+    }
+
+    private static EntityTypeKey createEntityTypeKey(EntityType<?> type) {
+        String displayName = parseEntityType(type);
+        return new EntityTypeKey(displayName, KILL_TALLIES.keys().intern(displayName));
     }
 
-    private static String parseEntityType(Entity entity) {
-        String fullType = entity.getType().toString();
+    private static String parseEntityType(EntityType<?> type) {
+        String fullType = type.toString();
         return Arrays.stream(fullType.split("\\."))
                 .reduce((first, second) -> second)
                 .map(s -> s.substring(0, 1).toUpperCase() + s.substring(1).toLowerCase())
                 .orElse(fullType);
     }
 
-    private static boolean isUnnamedEntity(Entity entity, String entityName) {
+    private static boolean isUnnamedEntity(String entityType, String entityName) {
         return entityName == null ||
                 entityName.isEmpty() ||
                 entityName.equalsIgnoreCase("entity") ||
-                entityName.equalsIgnoreCase(parseEntityType(entity));
+                entityName.equalsIgnoreCase(entityType);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// UUID -> last known name for the UUID storage layout, so a player's directory can be found by name.
+//
+// player_names.dat is append-only: [long uuid msb][long uuid lsb][short length][UTF-8 name] per change,
+// and the last record for a UUID wins. It is read on first use and then served from memory; changes are
+// appended by the writer thread on its next flush.
+public class PlayerNameTable implements Flushable {
+
+    public static final String DEFAULT_FILE = "player_names.dat";
+
+    private record Change(UUID uuid, String name) {
+    }
+
+    private final Path file;
+    private final Map<UUID, String> names = new ConcurrentHashMap<>();
+    // Lower-cased name -> UUID of the player who most recently had it
+    private final Map<String, UUID> uuids = new ConcurrentHashMap<>();
+    private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+    private volatile boolean loaded;
+
+    public PlayerNameTable(Path file) {
+        this.file = file;
+    }
+
+    public String name(UUID uuid) {
+        ensureLoaded();
+        return names.get(uuid);
+    }
+
+    public UUID uuid(String name) {
+        ensureLoaded();
+        return uuids.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    // Records the player's current name, e.g. on login. Does nothing if it hasn't changed.
+    public void update(UUID uuid, String name) {
+        ensureLoaded();
+        if (name.equals(names.get(uuid))) return;
+
+        put(uuid, name);
+        pending.add(new Change(uuid, name));
+        AsyncLogWriter.flushSoon();
+    }
+
+    // Only records the name if the UUID has none yet; used when importing old name-keyed trees
+    public void updateIfAbsent(UUID uuid, String name) {
+        ensureLoaded();
+        if (names.containsKey(uuid)) return;
+        update(uuid, name);
+    }
+
+    public int size() {
+        ensureLoaded();
+        return names.size();
+    }
+
+    // Appends pending changes; called on the writer thread
+    @Override
+    public void flush() throws IOException {
+        if (pending.isEmpty()) return;
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            LoggerMetrics.fileOpened();
+            Change change;
+            while ((change = pending.peek()) != null) {
+                byte[] name = change.name().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer record = ByteBuffer.allocate(8 + 8 + 2 + name.length);
+                record.putLong(change.uuid().getMostSignificantBits())
+                        .putLong(change.uuid().getLeastSignificantBits())
+                        .putShort((short) name.length)
+                        .put(name)
+                        .flip();
+                LoggerMetrics.bytesWritten(record.remaining());
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+                pending.poll();
+            }
+        }
+    }
+
+    private void put(UUID uuid, String name) {
+        String previous = names.put(uuid, name);
+        if (previous != null) {
+            uuids.remove(previous.toLowerCase(Locale.ROOT), uuid);
+        }
+        uuids.put(name.toLowerCase(Locale.ROOT), uuid);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+
+        synchronized (this) {
+            if (loaded) return;
+            long validBytes = 0;
+            try (InputStream in = Files.newInputStream(file)) {
+                DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+                while (true) {
+                    UUID uuid;
+                    byte[] name;
+                    try {
+                        uuid = new UUID(data.readLong(), data.readLong());
+                        name = new byte[data.readUnsignedShort()];
+                        data.readFully(name);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    put(uuid, new String(name, StandardCharsets.UTF_8));
+                    validBytes += 8 + 8 + 2 + name.length;
+                }
+            } catch (NoSuchFileException e) {
+                // Nothing recorded yet
+                validBytes = -1;
+            } catch (IOException e) {
+                e.printStackTrace();
+                validBytes = -1;
+            }
+
+            // Cut off a record torn by a crash so later appends stay aligned; the name comes back on the next login
+            if (validBytes >= 0) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    if (channel.size() > validBytes) {
+                        channel.truncate(validBytes);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            loaded = true;
+        }
+    }
+}
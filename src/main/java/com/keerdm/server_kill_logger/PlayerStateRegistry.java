@@ -0,0 +1,56 @@
+package com.keerdm.server_kill_logger;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-player state keyed by UUID, shared by the server thread (or several, when levels tick in parallel),
+// the writer thread and command threads.
+//
+// Lookups are lock-free. Anything that reads-then-changes a player's entry, or mutates the state object
+// itself, must hold lock(uuid). Players are spread over a fixed set of lock stripes, so unrelated players
+// rarely contend and no lock object is allocated per player.
+public class PlayerStateRegistry<S> {
+
+    private static final int STRIPES = 64;
+
+    private final Map<UUID, S> states = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[STRIPES];
+
+    public PlayerStateRegistry() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public Object lock(UUID uuid) {
+        // UUIDs are mostly random already; fold the halves so version/variant bits don't skew the stripe
+        long bits = uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+        int hash = (int) (bits ^ (bits >>> 32));
+        return locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    public S get(UUID uuid) {
+        return states.get(uuid);
+    }
+
+    // Caller must hold lock(uuid)
+    public void put(UUID uuid, S state) {
+        states.put(uuid, state);
+    }
+
+    // Caller must hold lock(uuid)
+    public S remove(UUID uuid) {
+        return states.remove(uuid);
+    }
+
+    // Weakly consistent view; take lock(uuid) before acting on an entry
+    public Collection<S> values() {
+        return states.values();
+    }
+
+    public int size() {
+        return states.size();
+    }
+}
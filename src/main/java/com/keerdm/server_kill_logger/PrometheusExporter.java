@@ -0,0 +1,138 @@
+package com.keerdm.server_kill_logger;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+
+// LoggerMetrics in the Prometheus text exposition format, either rewritten to a file on every flush
+// interval (for node_exporter's textfile collector) or served on http://127.0.0.1:<port>/metrics.
+public class PrometheusExporter implements Flushable {
+
+    private static final String PREFIX = "server_kill_logger_";
+    private static final double[] BUCKET_SECONDS = {
+            1e-6, 5e-6, 1e-5, 5e-5, 1e-4, 5e-4, 1e-3, 5e-3, 1e-2, 5e-2, 1e-1, 5e-1, 1.0
+    };
+
+    private static HttpServer httpServer;
+
+    private final Path file;
+
+    public PrometheusExporter(Path file) {
+        this.file = file;
+    }
+
+    // Runs on the writer thread with the other flush hooks
+    @Override
+    public void flush() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, render(), StandardCharsets.UTF_8);
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Serves /metrics on the loopback interface only
+    public static synchronized void startHttp(int port) throws IOException {
+        stopHttp();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        httpServer = server;
+    }
+
+    public static synchronized void stopHttp() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+
+    public static String render() {
+        StringBuilder out = new StringBuilder(4096);
+
+        counter(out, "events_total", "Deaths and kills seen by the event handlers", "type", "death", LoggerMetrics.deaths());
+        sample(out, "events_total", "type", "kill", LoggerMetrics.kills());
+        counter(out, "coalesced_kills_total", "Kills counted into a rate-limited delta instead of queued as their own event",
+                null, null, LoggerMetrics.killsCoalesced());
+        counter(out, "records_written_total", "Records written by the writer thread", null, null, LoggerMetrics.recordsWritten());
+        counter(out, "oversized_records_total", "Records over the storage's size limit", "outcome", "truncated",
+                LoggerMetrics.recordsTruncated());
+        sample(out, "oversized_records_total", "outcome", "rejected", LoggerMetrics.recordsRejected());
+        counter(out, "bytes_written_total", "Bytes written to log, journal and index files", null, null, LoggerMetrics.bytesWritten());
+        counter(out, "file_opens_total", "Files opened for writing", null, null, LoggerMetrics.fileOpens());
+        counter(out, "dropped_records_total", "Records dropped because the writer queue was full", null, null,
+                AsyncLogWriter.currentDroppedRecords());
+
+        out.append("# HELP ").append(PREFIX).append("queue_depth Records waiting for the writer thread\n");
+        out.append("# TYPE ").append(PREFIX).append("queue_depth gauge\n");
+        out.append(PREFIX).append("queue_depth ").append(AsyncLogWriter.currentQueueDepth()).append('\n');
+
+        out.append("# HELP ").append(PREFIX).append("capture_seconds Server thread time spent capturing an event\n");
+        out.append("# TYPE ").append(PREFIX).append("capture_seconds histogram\n");
+        histogram(out, "capture_seconds", "event", "death", LoggerMetrics.DEATH_CAPTURE);
+        histogram(out, "capture_seconds", "event", "kill", LoggerMetrics.KILL_CAPTURE);
+
+        out.append("# HELP ").append(PREFIX).append("write_seconds Writer thread time per record rendered and per batch committed\n");
+        out.append("# TYPE ").append(PREFIX).append("write_seconds histogram\n");
+        histogram(out, "write_seconds", "stage", "record", LoggerMetrics.RECORD_WRITE);
+        histogram(out, "write_seconds", "stage", "commit", LoggerMetrics.BATCH_COMMIT);
+
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, String label, String labelValue, long value) {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(" counter\n");
+        sample(out, name, label, labelValue, value);
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String labelValue, long value) {
+        out.append(PREFIX).append(name);
+        if (label != null) {
+            out.append('{').append(label).append("=\"").append(labelValue).append("\"}");
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    // Bucket counts are read from the log-linear buckets, so each "le" is accurate to within one bucket
+    private static void histogram(StringBuilder out, String name, String label, String labelValue, LatencyHistogram histogram) {
+        for (double bound : BUCKET_SECONDS) {
+            out.append(PREFIX).append(name).append("_bucket{").append(label).append("=\"").append(labelValue)
+                    .append("\",le=\"").append(bound).append("\"} ")
+                    .append(histogram.countAtOrBelow((long) (bound * 1e9))).append('\n');
+        }
+        // Taken from the buckets too, so +Inf is never below a finite bucket read a moment earlier
+        long count = histogram.countAtOrBelow(Long.MAX_VALUE);
+        out.append(PREFIX).append(name).append("_bucket{").append(label).append("=\"").append(labelValue)
+                .append("\",le=\"+Inf\"} ").append(count).append('\n');
+        out.append(PREFIX).append(name).append("_sum{").append(label).append("=\"").append(labelValue).append("\"} ")
+                .append(String.format(Locale.ROOT, "%.9f", histogram.sumNanos() / 1e9)).append('\n');
+        out.append(PREFIX).append(name).append("_count{").append(label).append("=\"").append(labelValue).append("\"} ")
+                .append(count).append('\n');
+    }
+}
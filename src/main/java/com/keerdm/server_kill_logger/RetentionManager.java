@@ -0,0 +1,389 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+// Keeps player_death_logs and player_kill_entity_logs from growing forever.
+// On a low-priority background thread it packs closed days into one archive per player per month
+// (see LogArchive), then deletes whole days by age and oldest-first until the total size fits the quota.
+// All reads and writes go through a byte-rate limiter so a run never competes with the writer thread for the disk.
+// With an ItemStore, a run that deleted anything then reads every death record left in the reference directories
+// and removes the inventories and items none of them refer to any more.
+public class RetentionManager {
+
+    public record Settings(int archiveAfterDays, int maxAgeDays, long maxTotalBytes, long bytesPerSecond,
+                           long intervalMillis) {
+    }
+
+    public record Result(long archivedFiles, long deletedFiles, long freedBytes) {
+    }
+
+    // Kill tallies for yesterday can still be flushed shortly after midnight, so nothing younger is ever packed
+    static final int MIN_ARCHIVE_AFTER_DAYS = 2;
+
+    private static final int COPY_CHUNK = 64 * 1024;
+    // How long to wait after ItemStore.beginCollection() for the writer to commit what was queued before it;
+    // a writer further behind than that is left alone and the store collected on a later run
+    private static final long WRITER_BARRIER_MILLIS = 60_000;
+
+    private static volatile RetentionManager current;
+
+    private final List<Path> roots;
+    private final Settings settings;
+    private final ItemStore itemStore;
+    private final List<Path> referenceDirs;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private long nextFreeNanos;
+
+    private long archivedFiles;
+    private long deletedFiles;
+    private long freedBytes;
+
+    public RetentionManager(List<Path> roots, Settings settings) {
+        this(roots, settings, null, List.of());
+    }
+
+    // referenceDirs are everywhere death records referring to itemStore are kept: text death logs, journals
+    // and JSON Lines
+    public RetentionManager(List<Path> roots, Settings settings, ItemStore itemStore, List<Path> referenceDirs) {
+        this.roots = roots;
+        this.settings = settings;
+        this.itemStore = itemStore;
+        this.referenceDirs = referenceDirs;
+        this.thread = new Thread(this::run, "Server Kill Logger Retention");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    public static void start(RetentionManager manager) {
+        stop();
+        manager.thread.start();
+        current = manager;
+    }
+
+    public static void stop() {
+        RetentionManager manager = current;
+        current = null;
+        if (manager != null) {
+            manager.running = false;
+            manager.thread.interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                runOnce(LocalDate.now(ZoneOffset.UTC));
+            } catch (InterruptedIOException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+
+            try {
+                Thread.sleep(settings.intervalMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // One full pass over every root; today is the current UTC day
+    public Result runOnce(LocalDate today) throws IOException {
+        archivedFiles = 0;
+        deletedFiles = 0;
+        freedBytes = 0;
+
+        // Days before this one are closed: nothing will write to them again
+        LocalDate closedBefore = today.minusDays(MIN_ARCHIVE_AFTER_DAYS - 1);
+        LocalDate archiveBefore = today.minusDays(Math.max(settings.archiveAfterDays(), MIN_ARCHIVE_AFTER_DAYS) - 1);
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) continue;
+            try (DirectoryStream<Path> playerDirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+                for (Path playerDir : playerDirs) {
+                    archivePlayer(playerDir, archiveBefore);
+                    if (settings.maxAgeDays() > 0) {
+                        LocalDate cutoff = today.minusDays(settings.maxAgeDays());
+                        deleteOlderThan(playerDir, cutoff.isBefore(closedBefore) ? cutoff : closedBefore);
+                    }
+                }
+            }
+        }
+
+        if (settings.maxTotalBytes() > 0) {
+            enforceQuota(closedBefore);
+        }
+        // Only deleting death records leaves objects unreferenced
+        if (itemStore != null && deletedFiles > 0) {
+            collectItemStore();
+        }
+        return new Result(archivedFiles, deletedFiles, freedBytes);
+    }
+
+    private void collectItemStore() throws IOException {
+        itemStore.beginCollection();
+        try {
+            // Objects put before beginCollection() may belong to records still queued or staged; once those are
+            // committed the scan below sees them, and anything put from here on is kept by the store itself
+            try {
+                if (!AsyncLogWriter.awaitCommitted(WRITER_BARRIER_MILLIS)) {
+                    System.err.println("[Server Kill Logger] Writer is behind; item store not collected this run");
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Retention stopped");
+            }
+
+            Set<String> liveSnapshots = new HashSet<>();
+            for (Path dir : referenceDirs) {
+                findReferences(dir, liveSnapshots);
+            }
+            ItemStore.Collected collected = itemStore.collect(liveSnapshots);
+            deletedFiles += collected.objects();
+            freedBytes += collected.bytes();
+        } finally {
+            itemStore.endCollection();
+        }
+    }
+
+    // Adds the snapshots referred to by the journal segments, or the text and JSON Lines files, under dir
+    private void findReferences(Path dir, Set<String> liveSnapshots) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+
+        List<Path> segments = JournalReader.segments(dir);
+        if (!segments.isEmpty()) {
+            for (Path segment : segments) {
+                throttle(Files.size(segment));
+                JournalReader.readSegment(segment, new JournalReader.Visitor() {
+                    @Override
+                    public void onDeath(PlayerDeathEventHandler.DeathInfo deathInfo) {
+                        if (deathInfo.inventorySnapshot != null) liveSnapshots.add(deathInfo.inventorySnapshot);
+                    }
+
+                    @Override
+                    public void onKill(KillEvent kill) {
+                    }
+                });
+            }
+            return;
+        }
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(LogArchive.SUFFIX)) {
+                LogArchive.forEachEntry(file, (entryName, in) -> {
+                    byte[] bytes = in.readAllBytes();
+                    throttle(bytes.length);
+                    ItemStore.findReferences(new String(bytes, StandardCharsets.UTF_8), liveSnapshots);
+                });
+            } else if (name.endsWith(".txt") || name.endsWith(".jsonl")) {
+                byte[] bytes = Files.readAllBytes(file);
+                throttle(bytes.length);
+                ItemStore.findReferences(new String(bytes, StandardCharsets.UTF_8), liveSnapshots);
+            }
+        }
+    }
+
+    // Packs every loose file dated before archiveBefore into its month's archive
+    private void archivePlayer(Path playerDir, LocalDate archiveBefore) throws IOException {
+        Map<String, List<Path>> byMonth = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(playerDir, "*.txt")) {
+            for (Path file : files) {
+                LocalDate day = LogArchive.fileDay(file.getFileName().toString());
+                if (day != null && day.isBefore(archiveBefore)) {
+                    byMonth.computeIfAbsent(LogArchive.archiveName(day), month -> new ArrayList<>()).add(file);
+                }
+            }
+        }
+
+        for (Map.Entry<String, List<Path>> month : byMonth.entrySet()) {
+            archiveMonth(playerDir.resolve(month.getKey()), month.getValue());
+        }
+    }
+
+    // Rewrites the month's archive with the new files added, swaps it in, then removes the loose copies.
+    // A crash at any point leaves either the old archive or the new one, and the loose files until they are safe
+    private void archiveMonth(Path archive, List<Path> files) throws IOException {
+        Set<String> added = new HashSet<>();
+        for (Path file : files) {
+            added.add(file.getFileName().toString());
+        }
+
+        Path temp = archive.resolveSibling(archive.getFileName() + ".tmp");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(temp))) {
+            out.setLevel(Deflater.BEST_COMPRESSION);
+
+            if (Files.exists(archive)) {
+                try (ZipFile existing = new ZipFile(archive.toFile())) {
+                    Enumeration<? extends ZipEntry> entries = existing.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        // A loose file with the same name is the newer copy
+                        if (added.contains(entry.getName())) continue;
+                        try (InputStream in = existing.getInputStream(entry)) {
+                            putEntry(out, entry.getName(), entry.getLastModifiedTime().toMillis(), in);
+                        }
+                    }
+                }
+            }
+
+            for (Path file : files) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    putEntry(out, file.getFileName().toString(), Files.getLastModifiedTime(file).toMillis(), in);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try {
+            Files.move(temp, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        for (Path file : files) {
+            Files.delete(file);
+            archivedFiles++;
+        }
+    }
+
+    private void putEntry(ZipOutputStream out, String name, long modifiedMillis, InputStream in) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(modifiedMillis);
+        out.putNextEntry(entry);
+        copy(in, out);
+        out.closeEntry();
+    }
+
+    private void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] chunk = new byte[COPY_CHUNK];
+        int read;
+        while ((read = in.read(chunk)) > 0) {
+            throttle(read);
+            out.write(chunk, 0, read);
+        }
+    }
+
+    // Removes loose files dated before cutoff and archives whose whole month is before it
+    private void deleteOlderThan(Path playerDir, LocalDate cutoff) throws IOException {
+        for (Path file : listLogs(playerDir)) {
+            LocalDate last = lastDay(file.getFileName().toString());
+            if (last != null && last.isBefore(cutoff)) {
+                delete(file);
+            }
+        }
+    }
+
+    // Deletes the oldest days across every root until the total fits in maxTotalBytes
+    private void enforceQuota(LocalDate closedBefore) throws IOException {
+        record Candidate(Path file, LocalDate day, long size) {
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        long total = 0;
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) continue;
+            try (DirectoryStream<Path> playerDirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+                for (Path playerDir : playerDirs) {
+                    for (Path file : listLogs(playerDir)) {
+                        LocalDate day = lastDay(file.getFileName().toString());
+                        long size = Files.size(file);
+                        total += size;
+                        if (day != null) {
+                            candidates.add(new Candidate(file, day, size));
+                        }
+                    }
+                }
+            }
+        }
+
+        candidates.sort(Comparator.comparing(Candidate::day));
+        for (Candidate candidate : candidates) {
+            if (total <= settings.maxTotalBytes()) break;
+            // Never reach into the days that are still being written
+            if (!candidate.day().isBefore(closedBefore)) break;
+            delete(candidate.file());
+            total -= candidate.size();
+        }
+    }
+
+    private static List<Path> listLogs(Path playerDir) throws IOException {
+        List<Path> logs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(playerDir,
+                entry -> entry.toString().endsWith(".txt") || entry.toString().endsWith(LogArchive.SUFFIX))) {
+            files.forEach(logs::add);
+        }
+        return logs;
+    }
+
+    // The last day a loose file or a month archive covers, or null if it isn't one of ours
+    private static LocalDate lastDay(String fileName) {
+        if (!fileName.endsWith(LogArchive.SUFFIX)) return LogArchive.fileDay(fileName);
+
+        try {
+            String month = fileName.substring(0, fileName.length() - LogArchive.SUFFIX.length());
+            return LocalDate.parse(month + "-01").plusMonths(1).minusDays(1);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private void delete(Path file) throws IOException {
+        long size = Files.size(file);
+        Files.delete(file);
+        deletedFiles++;
+        freedBytes += size;
+    }
+
+    // Spreads I/O out to at most bytesPerSecond, allowing up to a second's worth in a burst
+    private void throttle(long bytes) throws IOException {
+        long bytesPerSecond = settings.bytesPerSecond();
+        if (bytesPerSecond <= 0) return;
+
+        long now = System.nanoTime();
+        long burst = TimeUnit.SECONDS.toNanos(1);
+        nextFreeNanos = Math.max(nextFreeNanos, now - burst) + bytes * 1_000_000_000L / bytesPerSecond;
+        long waitNanos = nextFreeNanos - now;
+        if (waitNanos <= 0) return;
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Retention stopped");
+        }
+    }
+}
@@ -1,11 +1,165 @@
 package com.keerdm.server_kill_logger;
 
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStartedEvent;
+import net.minecraftforge.event.server.ServerStartingEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.config.ModConfig;
 
-@Mod("server_kill_logger")
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+@Mod(Server_Kill_Logger.MODID)
 public class Server_Kill_Logger {
+    public static final String MODID = "server_kill_logger";
+
+    public static final PlayerNameTable PLAYER_NAMES = new PlayerNameTable(Paths.get(PlayerNameTable.DEFAULT_FILE));
+
+    private static volatile EventIndex eventIndex;
+    // Set at start when there was no usable checkpoint; started once the server is up
+    private static volatile StatsLoader pendingStatsLoader;
+
     public Server_Kill_Logger() {
+        ModLoadingContext.get().registerConfig(ModConfig.Type.COMMON, Config.SPEC);
         MinecraftForge.EVENT_BUS.register(this);
     }
-}
\ No newline at end of file
+
+    @SubscribeEvent
+    public void onServerStarting(ServerStartingEvent event) {
+        ItemStore.setCurrent(Config.itemStoreEnabled
+                ? new ItemStore(Paths.get(ItemStore.DEFAULT_DIR), Config.itemStoreCacheSize, Config.syncPolicy) : null);
+
+        // Start the background writer before any player can die
+        AsyncLogWriter.setFallback(Server_Kill_Logger::openBackend);
+        AsyncLogWriter writer = new AsyncLogWriter(Config.queueCapacity, Config.batchSize, Config.overflowPolicy,
+                Config.killFlushIntervalSeconds * 1000L, createStorage());
+        PlayerKillEntityEventHandler.KILL_TALLIES.beginRun();
+        restoreStats();
+        PlayerKillEntityEventHandler.KILL_TALLIES.setLayout(Config.layout);
+        CombatTrackingEventHandler.COMBAT_HISTORY.setCapacity(Config.combatHistorySize);
+        PlayerKillEntityEventHandler.KILL_SAMPLER.setSettings(Config.killSampling);
+        DeathEventDispatcher.RECORDER.setWriteDailyTallies(Config.writeDailyTallies);
+        writer.addFlushHook(PlayerKillEntityEventHandler.KILL_TALLIES);
+        writer.addFlushHook(PLAYER_NAMES);
+        if (!Config.prometheusFile.isEmpty()) {
+            writer.addFlushHook(new PrometheusExporter(Paths.get(Config.prometheusFile)));
+        }
+        AsyncLogWriter.start(writer);
+
+        if (Config.retentionEnabled) {
+            RetentionManager.start(new RetentionManager(
+                    List.of(Paths.get("player_death_logs"), Paths.get("player_kill_entity_logs")), Config.retention,
+                    ItemStore.current(), List.of(Paths.get("player_death_logs"),
+                            Paths.get(JournalLogStorage.DEFAULT_DIR), Paths.get(JsonLinesLogStorage.DEFAULT_DIR))));
+        }
+
+        if (Config.prometheusPort > 0) {
+            try {
+                PrometheusExporter.startHttp(Config.prometheusPort);
+            } catch (IOException e) {
+                // Metrics are optional; don't take the server down over a port clash
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        // Drain whatever is still queued and write out every dirty kill tally before the JVM goes away
+        EventIndex index = eventIndex;
+        eventIndex = null;
+        boolean statsComplete = StatsLoader.stop() && pendingStatsLoader == null;
+        pendingStatsLoader = null;
+        RetentionManager.stop();
+        PlayerKillEntityEventHandler.flushSampledKills();
+        AsyncLogWriter.stop();
+        if (statsComplete) {
+            saveStats(index);
+        }
+        ItemStore.setCurrent(null);
+        PlayerDeathEventHandler.clearPlayerGrids();
+        PrometheusExporter.stopHttp();
+    }
+
+    @SubscribeEvent
+    public void onServerStarted(ServerStartedEvent event) {
+        StatsLoader loader = pendingStatsLoader;
+        pendingStatsLoader = null;
+        if (loader != null) {
+            StatsLoader.start(loader);
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        PLAYER_NAMES.update(event.getEntity().getUUID(), event.getEntity().getGameProfile().getName());
+    }
+
+    // Puts the leaderboards back from the last shutdown's checkpoint, or else leaves them empty and queues the
+    // last week of history to be loaded in the background. Nothing else writes to them until the writer starts.
+    private static void restoreStats() {
+        EventIndex index = eventIndex;
+        long deathCount = index != null ? index.deathCount() : -1;
+        long killEntryCount = index != null ? index.killEntryCount() : -1;
+        StatsEventHandler.STATS.clear();
+        if (StatsLoader.restoreCheckpoint(StatsEventHandler.STATS, Paths.get(StatsLoader.CHECKPOINT_FILE),
+                deathCount, killEntryCount, System.currentTimeMillis())) return;
+
+        pendingStatsLoader = new StatsLoader(StatsEventHandler.STATS, index, deathCount, killEntryCount,
+                List.of(Paths.get("player_kill_entity_logs")), List.of(Paths.get("player_death_logs")),
+                PlayerKillEntityEventHandler.KILL_TALLIES, System.currentTimeMillis());
+    }
+
+    // Called once the writer has stopped, so the index counts stored with the checkpoint are final
+    private static void saveStats(EventIndex index) {
+        try {
+            StatsLoader.writeCheckpoint(StatsEventHandler.STATS, Paths.get(StatsLoader.CHECKPOINT_FILE),
+                    index != null ? index.deathCount() : -1, index != null ? index.killEntryCount() : -1,
+                    System.currentTimeMillis());
+        } catch (IOException e) {
+            // The next start just loads the history the slow way
+            e.printStackTrace();
+        }
+    }
+
+    // The live index for /killlog query, or null if it is disabled or the server isn't running
+    public static EventIndex eventIndex() {
+        return eventIndex;
+    }
+
+    @SubscribeEvent
+    public void onRegisterCommands(RegisterCommandsEvent event) {
+        KillLogCommand.register(event.getDispatcher());
+    }
+
+    // The configured backend on its own. The writer's storage adds the index; records written while the writer
+    // isn't running go to a fresh instance of this and aren't indexed.
+    private static LogStorage openBackend() throws IOException {
+        return switch (Config.storageBackend) {
+            case TEXT -> new TextLogStorage(Paths.get("player_death_logs"), Config.syncPolicy, Config.layout);
+            case JOURNAL -> new JournalLogStorage(Paths.get(JournalLogStorage.DEFAULT_DIR),
+                    Config.journalSegmentMegabytes * 1024L * 1024L, Config.journalSegmentMinutes, Config.syncPolicy);
+            case JSONL -> new JsonLinesLogStorage(Paths.get(JsonLinesLogStorage.DEFAULT_DIR), Config.syncPolicy);
+        };
+    }
+
+    private static LogStorage createStorage() {
+        try {
+            LogStorage storage = openBackend();
+            if (!Config.indexEnabled) return storage;
+
+            EventIndex index = new EventIndex(Paths.get(EventIndex.DEFAULT_DIR));
+            eventIndex = index;
+            return new CompositeLogStorage(List.of(storage, index));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
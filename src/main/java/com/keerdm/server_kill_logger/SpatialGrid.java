@@ -0,0 +1,143 @@
+package com.keerdm.server_kill_logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Buckets points into 64x64 block columns (4x4 chunks) so a radius query only looks at the few
+// columns it overlaps instead of every point. At the default 50 block radius that is 2x2 to 3x3 columns. Rebuilding with clear()/add() reuses
+// the arrays, so a grid rebuilt every tick stops allocating once it has seen its peak size.
+public class SpatialGrid<T> {
+
+    private static final int CELL_SHIFT = 6;
+    private static final int NONE = -1;
+
+    private Object[] items = new Object[16];
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] zs = new double[16];
+    private int[] next = new int[16];
+    private int size;
+
+    // Open-addressing cell key -> first item in that cell, chained through next[]
+    private long[] cellKeys = new long[32];
+    private int[] cellHeads = new int[32];
+
+    public SpatialGrid() {
+        Arrays.fill(cellHeads, NONE);
+    }
+
+    public void clear() {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+        Arrays.fill(cellHeads, NONE);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(T item, double x, double y, double z) {
+        if (size == items.length) {
+            int capacity = size * 2;
+            items = Arrays.copyOf(items, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        if ((size + 1) * 2 > cellKeys.length) {
+            rehash(cellKeys.length * 2);
+        }
+
+        int index = size++;
+        items[index] = item;
+        xs[index] = x;
+        ys[index] = y;
+        zs[index] = z;
+        link(index);
+    }
+
+    // Items within radius of (x, y, z), in the order they were added
+    @SuppressWarnings("unchecked")
+    public List<T> within(double x, double y, double z, double radius) {
+        double radiusSqr = radius * radius;
+        int minCellX = (int) Math.floor(x - radius) >> CELL_SHIFT;
+        int maxCellX = (int) Math.floor(x + radius) >> CELL_SHIFT;
+        int minCellZ = (int) Math.floor(z - radius) >> CELL_SHIFT;
+        int maxCellZ = (int) Math.floor(z + radius) >> CELL_SHIFT;
+
+        int[] hits = null;
+        int hitCount = 0;
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                int slot = find(cellKey(cellX, cellZ));
+                if (slot < 0) continue;
+
+                for (int i = cellHeads[slot]; i != NONE; i = next[i]) {
+                    double dx = xs[i] - x;
+                    double dy = ys[i] - y;
+                    double dz = zs[i] - z;
+                    if (dx * dx + dy * dy + dz * dz <= radiusSqr) {
+                        if (hits == null) {
+                            hits = new int[8];
+                        } else if (hitCount == hits.length) {
+                            hits = Arrays.copyOf(hits, hitCount * 2);
+                        }
+                        hits[hitCount++] = i;
+                    }
+                }
+            }
+        }
+
+        List<T> result = new ArrayList<>(hitCount);
+        if (hits != null) {
+            Arrays.sort(hits, 0, hitCount);
+            for (int i = 0; i < hitCount; i++) {
+                result.add((T) items[hits[i]]);
+            }
+        }
+        return result;
+    }
+
+    private void link(int index) {
+        long key = cellKey((int) Math.floor(xs[index]) >> CELL_SHIFT, (int) Math.floor(zs[index]) >> CELL_SHIFT);
+        int mask = cellKeys.length - 1;
+        int slot = mix(key) & mask;
+        while (cellHeads[slot] != NONE && cellKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        // New items go to the front of the chain; within() restores insertion order
+        next[index] = cellHeads[slot];
+        cellKeys[slot] = key;
+        cellHeads[slot] = index;
+    }
+
+    private int find(long key) {
+        int mask = cellKeys.length - 1;
+        int slot = mix(key) & mask;
+        while (cellHeads[slot] != NONE) {
+            if (cellKeys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        cellKeys = new long[capacity];
+        cellHeads = new int[capacity];
+        Arrays.fill(cellHeads, NONE);
+        for (int i = 0; i < size; i++) {
+            link(i);
+        }
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,379 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+// Live kill and death counts per player and server-wide over the last hour, day and week, with top-K
+// leaderboards for /killlog top. Nothing here touches the disk itself; StatsLoader refills it after a restart,
+// from a checkpoint written at the last shutdown or from the event index.
+//
+// Counts go into time-bucketed rings: 60 one-minute buckets for the hour and 168 one-hour buckets for the day
+// and week, so old counts fall out of the scores without any sweeping. Players themselves are only dropped by
+// expire(), once nothing of theirs is left in the week; the checkpoint never holds them either.
+//
+// Each leaderboard is a TreeSet ordered by score. A new event adds to the player's score and moves them in
+// O(log n). Scores only ever shrink through buckets expiring, so a stored score is an upper bound: top()
+// re-checks the leaders it returns and moves any that have decayed further down, which keeps the answer exact
+// without touching the players nobody asked about.
+public class StatsEngine {
+
+    public enum Metric {
+        KILLS,
+        PLAYER_KILLS,
+        DEATHS
+    }
+
+    public enum Window {
+        HOUR,
+        DAY,
+        WEEK
+    }
+
+    public record Standing(UUID uuid, String name, long score) {
+    }
+
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final int MINUTES = 60;
+    private static final int HOURS = 24 * 7;
+
+    private static final Comparator<Entry> BY_SCORE = Comparator.<Entry>comparingLong(entry -> -entry.score)
+            .thenComparing(entry -> entry.player.uuid);
+
+    private final Map<UUID, PlayerStats> players = new HashMap<>();
+    private final Map<Metric, RollingCounter> totals = new EnumMap<>(Metric.class);
+    private final Map<Metric, Map<Window, TreeSet<Entry>>> boards = new EnumMap<>(Metric.class);
+
+    public StatsEngine() {
+        for (Metric metric : Metric.values()) {
+            totals.put(metric, new RollingCounter());
+            Map<Window, TreeSet<Entry>> windows = new EnumMap<>(Window.class);
+            for (Window window : Window.values()) {
+                windows.put(window, new TreeSet<>(BY_SCORE));
+            }
+            boards.put(metric, windows);
+        }
+    }
+
+    public synchronized void record(UUID uuid, String name, Metric metric, long timeMillis, long count) {
+        PlayerStats player = players.computeIfAbsent(uuid, PlayerStats::new);
+        if (name != null) player.name = name;
+
+        RollingCounter counter = player.counters.computeIfAbsent(metric, m -> new RollingCounter());
+        if (!counter.add(timeMillis, count)) return;
+        totals.get(metric).add(timeMillis, count);
+        player.lastMillis = Math.max(player.lastMillis, timeMillis);
+
+        Map<Window, Entry> entries = player.entries.computeIfAbsent(metric, m -> new EnumMap<>(Window.class));
+        for (Window window : Window.values()) {
+            TreeSet<Entry> board = boards.get(metric).get(window);
+            Entry entry = entries.get(window);
+            if (entry == null) {
+                entry = new Entry(player);
+                entries.put(window, entry);
+            } else {
+                board.remove(entry);
+            }
+            entry.score += count;
+            board.add(entry);
+        }
+    }
+
+    // The k players with the highest score in the window ending at nowMillis, highest first
+    public synchronized List<Standing> top(Metric metric, Window window, int k, long nowMillis) {
+        TreeSet<Entry> board = boards.get(metric).get(window);
+        List<Standing> standings = new ArrayList<>(k);
+
+        Entry last = null;
+        Entry candidate = board.isEmpty() ? null : board.first();
+        while (candidate != null && standings.size() < k) {
+            long actual = candidate.player.counters.get(metric).sum(window, nowMillis);
+            if (actual != candidate.score) {
+                // Decayed since it was last scored; it can only move down, past entries not yet checked
+                board.remove(candidate);
+                candidate.score = actual;
+                board.add(candidate);
+            } else {
+                if (actual == 0) break;
+                standings.add(new Standing(candidate.player.uuid, candidate.player.name, actual));
+                last = candidate;
+            }
+            candidate = last == null ? board.first() : board.higher(last);
+        }
+        return standings;
+    }
+
+    // Server-wide count in the window ending at nowMillis
+    public synchronized long total(Metric metric, Window window, long nowMillis) {
+        return totals.get(metric).sum(window, nowMillis);
+    }
+
+    public synchronized long score(UUID uuid, Metric metric, Window window, long nowMillis) {
+        PlayerStats player = players.get(uuid);
+        RollingCounter counter = player != null ? player.counters.get(metric) : null;
+        return counter != null ? counter.sum(window, nowMillis) : 0;
+    }
+
+    public synchronized int playerCount() {
+        return players.size();
+    }
+
+    // Forgets every player with nothing left in the week ending at nowMillis; returns how many. Only looks at
+    // each player's latest event, so it is cheap enough to run every few minutes
+    public synchronized int expire(long nowMillis) {
+        int removed = 0;
+        for (Iterator<PlayerStats> it = players.values().iterator(); it.hasNext(); ) {
+            PlayerStats player = it.next();
+            if (!player.expired(nowMillis)) continue;
+            player.entries.forEach((metric, entries) ->
+                    entries.forEach((window, entry) -> boards.get(metric).get(window).remove(entry)));
+            it.remove();
+            removed++;
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        players.clear();
+        for (Metric metric : Metric.values()) {
+            totals.put(metric, new RollingCounter());
+            boards.get(metric).values().forEach(TreeSet::clear);
+        }
+    }
+
+    // Adds the last week of the index, up to the first deathLimit deaths and killLimit kill entries, on top
+    // of whatever is already counted; events recorded live since those counts were taken are not seen twice.
+    // Kills are kept per hour there, so the hour window only counts them from the start of their hour.
+    public void load(EventIndex index, long nowMillis, long deathLimit, long killLimit) throws IOException {
+        index.scan(nowMillis - HOURS * HOUR_MILLIS, deathLimit, killLimit, new EventIndex.ScanVisitor() {
+            @Override
+            public void onDeath(long timeMillis, String playerUUID, String playerName) {
+                UUID uuid = parseUUID(playerUUID);
+                if (uuid != null) {
+                    record(uuid, playerName, Metric.DEATHS, timeMillis, 1);
+                }
+            }
+
+            @Override
+            public void onKills(long hourStart, String killerUUID, String killerName, KillTally.Kind kind, long count) {
+                UUID uuid = parseUUID(killerUUID);
+                if (uuid == null) return;
+                record(uuid, killerName, Metric.KILLS, hourStart, count);
+                if (kind == KillTally.Kind.PLAYER) {
+                    record(uuid, killerName, Metric.PLAYER_KILLS, hourStart, count);
+                }
+            }
+        });
+    }
+
+    // The buckets still inside their window at nowMillis, for every player that has any left:
+    // [uuid][name][metric count] then per metric [metric][minute slots]([stamp][count])* [hour slots]([stamp][count])*
+    synchronized void writeTo(DataOutputStream out, long nowMillis) throws IOException {
+        expire(nowMillis);
+        out.writeInt(players.size());
+        for (PlayerStats player : players.values()) {
+            out.writeLong(player.uuid.getMostSignificantBits());
+            out.writeLong(player.uuid.getLeastSignificantBits());
+            out.writeUTF(player.name != null ? player.name : "");
+            out.writeByte(player.counters.size());
+            for (Map.Entry<Metric, RollingCounter> counter : player.counters.entrySet()) {
+                out.writeByte(counter.getKey().ordinal());
+                counter.getValue().writeTo(out, nowMillis);
+            }
+        }
+    }
+
+    // Replaces everything with what writeTo() wrote, less whatever has left its window by nowMillis. Scores are
+    // taken at nowMillis; nothing can have been counted since the checkpoint, so they are upper bounds as top()
+    // expects.
+    synchronized void readFrom(DataInputStream in, long nowMillis) throws IOException {
+        clear();
+        Metric[] metrics = Metric.values();
+        int playerCount = in.readInt();
+        for (int i = 0; i < playerCount; i++) {
+            PlayerStats player = new PlayerStats(new UUID(in.readLong(), in.readLong()));
+            String name = in.readUTF();
+            player.name = name.isEmpty() ? null : name;
+
+            int counterCount = in.readUnsignedByte();
+            for (int j = 0; j < counterCount; j++) {
+                Metric metric = metrics[in.readUnsignedByte()];
+                RollingCounter counter = new RollingCounter();
+                long lastMillis = counter.readFrom(in, totals.get(metric), nowMillis);
+                if (lastMillis == Long.MIN_VALUE) continue;
+                player.lastMillis = Math.max(player.lastMillis, lastMillis);
+                player.counters.put(metric, counter);
+
+                Map<Window, Entry> entries = new EnumMap<>(Window.class);
+                for (Window window : Window.values()) {
+                    Entry entry = new Entry(player);
+                    entry.score = counter.sum(window, nowMillis);
+                    entries.put(window, entry);
+                    boards.get(metric).get(window).add(entry);
+                }
+                player.entries.put(metric, entries);
+            }
+            if (!player.counters.isEmpty()) {
+                players.put(player.uuid, player);
+            }
+        }
+    }
+
+    public static Metric parseMetric(String text) {
+        return Metric.valueOf(text.toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    public static Window parseWindow(String text) {
+        return Window.valueOf(text.toUpperCase(Locale.ROOT));
+    }
+
+    private static UUID parseUUID(String text) {
+        try {
+            return text != null ? UUID.fromString(text) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static class PlayerStats {
+        final UUID uuid;
+        String name;
+        // The newest event counted; every bucket holding anything of theirs ends at or before it
+        long lastMillis = Long.MIN_VALUE;
+        final Map<Metric, RollingCounter> counters = new EnumMap<>(Metric.class);
+        final Map<Metric, Map<Window, Entry>> entries = new EnumMap<>(Metric.class);
+
+        PlayerStats(UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        boolean expired(long nowMillis) {
+            return !RollingCounter.inWeek(Math.floorDiv(lastMillis, HOUR_MILLIS), nowMillis);
+        }
+    }
+
+    // A player's place on one leaderboard; score is only changed while the entry is out of its TreeSet
+    private static class Entry {
+        final PlayerStats player;
+        long score;
+
+        Entry(PlayerStats player) {
+            this.player = player;
+        }
+    }
+
+    // Counts per minute for the last hour and per hour for the last week. Each slot remembers which minute or
+    // hour it holds, so a slot left over from a previous lap of the ring is simply ignored or reset.
+    static class RollingCounter {
+        private final int[] minuteCounts = new int[MINUTES];
+        private final int[] minuteStamps = new int[MINUTES];
+        private final int[] hourCounts = new int[HOURS];
+        private final int[] hourStamps = new int[HOURS];
+
+        // False if the event is older than anything the rings still hold
+        boolean add(long timeMillis, long count) {
+            int minute = (int) Math.floorDiv(timeMillis, MINUTE_MILLIS);
+            int hour = (int) Math.floorDiv(timeMillis, HOUR_MILLIS);
+            boolean kept = add(minuteCounts, minuteStamps, minute, count);
+            return add(hourCounts, hourStamps, hour, count) || kept;
+        }
+
+        private static boolean add(int[] counts, int[] stamps, int unit, long count) {
+            int slot = Math.floorMod(unit, counts.length);
+            if (stamps[slot] != unit) {
+                if (stamps[slot] > unit) return false;
+                stamps[slot] = unit;
+                counts[slot] = 0;
+            }
+            counts[slot] = (int) Math.min(Integer.MAX_VALUE, counts[slot] + count);
+            return true;
+        }
+
+        // Only the slots still inside their ring's window at nowMillis; older ones would never be summed again
+        void writeTo(DataOutputStream out, long nowMillis) throws IOException {
+            writeSlots(minuteCounts, minuteStamps, Math.floorDiv(nowMillis, MINUTE_MILLIS), out);
+            writeSlots(hourCounts, hourStamps, Math.floorDiv(nowMillis, HOUR_MILLIS), out);
+        }
+
+        // Also adds every slot read into total, the server-wide counter for the same metric. Slots outside their
+        // window at nowMillis are skipped, so no two units ever compete for a slot. Returns the end of the newest
+        // hour read, or Long.MIN_VALUE if nothing was left
+        long readFrom(DataInputStream in, RollingCounter total, long nowMillis) throws IOException {
+            readSlots(minuteCounts, minuteStamps, total.minuteCounts, total.minuteStamps,
+                    Math.floorDiv(nowMillis, MINUTE_MILLIS), in);
+            long newestHour = readSlots(hourCounts, hourStamps, total.hourCounts, total.hourStamps,
+                    Math.floorDiv(nowMillis, HOUR_MILLIS), in);
+            return newestHour == Long.MIN_VALUE ? Long.MIN_VALUE : (newestHour + 1) * HOUR_MILLIS - 1;
+        }
+
+        static boolean inWeek(long hour, long nowMillis) {
+            return inWindow(hour, Math.floorDiv(nowMillis, HOUR_MILLIS), HOURS);
+        }
+
+        // Whether unit is one of the span units ending with now
+        private static boolean inWindow(long unit, long now, int span) {
+            return unit > now - span && unit <= now;
+        }
+
+        private static void writeSlots(int[] counts, int[] stamps, long now, DataOutputStream out) throws IOException {
+            int used = 0;
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (counts[slot] != 0 && inWindow(stamps[slot], now, counts.length)) used++;
+            }
+            out.writeShort(used);
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (counts[slot] == 0 || !inWindow(stamps[slot], now, counts.length)) continue;
+                out.writeInt(stamps[slot]);
+                out.writeInt(counts[slot]);
+            }
+        }
+
+        // Returns the newest unit kept, or Long.MIN_VALUE if none was
+        private static long readSlots(int[] counts, int[] stamps, int[] totalCounts, int[] totalStamps, long now,
+                                      DataInputStream in) throws IOException {
+            long newest = Long.MIN_VALUE;
+            int used = in.readUnsignedShort();
+            for (int i = 0; i < used; i++) {
+                int unit = in.readInt();
+                int count = in.readInt();
+                if (count == 0 || !inWindow(unit, now, counts.length)) continue;
+                int slot = Math.floorMod(unit, counts.length);
+                stamps[slot] = unit;
+                counts[slot] = count;
+                add(totalCounts, totalStamps, unit, count);
+                newest = Math.max(newest, unit);
+            }
+            return newest;
+        }
+
+        long sum(Window window, long nowMillis) {
+            return switch (window) {
+                case HOUR -> sum(minuteCounts, minuteStamps, (int) Math.floorDiv(nowMillis, MINUTE_MILLIS), MINUTES);
+                case DAY -> sum(hourCounts, hourStamps, (int) Math.floorDiv(nowMillis, HOUR_MILLIS), 24);
+                case WEEK -> sum(hourCounts, hourStamps, (int) Math.floorDiv(nowMillis, HOUR_MILLIS), HOURS);
+            };
+        }
+
+        // Buckets for the span units ending with now
+        private static long sum(int[] counts, int[] stamps, int now, int span) {
+            long total = 0;
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (inWindow(stamps[slot], now, span)) {
+                    total += counts[slot];
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.keerdm.server_kill_logger;
+
+import net.minecraft.world.entity.player.Player;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+// Feeds every death into the live leaderboards behind /killlog top
+@Mod.EventBusSubscriber(bus = Mod.EventBusSubscriber.Bus.FORGE)
+public class StatsEventHandler {
+
+    public static final StatsEngine STATS = new StatsEngine();
+
+    // Five minutes of ticks
+    private static final int EXPIRE_INTERVAL_TICKS = 5 * 60 * 20;
+
+    private static int ticks;
+
+    // DeathSink for the leaderboards
+    public static void onDeath(DeathSnapshot death) {
+        Player victim = death.victimPlayer();
+        Player killer = death.killer();
+        if (victim == null && killer == null) return;
+
+        DeathEventDispatcher.RECORDER.leaderboards(victim != null ? victim.getUUID() : null,
+                victim != null ? death.victimName() : null, killer != null ? killer.getUUID() : null,
+                killer != null ? death.killerName() : null, death.timeMillis());
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        // Forget players with nothing left in the week, so the engine doesn't grow with everyone ever seen
+        if (event.phase != TickEvent.Phase.END || ++ticks % EXPIRE_INTERVAL_TICKS != 0) return;
+        STATS.expire(LogTime.now());
+    }
+}
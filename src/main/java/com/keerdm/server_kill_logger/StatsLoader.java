@@ -0,0 +1,369 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Gets the leaderboards back after a restart without holding up server start.
+//
+// A clean shutdown saves the whole StatsEngine to player_stats.checkpoint, and the next start reads it back
+// in one sequential read. The checkpoint is deleted as soon as it has been read, so after a crash there is
+// none and the history is loaded in the background instead, once the server is up: from the event index if
+// there is one, otherwise from the last week of player_kill_entity_logs and player_death_logs, split across
+// a fork-join pool by player directory. Until that finishes /killlog top only shows what happened since start.
+public class StatsLoader {
+
+    public static final String CHECKPOINT_FILE = "player_stats.checkpoint";
+
+    private static final int MAGIC = 0x534B4C53;
+    private static final int VERSION = 1;
+    private static final long WEEK_MILLIS = 7 * KillTally.MILLIS_PER_DAY;
+    // Player directories a fork-join leaf handles itself rather than splitting further
+    private static final int LEAF_DIRS = 16;
+
+    public interface Cancellation {
+        boolean running();
+    }
+
+    private static volatile StatsLoader current;
+
+    private final StatsEngine engine;
+    private final EventIndex index;
+    private final long deathLimit;
+    private final long killLimit;
+    private final List<Path> killDirs;
+    private final List<Path> deathDirs;
+    private final KillTallyStore tallies;
+    private final long startMillis;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean finished;
+
+    // deathLimit and killLimit are the index's counts before the writer started; kill and death files are
+    // only read when index is null, with tallies (which may be null) writing today's. Everything is loaded as
+    // of startMillis.
+    public StatsLoader(StatsEngine engine, EventIndex index, long deathLimit, long killLimit,
+                       List<Path> killDirs, List<Path> deathDirs, KillTallyStore tallies, long startMillis) {
+        this.engine = engine;
+        this.index = index;
+        this.deathLimit = deathLimit;
+        this.killLimit = killLimit;
+        this.killDirs = killDirs;
+        this.deathDirs = deathDirs;
+        this.tallies = tallies;
+        this.startMillis = startMillis;
+        this.thread = new Thread(this::run, "Server Kill Logger Stats Loader");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    public static void start(StatsLoader loader) {
+        stop();
+        loader.thread.start();
+        current = loader;
+    }
+
+    // True if nothing was loading or the load had finished; a checkpoint is only worth writing then
+    public static boolean stop() {
+        StatsLoader loader = current;
+        current = null;
+        if (loader == null) return true;
+
+        loader.running = false;
+        try {
+            loader.thread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return loader.finished;
+    }
+
+    public static boolean loading() {
+        StatsLoader loader = current;
+        return loader != null && !loader.finished;
+    }
+
+    private void run() {
+        try {
+            if (index != null) {
+                engine.load(index, startMillis, deathLimit, killLimit);
+            } else {
+                loadLogs(engine, killDirs, deathDirs, tallies, startMillis, ForkJoinPool.commonPool(), () -> running);
+            }
+            finished = running;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Adds the week before startMillis from kill and death files, loose or archived, to engine. Kill files only
+    // carry a day, so their kills are counted at the start of it. Once tallies has rewritten today's kill file it
+    // also holds kills already counted live, so only what it held before this run read it is counted. Returns
+    // files read.
+    public static long loadLogs(StatsEngine engine, List<Path> killDirs, List<Path> deathDirs, KillTallyStore tallies,
+                                long startMillis, ForkJoinPool pool, Cancellation cancellation) throws IOException {
+        List<Path> playerDirs = new ArrayList<>();
+        int killDirCount = 0;
+        for (Path root : killDirs) {
+            killDirCount += listPlayerDirs(root, playerDirs);
+        }
+        for (Path root : deathDirs) {
+            listPlayerDirs(root, playerDirs);
+        }
+
+        LoadTask task = new LoadTask(engine, playerDirs, killDirCount, 0, playerDirs.size(),
+                LocalDate.ofEpochDay(LogTime.epochDay(startMillis - WEEK_MILLIS)), tallies, startMillis, cancellation);
+        pool.invoke(task);
+        return task.files;
+    }
+
+    private static int listPlayerDirs(Path root, List<Path> playerDirs) throws IOException {
+        if (!Files.isDirectory(root)) return 0;
+        int count = 0;
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                playerDirs.add(dir);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static class LoadTask extends RecursiveAction {
+        private final StatsEngine engine;
+        private final List<Path> playerDirs;
+        // playerDirs before this index are kill directories, the rest death directories
+        private final int killDirCount;
+        private final int from;
+        private final int to;
+        private final LocalDate firstDay;
+        private final KillTallyStore tallies;
+        private final long startMillis;
+        private final Cancellation cancellation;
+        long files;
+
+        LoadTask(StatsEngine engine, List<Path> playerDirs, int killDirCount, int from, int to, LocalDate firstDay,
+                 KillTallyStore tallies, long startMillis, Cancellation cancellation) {
+            this.engine = engine;
+            this.playerDirs = playerDirs;
+            this.killDirCount = killDirCount;
+            this.from = from;
+            this.to = to;
+            this.firstDay = firstDay;
+            this.tallies = tallies;
+            this.startMillis = startMillis;
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_DIRS) {
+                for (int i = from; i < to && cancellation.running(); i++) {
+                    try {
+                        if (i < killDirCount) {
+                            loadKillDir(playerDirs.get(i));
+                        } else {
+                            loadDeathDir(playerDirs.get(i));
+                        }
+                    } catch (IOException e) {
+                        // One unreadable directory shouldn't cost everyone else their history
+                        e.printStackTrace();
+                    }
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            LoadTask left = new LoadTask(engine, playerDirs, killDirCount, from, middle, firstDay, tallies,
+                    startMillis, cancellation);
+            LoadTask right = new LoadTask(engine, playerDirs, killDirCount, middle, to, firstDay, tallies,
+                    startMillis, cancellation);
+            invokeAll(left, right);
+            files = left.files + right.files;
+        }
+
+        private void loadKillDir(Path playerDir) throws IOException {
+            String fallbackName = playerDir.getFileName().toString();
+            long today = LogTime.epochDay(startMillis);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(playerDir)) {
+                for (Path entry : entries) {
+                    String fileName = entry.getFileName().toString();
+                    if (fileName.endsWith(LogArchive.SUFFIX)) {
+                        if (!archiveInRange(fileName)) continue;
+                        LogArchive.forEachEntry(entry, (name, in) -> loadKillFile(name, read(in), fallbackName, null));
+                        continue;
+                    }
+
+                    LocalDate day = LogArchive.fileDay(fileName);
+                    if (day == null || day.isBefore(firstDay) || day.toEpochDay() > today) continue;
+                    String text = Files.readString(entry, StandardCharsets.UTF_8);
+                    // Asked after reading: a tally reads the file before it first writes it, so if there is no
+                    // answer yet, what was just read has none of this run's kills
+                    long[] earlierKills = day.toEpochDay() == today && tallies != null
+                            ? tallies.earlierKills(entry) : null;
+                    loadKillFile(fileName, text, fallbackName, earlierKills);
+                }
+            }
+        }
+
+        private void loadDeathDir(Path playerDir) throws IOException {
+            String fallbackName = playerDir.getFileName().toString();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(playerDir)) {
+                for (Path entry : entries) {
+                    String fileName = entry.getFileName().toString();
+                    if (fileName.endsWith(LogArchive.SUFFIX)) {
+                        if (!archiveInRange(fileName)) continue;
+                        LogArchive.forEachEntry(entry, (name, in) -> loadDeathFile(name, read(in), fallbackName));
+                    } else if (fileName.endsWith(".txt")) {
+                        LocalDate day = LogArchive.fileDay(fileName);
+                        if (day == null || day.isBefore(firstDay)) continue;
+                        loadDeathFile(fileName, Files.readString(entry, StandardCharsets.UTF_8), fallbackName);
+                    }
+                }
+            }
+        }
+
+        // Archives are named yyyy-MM.zip; skip the months that end before the week starts
+        private boolean archiveInRange(String fileName) {
+            return fileName.compareTo(LogArchive.archiveName(firstDay)) >= 0;
+        }
+
+        // earlierKills, if not null, replaces the file's own counts: {kills, player kills}
+        private void loadKillFile(String fileName, String text, String fallbackName, long[] earlierKills) {
+            LocalDate day = LogArchive.fileDay(fileName);
+            if (day == null || day.isBefore(firstDay) || day.toEpochDay() > LogTime.epochDay(startMillis)) return;
+            UUID uuid = parseUUID(LogReplay.headerValue(text, "UUID: ", ""));
+            if (uuid == null) return;
+            files++;
+
+            long killCount;
+            long playerKillCount;
+            if (earlierKills != null) {
+                killCount = earlierKills[0];
+                playerKillCount = earlierKills[1];
+            } else {
+                Map<String, Integer> entityKills = new HashMap<>();
+                Map<String, Integer> namedEntityKills = new HashMap<>();
+                Map<String, Integer> playerKills = new HashMap<>();
+                KillLogFile.parseKillData(text, entityKills, namedEntityKills, playerKills);
+                playerKillCount = sum(playerKills);
+                killCount = sum(entityKills) + sum(namedEntityKills) + playerKillCount;
+            }
+            long dayStart = day.toEpochDay() * KillTally.MILLIS_PER_DAY;
+            String name = LogReplay.headerValue(text, "Name: ", fallbackName);
+            if (killCount > 0) {
+                engine.record(uuid, name, StatsEngine.Metric.KILLS, dayStart, killCount);
+            }
+            if (playerKillCount > 0) {
+                engine.record(uuid, name, StatsEngine.Metric.PLAYER_KILLS, dayStart, playerKillCount);
+            }
+        }
+
+        private void loadDeathFile(String fileName, String text, String fallbackName) {
+            long timeMillis = deathTime(fileName);
+            // Deaths from this run are counted live; a death file's time only has whole seconds
+            if (timeMillis < startMillis - WEEK_MILLIS || timeMillis >= startMillis - startMillis % 1000) return;
+            UUID uuid = parseUUID(LogReplay.headerValue(text, "UUID: ", ""));
+            if (uuid == null) return;
+            files++;
+            engine.record(uuid, LogReplay.headerValue(text, "Player: ", fallbackName), StatsEngine.Metric.DEATHS,
+                    timeMillis, 1);
+        }
+    }
+
+    // Writes engine to file through a temp file. deathCount and killEntryCount are the index's sizes at the
+    // time, or -1 without an index; restoreCheckpoint() only trusts the file if they still match.
+    public static void writeCheckpoint(StatsEngine engine, Path file, long deathCount, long killEntryCount,
+                                       long nowMillis) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(nowMillis);
+            out.writeLong(deathCount);
+            out.writeLong(killEntryCount);
+            engine.writeTo(out, nowMillis);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Replaces engine's contents with the checkpoint if there is one that matches the index, and deletes it
+    // either way; counts that have left the week by nowMillis are dropped. False if the history still has to
+    // be loaded some other way.
+    public static boolean restoreCheckpoint(StatsEngine engine, Path file, long deathCount, long killEntryCount,
+                                            long nowMillis) {
+        if (!Files.exists(file)) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+            in.readLong(); // when it was written
+            if (in.readLong() != deathCount || in.readLong() != killEntryCount) return false;
+            engine.readFrom(in, nowMillis);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            engine.clear();
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // A death file's time from its name, or Long.MIN_VALUE if it isn't one
+    static long deathTime(String fileName) {
+        if (!fileName.endsWith(".txt")) return Long.MIN_VALUE;
+        try {
+            return LocalDateTime.parse(fileName.substring(0, fileName.length() - ".txt".length()), LogTime.DEATH_FILE)
+                    .toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static long sum(Map<String, Integer> counts) {
+        long total = 0;
+        for (int count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    private static UUID parseUUID(String text) {
+        try {
+            return text.isEmpty() ? null : UUID.fromString(text);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
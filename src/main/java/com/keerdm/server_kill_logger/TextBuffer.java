@@ -0,0 +1,68 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Formatter;
+
+// A text file rendered into a reused builder, encoded once into a reused direct buffer and written with a
+// single channel write. Death files (TextLogStorage) and daily kill files (KillLogFile) go through one each.
+// Not thread-safe.
+public class TextBuffer {
+
+    final StringBuilder text = new StringBuilder(4096);
+    final Formatter formatter = new Formatter(text);
+    // FileWriter used the platform charset, so keep using it for byte-identical files
+    private final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer bytes = ByteBuffer.allocateDirect(16 * 1024);
+
+    // Empties the builder for the next file
+    StringBuilder reset() {
+        text.setLength(0);
+        return text;
+    }
+
+    // Writes the builder's text as the whole of file, replacing what was there; returns the bytes written
+    int writeTo(Path file) throws IOException {
+        encode();
+        int size = bytes.remaining();
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            LoggerMetrics.fileOpened();
+            LoggerMetrics.bytesWritten(size);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+        return size;
+    }
+
+    private void encode() throws CharacterCodingException {
+        // Size for the worst case up front so the encoder never runs out of room
+        int maxBytes = (int) Math.ceil(text.length() * (double) encoder.maxBytesPerChar()) + 16;
+        if (bytes.capacity() < maxBytes) {
+            bytes = ByteBuffer.allocateDirect(Integer.highestOneBit(maxBytes) << 1);
+        }
+
+        bytes.clear();
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(text), bytes, true);
+        if (result.isUnderflow()) {
+            result = encoder.flush(bytes);
+        }
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+        bytes.flip();
+    }
+}
@@ -0,0 +1,95 @@
+package com.keerdm.server_kill_logger;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// The original layout: one human-readable file per death under player_death_logs/<player>/.
+// Kill tallies are written separately by KillTallyStore, so kill events are not stored here.
+//
+// Each death is rendered into a reused buffer, encoded once and written with a single channel write.
+// Not thread-safe; the writer thread owns it.
+public class TextLogStorage implements LogStorage {
+
+    private final Path deathLogDir;
+    private final SyncPolicy syncPolicy;
+    private final Layout layout;
+
+    private final TextBuffer buffer = new TextBuffer();
+
+    private final Set<Path> knownPlayerDirs = new HashSet<>();
+    private final List<Path> unsynced = new ArrayList<>();
+
+    public TextLogStorage(Path deathLogDir) {
+        this(deathLogDir, SyncPolicy.NONE, Layout.NAME);
+    }
+
+    public TextLogStorage(Path deathLogDir, SyncPolicy syncPolicy, Layout layout) {
+        this.deathLogDir = deathLogDir;
+        this.syncPolicy = syncPolicy;
+        this.layout = layout;
+    }
+
+    @Override
+    public void writeDeath(PlayerDeathEventHandler.DeathInfo deathInfo) throws IOException {
+        // Create player-specific directory (and the main logs directory) if it doesn't exist
+        Path playerDir = deathLogDir.resolve(layout.playerDir(deathInfo.playerName, deathInfo.playerUUID));
+        if (knownPlayerDirs.add(playerDir)) {
+            Files.createDirectories(playerDir);
+        }
+
+        DeathLogRecord.render(deathInfo, buffer.reset(), buffer.formatter);
+
+        // Create log file
+        String fileDate = LogTime.deathFileName(deathInfo.timeMillis);
+        Path file = playerDir.resolve(fileDate + ".txt");
+        try {
+            buffer.writeTo(file);
+        } catch (IOException e) {
+            // The directory may have been removed underneath us; check it again next time
+            knownPlayerDirs.remove(playerDir);
+            throw e;
+        }
+
+        if (syncPolicy != SyncPolicy.NONE) {
+            unsynced.add(file);
+        }
+    }
+
+    @Override
+    public void writeKill(KillEvent kill) {
+    }
+
+    @Override
+    public void commit() throws IOException {
+        if (syncPolicy == SyncPolicy.BATCH) {
+            sync();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+    }
+
+    // Every death is its own file, so forcing means reopening each file written since the last sync
+    private void sync() throws IOException {
+        for (Path file : unsynced) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.force(false);
+            }
+        }
+        unsynced.clear();
+    }
+}